@@ -0,0 +1,296 @@
+/*
+ * Copyright (C) 2014-2026 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper;
+
+import com.jme3.network.ConnectionListener;
+import com.jme3.network.HostedConnection;
+import com.jme3.network.Server;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import static java.util.stream.Collectors.toList;
+import toniarts.openkeeper.game.data.Keeper;
+import toniarts.openkeeper.game.network.NetworkServer;
+import toniarts.openkeeper.game.network.game.GameHostedService;
+import toniarts.openkeeper.game.network.lobby.LobbyHostedService;
+import toniarts.openkeeper.game.state.GameServerState;
+import toniarts.openkeeper.game.state.lobby.ClientInfo;
+import toniarts.openkeeper.game.state.lobby.LobbySessionListener;
+import toniarts.openkeeper.game.state.loop.GameLoopManager;
+import toniarts.openkeeper.game.state.session.LocalGameSession;
+import toniarts.openkeeper.tools.convert.map.KwdFile;
+import toniarts.openkeeper.tools.convert.map.Player;
+import toniarts.openkeeper.utils.GameScheduler;
+import toniarts.openkeeper.utils.PathUtils;
+
+/**
+ * Runs the game server without the application, no rendering, audio or GUI.
+ * Loads only the level, not the assets.<br>
+ * Either hosts a network game that the players join from their clients, or
+ * with {@code -simulate} just runs the level with computer players for the
+ * given time and reports how many ticks it got through.
+ * <br>
+ * Parameters:
+ * <ul>
+ * <li>-map, the map name or the path to the KWD file</li>
+ * <li>-folder, the Dungeon Keeper II main folder (optional)</li>
+ * <li>-name, the server name (optional)</li>
+ * <li>-port, the server port (optional)</li>
+ * <li>-ai, amount of computer players to add to the lobby (optional)</li>
+ * <li>-simulate, simulate the level for the given amount of seconds, no
+ * networking</li>
+ * <li>-timescale, the game speed relative to the real time, or "max" to run
+ * as fast as possible (optional, simulation defaults to max)</li>
+ * </ul>
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class DedicatedServer {
+
+    private static final Logger logger = System.getLogger(DedicatedServer.class.getName());
+
+    public static final int DEFAULT_PORT = 7575;
+    private static final String DEFAULT_NAME = Main.TITLE + " Server";
+
+    private final KwdFile kwdFile;
+    private final Double timeScale;
+    private final CountDownLatch shutdown = new CountDownLatch(1);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final AtomicBoolean gameStarted = new AtomicBoolean(false);
+    private NetworkServer server;
+    private volatile GameServerState gameServerState;
+
+    private DedicatedServer(KwdFile kwdFile, Double timeScale) {
+        this.kwdFile = kwdFile;
+        this.timeScale = timeScale;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> params = parseArguments(args);
+        if (params.get("map") == null) {
+            throw new IllegalArgumentException("Please provide the map with -map! Optional parameters are -folder, -name, -port, -ai, -simulate and -timescale.");
+        }
+
+        // The DK II folder, if given, use it for everything
+        String dkIIFolder = params.get("folder");
+        if (dkIIFolder != null) {
+            dkIIFolder = PathUtils.fixFilePath(dkIIFolder);
+            PathUtils.setDKIIFolder(dkIIFolder);
+        } else {
+            dkIIFolder = PathUtils.getDKIIFolder();
+            if (dkIIFolder == null) {
+                throw new IllegalArgumentException("Dungeon Keeper II folder not set, please provide it with -folder!");
+            }
+        }
+
+        DedicatedServer dedicatedServer = new DedicatedServer(loadMap(dkIIFolder, params.get("map")),
+                params.get("timescale") != null ? GameLoopManager.parseTimeScale(params.get("timescale")) : null);
+        if (params.containsKey("simulate")) {
+            dedicatedServer.simulate(Long.parseLong(params.get("simulate")));
+        } else {
+            dedicatedServer.host(params.getOrDefault("name", DEFAULT_NAME),
+                    params.get("port") != null ? Integer.parseInt(params.get("port")) : DEFAULT_PORT,
+                    params.get("ai") != null ? Integer.parseInt(params.get("ai")) : 0);
+        }
+    }
+
+    /**
+     * Parse application parameters, like the {@link Main} does
+     *
+     * @param args the arguments list
+     * @return the parameters and their values
+     */
+    private static Map<String, String> parseArguments(String[] args) {
+        Map<String, String> params = HashMap.newHashMap(args.length);
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("-")) {
+                continue;
+            }
+
+            // If the next parameter doesn't have a "-", it is the value for the param
+            String value = null;
+            if (i + 1 < args.length && !args[i + 1].startsWith("-")) {
+                value = args[i + 1];
+            }
+            params.put(args[i].substring(1).toLowerCase(), value);
+        }
+
+        return params;
+    }
+
+    private static KwdFile loadMap(String dkIIFolder, String map) throws IOException {
+        Path mapFile = Paths.get(map);
+        if (!Files.exists(mapFile)) {
+            mapFile = Paths.get(PathUtils.getRealFileName(dkIIFolder + PathUtils.DKII_MAPS_FOLDER, map + ".kwd"));
+        }
+        if (!Files.exists(mapFile)) {
+            throw new FileNotFoundException(mapFile.toString());
+        }
+
+        return new KwdFile(dkIIFolder, mapFile);
+    }
+
+    /**
+     * Run the level with computer players only, without the network
+     *
+     * @param seconds how long to run the simulation
+     */
+    private void simulate(long seconds) throws InterruptedException {
+        List<Keeper> players = new ArrayList<>();
+        for (int i = 0; i < kwdFile.getGameLevel().getPlayerCount(); i++) {
+            players.add(new Keeper(true, (short) (Player.KEEPER1_ID + i)));
+        }
+
+        long start = System.nanoTime();
+        kwdFile.load();
+        GameLoopManager game = new GameLoopManager(kwdFile, new LocalGameSession(), players);
+        game.setTimeScale(timeScale != null ? timeScale : GameScheduler.UNLIMITED);
+        logger.log(Level.INFO, "Level {0} loaded in {1} ms", kwdFile.getGameLevel().getName(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        start = System.nanoTime();
+        game.start();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+        game.stop();
+
+        long ticks = game.getTick() + 1;
+        long time = System.nanoTime() - start;
+        logger.log(Level.INFO, "Simulated {0} ticks, {1} s of game time, in {2} ms, {3} ticks per second", ticks,
+                ticks / kwdFile.getGameLevel().getTicksPerSec(), TimeUnit.NANOSECONDS.toMillis(time),
+                ticks * 1_000_000_000L / time);
+    }
+
+    /**
+     * Host a network game. The game starts when all the players in the lobby
+     * are ready, and the server shuts down when everybody has left the game.
+     *
+     * @param name the server name
+     * @param port the server port
+     * @param aiPlayers the amount of computer players to add
+     */
+    private void host(String name, int port, int aiPlayers) throws IOException, InterruptedException {
+        if (timeScale != null) {
+
+            // The game is created by the game server state, pass it on
+            System.setProperty(GameLoopManager.TIME_SCALE_PROPERTY, Double.toString(timeScale));
+        }
+
+        logger.log(Level.INFO, "Creating game server {0} at {1}", name, port);
+        server = new NetworkServer(name, port);
+        server.start();
+        server.getServer().addConnectionListener(new ConnectionListenerImpl());
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "DedicatedServerShutdown"));
+
+        LobbyHostedService lobby = server.getService(LobbyHostedService.class);
+        lobby.addLobbySessionListener(new LobbySessionListenerImpl(lobby));
+        lobby.setMap(kwdFile.getGameLevel().getName(), kwdFile.getGameLevel().getPlayerCount());
+        for (int i = 0; i < aiPlayers; i++) {
+            lobby.addPlayer();
+        }
+        logger.log(Level.INFO, "Server started, hosting {0}", kwdFile.getGameLevel().getName());
+
+        shutdown.await();
+        close();
+    }
+
+    private void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+
+        if (gameServerState != null) {
+            gameServerState.detach();
+        }
+        if (server != null) {
+            server.close();
+        }
+        shutdown.countDown();
+        logger.log(Level.INFO, "Server closed.");
+    }
+
+    /**
+     * Starts the game when everybody is ready, does what the hosting player
+     * normally does
+     */
+    private final class LobbySessionListenerImpl implements LobbySessionListener {
+
+        private final LobbyHostedService lobby;
+
+        public LobbySessionListenerImpl(LobbyHostedService lobby) {
+            this.lobby = lobby;
+        }
+
+        @Override
+        public void onPlayerListChanged(List<ClientInfo> players) {
+            boolean humanPlayers = false;
+            for (ClientInfo clientInfo : players) {
+                if (!clientInfo.isReady()) {
+                    return;
+                }
+                humanPlayers |= !clientInfo.getKeeper().isAi();
+            }
+
+            if (humanPlayers && gameStarted.compareAndSet(false, true)) {
+                lobby.startGame();
+            }
+        }
+
+        @Override
+        public void onMapChanged(String mapName) {
+
+        }
+
+        @Override
+        public void onGameStarted(String mapName, List<ClientInfo> players) {
+            logger.log(Level.INFO, "Starting the game with {0} players", players.size());
+            gameServerState = new GameServerState(kwdFile, players.stream().map(ClientInfo::getKeeper).collect(toList()),
+                    false, server.getService(GameHostedService.class));
+
+        }
+
+    }
+
+    /**
+     * Shuts down the server when the last player leaves the game
+     */
+    private final class ConnectionListenerImpl implements ConnectionListener {
+
+        @Override
+        public void connectionAdded(Server server, HostedConnection conn) {
+
+        }
+
+        @Override
+        public void connectionRemoved(Server server, HostedConnection conn) {
+            if (gameStarted.get() && server.getConnections().isEmpty()) {
+                shutdown.countDown();
+            }
+        }
+
+    }
+}
@@ -23,6 +23,7 @@ import com.simsilica.es.EntityComponent;
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
+@ServerLocal
 public final class CreatureHunger implements EntityComponent {
 
     public double lastEatTime;
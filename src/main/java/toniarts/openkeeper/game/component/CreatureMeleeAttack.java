@@ -23,6 +23,7 @@ import toniarts.openkeeper.tools.convert.map.Creature;
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
+@ServerLocal
 public final class CreatureMeleeAttack extends Attack {
 
     public int attackType;
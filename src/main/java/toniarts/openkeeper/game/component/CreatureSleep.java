@@ -24,6 +24,7 @@ import com.simsilica.es.EntityId;
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
+@ServerLocal
 public final class CreatureSleep implements EntityComponent {
 
     public EntityId lairObjectId;
@@ -34,22 +34,32 @@ public final class TaskComponent implements EntityComponent {
     public TaskType taskType;
 
     /**
-     * How long we have contributed to the task
+     * Game time when we started to contribute to the task
      */
-    public float taskDuration;
+    public double taskStartTime;
     public boolean taskStarted;
 
     public TaskComponent() {
         // For serialization
     }
 
-    public TaskComponent(long taskId, EntityId targetEntity, Point targetLocation, TaskType taskType, float taskDuration, boolean taskStarted) {
+    public TaskComponent(long taskId, EntityId targetEntity, Point targetLocation, TaskType taskType, double taskStartTime, boolean taskStarted) {
         this.taskId = taskId;
         this.targetEntity = targetEntity;
         this.targetLocation = targetLocation;
         this.taskType = taskType;
-        this.taskDuration = taskDuration;
+        this.taskStartTime = taskStartTime;
         this.taskStarted = taskStarted;
     }
 
+    /**
+     * How long we have contributed to the task
+     *
+     * @param gameTime the current game time
+     * @return time spent on the task, 0 if not started
+     */
+    public double getTaskDuration(double gameTime) {
+        return taskStarted ? gameTime - taskStartTime : 0;
+    }
+
 }
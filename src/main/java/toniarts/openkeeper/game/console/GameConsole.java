@@ -22,6 +22,7 @@ import de.lessvoid.nifty.controls.ConsoleCommands;
 import de.lessvoid.nifty.controls.ConsoleCommands.ConsoleCommand;
 import de.lessvoid.nifty.tools.Color;
 import toniarts.openkeeper.game.data.Keeper;
+import toniarts.openkeeper.game.navigation.pathfinding.PathFindingMetrics;
 import toniarts.openkeeper.game.state.CheatState;
 import toniarts.openkeeper.game.state.GameClientState;
 import toniarts.openkeeper.game.state.PlayerState;
@@ -49,10 +50,21 @@ public final class GameConsole {
     private enum ParameterCommands {
         ADD_GOLD,
         ADD_MANA,
+        PATH_METRICS,
         SPAWN_CREATURE,
         SPAWN_IMPS;
     };
 
+    /**
+     * Parameters of the path finding metrics command
+     */
+    private enum PathMetricsParameters {
+        ON,
+        OFF,
+        RESET,
+        SHOW;
+    };
+
     /**
      * These commands don't have parameter
      */
@@ -89,6 +101,10 @@ public final class GameConsole {
                 creatures.forEach(creature -> {
                     consoleCommands.registerCommand(parameterCmd.toString().toLowerCase() + " " + creature.getName().toLowerCase().replace(" ", "_"), parameterCommand);
                 });
+            } else if (parameterCmd.equals(ParameterCommands.PATH_METRICS)) {
+                for (PathMetricsParameters parameter : PathMetricsParameters.values()) {
+                    consoleCommands.registerCommand(parameterCmd.toString().toLowerCase() + " " + parameter.toString().toLowerCase(), parameterCommand);
+                }
             } else {
                 consoleCommands.registerCommand(parameterCmd.toString().toLowerCase(), parameterCommand);
             }
@@ -180,6 +196,13 @@ public final class GameConsole {
                         console.outputError("First parameter must be a number!");
                     }
                     break;
+                case PATH_METRICS:
+                    try {
+                        executePathMetrics(PathMetricsParameters.valueOf(args[1].toUpperCase()));
+                    } catch (IllegalArgumentException e) {
+                        console.outputError("Parameter must be one of on, off, reset or show!");
+                    }
+                    break;
                 case SPAWN_IMPS:
                     try {
                         int amount = Integer.parseInt(args[1]);
@@ -217,6 +240,30 @@ public final class GameConsole {
         }
     }
 
+    /**
+     * The path finding runs on the server, so the metrics are only available
+     * when hosting the game
+     */
+    private void executePathMetrics(PathMetricsParameters parameter) {
+        switch (parameter) {
+            case ON:
+                PathFindingMetrics.setEnabled(true);
+                console.output("Path finding metrics enabled", messageOutputColor);
+                break;
+            case OFF:
+                PathFindingMetrics.setEnabled(false);
+                console.output("Path finding metrics disabled", messageOutputColor);
+                break;
+            case RESET:
+                PathFindingMetrics.reset();
+                console.output("Path finding metrics reset", messageOutputColor);
+                break;
+            case SHOW:
+                console.output(PathFindingMetrics.getReport(), messageOutputColor);
+                break;
+        }
+    }
+
     private void spawnImps(final int amount) {
         for (int i = 0; i < amount; i++) {
             spawnImp();
@@ -18,21 +18,17 @@ package toniarts.openkeeper.game.controller;
 
 import com.jme3.math.Vector2f;
 import com.jme3.math.Vector3f;
-import com.simsilica.es.Entity;
 import com.simsilica.es.EntityData;
 import com.simsilica.es.EntityId;
-import com.simsilica.es.EntitySet;
 import com.simsilica.es.filter.FieldFilter;
 import toniarts.openkeeper.utils.Point;
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
-import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
 import java.util.stream.Collectors;
 import toniarts.openkeeper.game.component.CreatureAi;
 import toniarts.openkeeper.game.component.CreatureComponent;
@@ -69,8 +65,10 @@ import toniarts.openkeeper.game.controller.creature.ICreatureController;
 import toniarts.openkeeper.game.controller.creature.IPartyController;
 import toniarts.openkeeper.game.controller.creature.PartyController;
 import toniarts.openkeeper.game.controller.creature.PartyType;
+import toniarts.openkeeper.game.controller.entity.EntityControllerRegistry;
 import toniarts.openkeeper.game.controller.room.AbstractRoomController;
 import toniarts.openkeeper.game.controller.room.IRoomController;
+import toniarts.openkeeper.game.logic.IGameLogicUpdatable;
 import toniarts.openkeeper.tools.convert.map.Creature;
 import toniarts.openkeeper.tools.convert.map.KwdFile;
 import toniarts.openkeeper.tools.convert.map.Player;
@@ -86,7 +84,7 @@ import toniarts.openkeeper.utils.WorldUtils;
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
-public final class CreaturesController implements ICreaturesController {
+public final class CreaturesController implements ICreaturesController, IGameLogicUpdatable {
     
     private static final Logger logger = System.getLogger(CreaturesController.class.getName());
 
@@ -106,10 +104,9 @@ public final class CreaturesController implements ICreaturesController {
      * I don't know how to design this perfectly in the entity world, we have
      * the state machine running inside an CreatureController. That is probably
      * wrong (should be inside a system instead). But while it is in there, we
-     * should share the instances for it to function properly.<br>
-     * The value needs to be weak reference also since it references the key
+     * should share the instances for it to function properly
      */
-    private final Map<EntityId, WeakReference<ICreatureController>> creatureControllersByEntityId = new WeakHashMap<>();
+    private final EntityControllerRegistry<ICreatureController> creatureControllers;
     private final IGameTimer gameTimer;
     private final IGameController gameController;
     private final IMapController mapController;
@@ -137,6 +134,7 @@ public final class CreaturesController implements ICreaturesController {
         this.gameController = gameController;
         this.mapController = mapController;
         this.levelInfo = levelInfo;
+        this.creatureControllers = new EntityControllerRegistry<>(entityData, CreatureComponent.class, this::createCreatureController);
 
         // Load creatures
         loadCreatures();
@@ -410,10 +408,9 @@ public final class CreaturesController implements ICreaturesController {
     @Override
     public void levelUpCreatures(short playerId, int level) {
 
-        // Find all the living creatures of the wanted player
-        EntitySet entities = entityData.getEntities(new FieldFilter<>(Owner.class, "ownerId", playerId), Owner.class, CreatureComponent.class, Health.class);
-        for (Entity entity : entities) {
-            levelUpCreature(entity.getId(), level, 0);
+        // Find all the living creatures of the wanted player, a one off query, no need to keep an entity set open
+        for (EntityId entityId : entityData.findEntities(new FieldFilter<>(Owner.class, "ownerId", playerId), Owner.class, CreatureComponent.class, Health.class)) {
+            levelUpCreature(entityId, level, 0);
         }
     }
 
@@ -545,25 +542,16 @@ public final class CreaturesController implements ICreaturesController {
 
     @Override
     public ICreatureController createController(EntityId entityId) {
-        CreatureComponent creatureComponent = entityData.getComponent(entityId, CreatureComponent.class);
-        if (creatureComponent == null) {
-            throw new RuntimeException("Entity " + entityId + " doesn't represent a creature!");
-        }
-        ICreatureController creatureController = creatureControllersByEntityId.computeIfAbsent(entityId, (id) -> {
-            return new WeakReference<>(createCreatureController(id, creatureComponent));
-        }).get();
-
-        // Hmm, the entity IDs seem to be referenced somewhere, they outlast the controllers
-        // So maybe this is all very unnecessary...
+        ICreatureController creatureController = creatureControllers.get(entityId);
         if (creatureController == null) {
-            creatureController = createCreatureController(entityId, creatureComponent);
-            creatureControllersByEntityId.put(entityId, new WeakReference<>(creatureController));
+            throw new RuntimeException("Entity " + entityId + " doesn't represent a creature!");
         }
 
         return creatureController;
     }
 
-    private ICreatureController createCreatureController(EntityId id, CreatureComponent creatureComponent) {
+    private ICreatureController createCreatureController(EntityId id) {
+        CreatureComponent creatureComponent = entityData.getComponent(id, CreatureComponent.class);
         return new CreatureController(id, entityData, kwdFile.getCreature(creatureComponent.creatureId), gameController.getNavigationService(), gameController.getTaskManager(), gameTimer, gameSettings, this, gameController.getEntityLookupService(), mapController, levelInfo, gameController.getGameWorldController().getObjectsController(), gameController.getGameWorldController().getShotsController());
     }
 
@@ -572,6 +560,21 @@ public final class CreaturesController implements ICreaturesController {
         return entityData.getComponent(entityId, CreatureComponent.class) != null;
     }
 
+    @Override
+    public void start() {
+
+    }
+
+    @Override
+    public void stop() {
+        creatureControllers.release();
+    }
+
+    @Override
+    public void processTick(float tpf) {
+        creatureControllers.update();
+    }
+
     @Override
     public void turnCreatureIntoAnother(EntityId entityId, short playerId, short creatureId) {
 
@@ -34,6 +34,8 @@ import toniarts.openkeeper.game.component.TrapComponent;
 import toniarts.openkeeper.game.component.Trigger;
 import toniarts.openkeeper.game.controller.door.DoorController;
 import toniarts.openkeeper.game.controller.door.IDoorController;
+import toniarts.openkeeper.game.controller.entity.EntityControllerRegistry;
+import toniarts.openkeeper.game.logic.IGameLogicUpdatable;
 import toniarts.openkeeper.game.map.IMapTileInformation;
 import toniarts.openkeeper.tools.convert.map.Door;
 import toniarts.openkeeper.tools.convert.map.KwdFile;
@@ -50,7 +52,7 @@ import toniarts.openkeeper.view.map.MapViewController;
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
-public final class DoorsController implements IDoorsController {
+public final class DoorsController implements IDoorsController, IGameLogicUpdatable {
     
     private static final Logger logger = System.getLogger(DoorsController.class.getName());
 
@@ -60,6 +62,7 @@ public final class DoorsController implements IDoorsController {
     private IMapController mapController;
     private IGameController gameController;
     private ILevelInfo levelInfo;
+    private EntityControllerRegistry<IDoorController> doorControllers;
 
     public DoorsController() {
         // For serialization
@@ -83,6 +86,7 @@ public final class DoorsController implements IDoorsController {
         this.mapController = mapController;
         this.gameController = gameController;
         this.levelInfo = levelInfo;
+        this.doorControllers = new EntityControllerRegistry<>(entityData, DoorComponent.class, this::createDoorController);
 
         // Load doors
         loadDoors();
@@ -158,10 +162,16 @@ public final class DoorsController implements IDoorsController {
 
     @Override
     public IDoorController createController(EntityId entityId) {
-        DoorComponent doorComponent = entityData.getComponent(entityId, DoorComponent.class);
-        if (doorComponent == null) {
+        IDoorController doorController = doorControllers.get(entityId);
+        if (doorController == null) {
             throw new RuntimeException("Entity " + entityId + " doesn't represent a door!");
         }
+
+        return doorController;
+    }
+
+    private IDoorController createDoorController(EntityId entityId) {
+        DoorComponent doorComponent = entityData.getComponent(entityId, DoorComponent.class);
         return new DoorController(entityId, entityData, kwdFile.getDoorById(doorComponent.doorId), gameController.getGameWorldController().getObjectsController(), gameController.getGameWorldController().getMapController()
         );
     }
@@ -171,4 +181,19 @@ public final class DoorsController implements IDoorsController {
         return entityData.getComponent(entityId, DoorComponent.class) != null;
     }
 
+    @Override
+    public void start() {
+
+    }
+
+    @Override
+    public void stop() {
+        doorControllers.release();
+    }
+
+    @Override
+    public void processTick(float tpf) {
+        doorControllers.update();
+    }
+
 }
@@ -78,8 +78,10 @@ public final class GameController implements IGameLogicUpdatable, IGameControlle
     private GameWorldController gameWorldController;
     private INavigationService navigationService;
     private PositionSystem positionSystem;
+    private VisibilitySystem visibilitySystem;
 
     private GameResult gameResult = null;
+    private long tick = -1;
     private TaskManager taskManager;
 
     /**
@@ -123,15 +125,23 @@ public final class GameController implements IGameLogicUpdatable, IGameControlle
                 gameWorldController.getCreaturesController(), gameWorldController.getDoorsController(),
                 gameWorldController.getObjectsController());
         gameWorldController.setEntityPositionLookup(positionSystem);
+        visibilitySystem = new VisibilitySystem(gameWorldController.getMapController(), entityData, positionSystem);
 
         // Navigation
-        navigationService = new NavigationService(gameWorldController.getMapController(), positionSystem);
+        NavigationService navigation = new NavigationService(gameWorldController.getMapController(), positionSystem);
+        navigationService = navigation;
 
         // Initialize tasks
         taskManager = new TaskManager(entityData, gameWorldController, gameWorldController.getMapController(),
                 gameWorldController.getObjectsController(), gameWorldController.getCreaturesController(),
                 navigationService, playerControllers.values(), levelInfo, positionSystem, gameSettings);
 
+        // The entity controllers
+        controllers.add((IGameLogicUpdatable) gameWorldController.getCreaturesController());
+        controllers.add((IGameLogicUpdatable) gameWorldController.getDoorsController());
+        controllers.add((IGameLogicUpdatable) gameWorldController.getObjectsController());
+        controllers.add((IGameLogicUpdatable) gameWorldController.getTrapsController());
+
         // The triggers
         controllers.add(new PartyTriggerLogicController(this, levelInfo, gameTimer,
                 gameWorldController.getMapController(), gameWorldController.getCreaturesController()));
@@ -152,6 +162,8 @@ public final class GameController implements IGameLogicUpdatable, IGameControlle
                 playerService));
         controllers.add(gameTimer);
         controllers.add(positionSystem);
+        controllers.add(visibilitySystem);
+        controllers.add(navigation);
 
         int triggerId = levelInfo.kwdFile.getGameLevel().getTriggerId();
         if (triggerId != 0) {
@@ -262,6 +274,12 @@ public final class GameController implements IGameLogicUpdatable, IGameControlle
 
     @Override
     public void processTick(float tpf) {
+        processTick(tpf, tick + 1);
+    }
+
+    @Override
+    public void processTick(float tpf, long tick) {
+        this.tick = tick;
 
         // Update time for AI
         GdxAI.getTimepiece().update(tpf);
@@ -285,7 +303,7 @@ public final class GameController implements IGameLogicUpdatable, IGameControlle
             triggerControl.update(tpf);
         }
 
-        controllers.stream().forEach(controller -> controller.processTick(tpf));
+        controllers.stream().forEach(controller -> controller.processTick(tpf, tick));
 
         if (levelInfo.timeLimit != null && levelInfo.timeLimit <= 0) {
             //TODO:
@@ -414,6 +432,11 @@ public final class GameController implements IGameLogicUpdatable, IGameControlle
         return positionSystem;
     }
 
+    @Override
+    public IVisibilityLookup getVisibilityLookup() {
+        return visibilitySystem;
+    }
+
     @Override
     public ILevelInfo getLevelInfo() {
         return levelInfo;
@@ -19,17 +19,19 @@ package toniarts.openkeeper.game.controller;
 import toniarts.openkeeper.utils.GameTimeCounter;
 
 /**
+ * The game clock. The game time is counted from the tick number given by the
+ * game loop, one nominal step per tick, so it doesn't drift from the ticks and
+ * doesn't care how fast the ticks are actually run in real time.
  *
  * @author ArchDemon
  */
 public final class GameTimeController extends GameTimeCounter implements IGameTimer {
 
-    private long ticks;
+    private long tick = -1;
 
     @Override
     public void start() {
-        ticks = 0;
-        timeElapsed = 0.0;
+        // nope
     }
 
     @Override
@@ -39,8 +41,24 @@ public final class GameTimeController extends GameTimeCounter implements IGameTi
 
     @Override
     public void processTick(float tpf) {
-        super.processTick(tpf);
-        ticks++;
+        processTick(tpf, tick + 1);
+    }
+
+    @Override
+    public void processTick(float tpf, long tick) {
+        this.tick = tick;
+
+        // Multiply instead of summing up, the rounding errors would add up over hours of game time
+        timeElapsed = getTicks() * (double) tpf;
+    }
+
+    /**
+     * Get the amount of game logic ticks processed
+     *
+     * @return the ticks
+     */
+    public long getTicks() {
+        return tick + 1;
     }
 
     @Override
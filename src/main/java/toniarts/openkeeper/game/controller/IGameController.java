@@ -21,6 +21,7 @@ import java.util.Collection;
 import java.util.Map;
 import toniarts.openkeeper.game.data.GameResult;
 import toniarts.openkeeper.game.logic.IEntityPositionLookup;
+import toniarts.openkeeper.game.logic.IVisibilityLookup;
 import toniarts.openkeeper.game.navigation.INavigationService;
 import toniarts.openkeeper.game.task.ITaskManager;
 import toniarts.openkeeper.tools.convert.map.Variable;
@@ -72,6 +73,8 @@ public interface IGameController {
 
     public IEntityPositionLookup getEntityLookupService();
 
+    public IVisibilityLookup getVisibilityLookup();
+
     public IGameWorldController getGameWorldController();
 
     /**
@@ -12,6 +12,7 @@ import toniarts.openkeeper.game.controller.room.AbstractRoomController;
 import toniarts.openkeeper.game.controller.room.IRoomController;
 import toniarts.openkeeper.game.listener.MapListener;
 import toniarts.openkeeper.game.listener.RoomListener;
+import toniarts.openkeeper.game.listener.TerrainChangeListener;
 import toniarts.openkeeper.game.logic.IGameLogicUpdatable;
 import toniarts.openkeeper.game.map.IMapInformation;
 import toniarts.openkeeper.game.map.IMapTileController;
@@ -68,6 +69,21 @@ public interface IMapController extends IMapInformation<IMapTileController>, IGa
      */
     public void removeListener(short playerId, RoomListener listener);
 
+    /**
+     * If you want to get notified about changes that affect the map
+     * traversal. This is server side only
+     *
+     * @param listener the listener
+     */
+    public void addListener(TerrainChangeListener listener);
+
+    /**
+     * Stop listening to terrain changes
+     *
+     * @param listener the listener
+     */
+    public void removeListener(TerrainChangeListener listener);
+
     /**
      * Get all the room controllers. FIXME: At least with the current design,
      * the clients do not have this data, so either separate interface or design
@@ -30,13 +30,13 @@ import toniarts.openkeeper.game.controller.room.IRoomController;
 import toniarts.openkeeper.game.data.Keeper;
 import toniarts.openkeeper.game.listener.MapListener;
 import toniarts.openkeeper.game.listener.RoomListener;
+import toniarts.openkeeper.game.listener.TerrainChangeListener;
 import toniarts.openkeeper.game.map.IMapData;
 import toniarts.openkeeper.game.map.IMapInformation;
 import toniarts.openkeeper.game.map.IMapTileController;
 import toniarts.openkeeper.game.map.IMapTileInformation;
 import toniarts.openkeeper.game.map.MapData;
 import toniarts.openkeeper.game.map.MapInformation;
-import toniarts.openkeeper.game.map.MapTileController;
 import toniarts.openkeeper.tools.convert.map.KwdFile;
 import toniarts.openkeeper.tools.convert.map.Player;
 import toniarts.openkeeper.tools.convert.map.Terrain;
@@ -44,7 +44,9 @@ import toniarts.openkeeper.tools.convert.map.Variable;
 import toniarts.openkeeper.utils.Point;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -68,8 +70,19 @@ public final class MapController extends Container implements IMapController {
     private final ILevelInfo levelInfo;
 
     private final Map<EntityId, IRoomController> roomControllers = new HashMap<>();
+    /**
+     * The rooms by their functions and owners. A room controller never changes
+     * its functions, but capturing changes its owner, so the room is filed
+     * again when captured
+     */
+    private final Map<ObjectType, Map<Short, List<IRoomController>>> roomControllersByFunction = new EnumMap<>(ObjectType.class);
+    /**
+     * The owner the room is filed under in {@link #roomControllersByFunction}
+     */
+    private final Map<EntityId, Short> roomFunctionOwners = new HashMap<>();
     private final SafeArrayList<MapListener> mapListeners = new SafeArrayList<>(MapListener.class);
     private final Map<Short, SafeArrayList<RoomListener>> roomListeners = new HashMap<>();
+    private final SafeArrayList<TerrainChangeListener> terrainListeners = new SafeArrayList<>(TerrainChangeListener.class);
 
     /**
      * Load map data from a KWD file straight (new game)
@@ -138,6 +151,7 @@ public final class MapController extends Container implements IMapController {
         IRoomController roomController = RoomControllerFactory.constructRoom(entityData, kwdFile, roomInstance, objectsController, gameSettings, gameTimer);
         roomController.construct();
         roomControllers.put(roomController.getEntityId(), roomController);
+        addRoomFunctions(roomController);
 
         // Set the room instance to the tiles
         for (Point roomCoordinate : roomInstance.getCoordinates()) {
@@ -225,6 +239,16 @@ public final class MapController extends Container implements IMapController {
         roomListeners.put(playerId, listeners);
     }
 
+    @Override
+    public void addListener(TerrainChangeListener listener) {
+        terrainListeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(TerrainChangeListener listener) {
+        terrainListeners.remove(listener);
+    }
+
     private void notifyOnBuild(short playerId, IRoomController room) {
         if (roomListeners != null && roomListeners.containsKey(playerId)) {
             for (RoomListener listener : roomListeners.get(playerId)) {
@@ -333,6 +357,16 @@ public final class MapController extends Container implements IMapController {
         }
     }
 
+    private void notifyTerrainChange(Point changedTile) {
+        notifyTerrainChange(List.of(changedTile));
+    }
+
+    private void notifyTerrainChange(Collection<Point> changedTiles) {
+        for (TerrainChangeListener listener : terrainListeners.getArray()) {
+            listener.onTerrainChange(changedTiles);
+        }
+    }
+
     @Override
     public Collection<IRoomController> getRoomControllers() {
         return roomControllers.values();
@@ -359,6 +393,7 @@ public final class MapController extends Container implements IMapController {
 
             // Signal the room
             IRoomController roomController = roomControllers.remove(instance);
+            removeRoomFunctions(roomController);
             roomController.remove();
 
             for (Point roomCoordinate : roomController.getRoomInstance().getCoordinates()) {
@@ -379,23 +414,54 @@ public final class MapController extends Container implements IMapController {
         }
     }
 
+    private void addRoomFunctions(IRoomController roomController) {
+        short owner = roomController.getOwnerId();
+        roomFunctionOwners.put(roomController.getEntityId(), owner);
+        for (ObjectType objectType : ObjectType.values()) {
+            if (roomController.hasObjectControl(objectType)) {
+                roomControllersByFunction.computeIfAbsent(objectType, (type) -> new HashMap<>())
+                        .computeIfAbsent(owner, (ownerId) -> new ArrayList<>())
+                        .add(roomController);
+            }
+        }
+    }
+
+    private void removeRoomFunctions(IRoomController roomController) {
+        Short owner = roomFunctionOwners.remove(roomController.getEntityId());
+        if (owner == null) {
+            return;
+        }
+
+        for (Map<Short, List<IRoomController>> roomsByOwner : roomControllersByFunction.values()) {
+            List<IRoomController> rooms = roomsByOwner.get(owner);
+            if (rooms != null) {
+                rooms.remove(roomController);
+            }
+        }
+    }
+
     /**
-     * Get rooms by function.<br> FIXME: Should the player have ready lists?
+     * Get rooms by function
      *
      * @param objectType the function
      * @param playerId the player id, can be null
-     * @return list of rooms that match the criteria
+     * @return list of rooms that match the criteria, a copy
      */
     @Override
     public List<IRoomController> getRoomsByFunction(ObjectType objectType, Short playerId) {
+        Map<Short, List<IRoomController>> roomsByOwner = roomControllersByFunction.get(objectType);
+        if (roomsByOwner == null) {
+            return new ArrayList<>();
+        }
+
+        if (playerId != null) {
+            List<IRoomController> rooms = roomsByOwner.get(playerId);
+            return rooms != null ? new ArrayList<>(rooms) : new ArrayList<>();
+        }
+
         List<IRoomController> roomsList = new ArrayList<>();
-        for (Map.Entry<EntityId, IRoomController> entry : roomControllers.entrySet()) {
-            if (playerId != null && entry.getValue().getOwnerId() != playerId) {
-                continue;
-            }
-            if (entry.getValue().hasObjectControl(objectType)) {
-                roomsList.add(entry.getValue());
-            }
+        for (List<IRoomController> rooms : roomsByOwner.values()) {
+            roomsList.addAll(rooms);
         }
 
         return roomsList;
@@ -406,6 +472,9 @@ public final class MapController extends Container implements IMapController {
         for (Point p : coordinates) {
             loadRoom(p);
         }
+
+        // The rooms are built, sold and merged through here, the coordinates cover all the affected tiles
+        notifyTerrainChange(Arrays.asList(coordinates));
     }
 
     @Override
@@ -517,6 +586,7 @@ public final class MapController extends Container implements IMapController {
             // Notify
 //            notifyTileChange(point);
             // Notify
+            notifyTerrainChange(tile.getLocation());
             notifyTileChange(tile.getLocation());
 
         } else if (terrain.getFlags().contains(Terrain.TerrainFlag.DECAY)) {
@@ -581,6 +651,7 @@ public final class MapController extends Container implements IMapController {
             // Notify
 //            notifyTileChange(point);
             // Notify
+            notifyTerrainChange(tile.getLocation());
             notifyTileChange(tile.getLocation());
         } else if (terrain.getFlags().contains(Terrain.TerrainFlag.DECAY)) {
 //            mapLoader.updateTiles(point);
@@ -635,8 +706,11 @@ public final class MapController extends Container implements IMapController {
                 }
 
                 // Notify
+                notifyTerrainChange(roomTiles);
                 notifyTileChange(roomTiles);
+                removeRoomFunctions(room);
                 room.captured(playerId);
+                addRoomFunctions(room);
                 room.setHealth(room.getMaxHealth());
                 notifyOnCapturedByEnemy(owner, room);
                 notifyOnCaptured(playerId, room);
@@ -667,7 +741,7 @@ public final class MapController extends Container implements IMapController {
     private void changeTerrain(IMapTileController tile, short terrainId) {
         tile.setTerrainId(terrainId);
         Terrain terrain = getTerrain(tile);
-        MapTileController.setAttributesFromTerrain(entityData, tile, terrain);
+        tile.setAttributesFromTerrain(terrain);
 
         // If the terrain is not taggable anymore, reset the tagging data
         if (!terrain.getFlags().contains(Terrain.TerrainFlag.TAGGABLE)) {
@@ -693,6 +767,7 @@ public final class MapController extends Container implements IMapController {
             tile.setOwnerId(playerId);
         }
 
+        notifyTerrainChange(tile.getLocation());
         notifyTileChange(tile.getLocation());
     }
 
@@ -758,6 +833,10 @@ public final class MapController extends Container implements IMapController {
 
     @Override
     public void processTick(float tpf) {
+
+        // The tile changes of the previous tick, before anybody reads the entities
+        mapData.publishChanges();
+
         this.update(tpf);
     }
 
@@ -22,9 +22,7 @@ import com.simsilica.es.EntityData;
 import com.simsilica.es.EntityId;
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
-import java.lang.ref.WeakReference;
 import java.util.Map;
-import java.util.WeakHashMap;
 import toniarts.openkeeper.game.component.ChickenAi;
 import toniarts.openkeeper.game.component.Decay;
 import toniarts.openkeeper.game.component.Food;
@@ -44,6 +42,7 @@ import toniarts.openkeeper.game.component.Trigger;
 import toniarts.openkeeper.game.controller.chicken.ChickenController;
 import toniarts.openkeeper.game.controller.chicken.ChickenState;
 import toniarts.openkeeper.game.controller.chicken.IChickenController;
+import toniarts.openkeeper.game.controller.entity.EntityControllerRegistry;
 import toniarts.openkeeper.game.controller.object.IObjectController;
 import toniarts.openkeeper.game.controller.object.ObjectController;
 import toniarts.openkeeper.game.controller.room.AbstractRoomController;
@@ -52,6 +51,7 @@ import static toniarts.openkeeper.game.controller.room.FiveByFiveRotatedControll
 import toniarts.openkeeper.game.controller.room.TempleController;
 import toniarts.openkeeper.game.data.ResearchableEntity;
 import toniarts.openkeeper.game.data.ResearchableType;
+import toniarts.openkeeper.game.logic.IGameLogicUpdatable;
 import toniarts.openkeeper.tools.convert.map.GameObject;
 import toniarts.openkeeper.tools.convert.map.KwdFile;
 import toniarts.openkeeper.tools.convert.map.Thing;
@@ -66,7 +66,7 @@ import toniarts.openkeeper.utils.WorldUtils;
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
-public final class ObjectsController implements IObjectsController {
+public final class ObjectsController implements IObjectsController, IGameLogicUpdatable {
 
     private static final Logger logger = System.getLogger(ObjectsController.class.getName());
     
@@ -89,15 +89,15 @@ public final class ObjectsController implements IObjectsController {
     private IGameTimer gameTimer;
     private IGameController gameController;
     private ILevelInfo levelInfo;
+    private EntityControllerRegistry<IObjectController> objectControllers;
 
     /**
      * I don't know how to design this perfectly in the entity world, we have
      * the state machine running inside an CreatureController. That is probably
      * wrong (should be inside a system instead). But while it is in there, we
-     * should share the instances for it to function properly.<br>
-     * The value needs to be weak reference also since it references the key
+     * should share the instances for it to function properly
      */
-    private final Map<EntityId, WeakReference<IChickenController>> chickenControllersByEntityId = new WeakHashMap<>();
+    private EntityControllerRegistry<IChickenController> chickenControllers;
 
     public ObjectsController() {
         // For serialization
@@ -121,6 +121,8 @@ public final class ObjectsController implements IObjectsController {
         this.gameTimer = gameTimer;
         this.gameController = gameController;
         this.levelInfo = levelInfo;
+        this.objectControllers = new EntityControllerRegistry<>(entityData, ObjectComponent.class, this::createObjectController);
+        this.chickenControllers = new EntityControllerRegistry<>(entityData, ChickenAi.class, this::createChickenControllerInternal);
 
         // Load objects
         loadObjects();
@@ -265,10 +267,16 @@ public final class ObjectsController implements IObjectsController {
 
     @Override
     public IObjectController createController(EntityId entityId) {
-        ObjectComponent objectComponent = entityData.getComponent(entityId, ObjectComponent.class);
-        if (objectComponent == null) {
+        IObjectController objectController = objectControllers.get(entityId);
+        if (objectController == null) {
             throw new RuntimeException("Entity " + entityId + " doesn't represent a object!");
         }
+
+        return objectController;
+    }
+
+    private IObjectController createObjectController(EntityId entityId) {
+        ObjectComponent objectComponent = entityData.getComponent(entityId, ObjectComponent.class);
         return new ObjectController(entityId, entityData, kwdFile.getObject(objectComponent.objectId), this, gameController.getGameWorldController().getMapController());
     }
 
@@ -277,6 +285,23 @@ public final class ObjectsController implements IObjectsController {
         return entityData.getComponent(entityId, ObjectComponent.class) != null;
     }
 
+    @Override
+    public void start() {
+
+    }
+
+    @Override
+    public void stop() {
+        objectControllers.release();
+        chickenControllers.release();
+    }
+
+    @Override
+    public void processTick(float tpf) {
+        objectControllers.update();
+        chickenControllers.update();
+    }
+
     @Override
     public EntityId spawnChicken(short ownerId, Vector3f pos) {
 
@@ -305,21 +330,16 @@ public final class ObjectsController implements IObjectsController {
         Owner owner = entityData.getComponent(entityId, Owner.class);
         Position position = entityData.getComponent(entityId, Position.class);
         loadObject(entityId, OBJECT_CHICKEN_ID, owner.ownerId, position.position, position.rotation, null, null, null, null, null);
+
+        // Same entity, different object
+        objectControllers.invalidate(entityId);
     }
 
     @Override
     public IChickenController createChickenController(EntityId entityId) {
-        ChickenAi chickenAi = entityData.getComponent(entityId, ChickenAi.class);
-        if (chickenAi == null) {
-            throw new RuntimeException("Entity " + entityId + " doesn't represent a chicken!");
-        }
-        IChickenController chickenController = chickenControllersByEntityId.computeIfAbsent(entityId, (id) -> {
-            return new WeakReference<>(createChickenControllerInternal(id));
-        }).get();
-
+        IChickenController chickenController = chickenControllers.get(entityId);
         if (chickenController == null) {
-            chickenController = createChickenControllerInternal(entityId);
-            chickenControllersByEntityId.put(entityId, new WeakReference<>(chickenController));
+            throw new RuntimeException("Entity " + entityId + " doesn't represent a chicken!");
         }
 
         return chickenController;
@@ -30,8 +30,10 @@ import toniarts.openkeeper.game.component.Regeneration;
 import toniarts.openkeeper.game.component.Threat;
 import toniarts.openkeeper.game.component.TrapComponent;
 import toniarts.openkeeper.game.component.TrapViewState;
+import toniarts.openkeeper.game.controller.entity.EntityControllerRegistry;
 import toniarts.openkeeper.game.controller.trap.ITrapController;
 import toniarts.openkeeper.game.controller.trap.TrapController;
+import toniarts.openkeeper.game.logic.IGameLogicUpdatable;
 import toniarts.openkeeper.tools.convert.map.KwdFile;
 import toniarts.openkeeper.tools.convert.map.Thing;
 import toniarts.openkeeper.tools.convert.map.Trap;
@@ -45,7 +47,7 @@ import toniarts.openkeeper.utils.WorldUtils;
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
-public final class TrapsController implements ITrapsController {
+public final class TrapsController implements ITrapsController, IGameLogicUpdatable {
     
     private static final Logger logger = System.getLogger(TrapsController.class.getName());
 
@@ -54,6 +56,7 @@ public final class TrapsController implements ITrapsController {
     private Map<Variable.MiscVariable.MiscType, Variable.MiscVariable> gameSettings;
     private IGameController gameController;
     private ILevelInfo levelInfo;
+    private EntityControllerRegistry<ITrapController> trapControllers;
 
     public TrapsController() {
         // For serialization
@@ -75,6 +78,7 @@ public final class TrapsController implements ITrapsController {
         this.gameSettings = gameSettings;
         this.gameController = gameController;
         this.levelInfo = levelInfo;
+        this.trapControllers = new EntityControllerRegistry<>(entityData, TrapComponent.class, this::createTrapController);
 
         // Load traps
         loadTraps();
@@ -131,10 +135,16 @@ public final class TrapsController implements ITrapsController {
 
     @Override
     public ITrapController createController(EntityId entityId) {
-        TrapComponent trapComponent = entityData.getComponent(entityId, TrapComponent.class);
-        if (trapComponent == null) {
+        ITrapController trapController = trapControllers.get(entityId);
+        if (trapController == null) {
             throw new RuntimeException("Entity " + entityId + " doesn't represent a trap!");
         }
+
+        return trapController;
+    }
+
+    private ITrapController createTrapController(EntityId entityId) {
+        TrapComponent trapComponent = entityData.getComponent(entityId, TrapComponent.class);
         return new TrapController(entityId, entityData, kwdFile.getTrapById(trapComponent.trapId), gameController.getGameWorldController().getObjectsController(), gameController.getGameWorldController().getMapController());
     }
 
@@ -143,4 +153,19 @@ public final class TrapsController implements ITrapsController {
         return entityData.getComponent(entityId, TrapComponent.class) != null;
     }
 
+    @Override
+    public void start() {
+
+    }
+
+    @Override
+    public void stop() {
+        trapControllers.release();
+    }
+
+    @Override
+    public void processTick(float tpf) {
+        trapControllers.update();
+    }
+
 }
@@ -24,6 +24,7 @@ import com.simsilica.es.EntityId;
 import toniarts.openkeeper.utils.Point;
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
+import java.util.concurrent.CompletableFuture;
 import toniarts.openkeeper.game.component.ChickenAi;
 import toniarts.openkeeper.game.component.Mobile;
 import toniarts.openkeeper.game.component.Navigation;
@@ -58,6 +59,7 @@ public final class ChickenController extends EntityController implements IChicke
     private final GameObject chickenObject;
     private final StateMachine<IChickenController, ChickenState> stateMachine;
     private float motionless = 0;
+    private CompletableFuture<GraphPath<IMapTileInformation>> pendingNavigation;
 
     public ChickenController(EntityId entityId, EntityData entityData, GameObject eggObject, GameObject chickenObject,
             INavigationService navigationService, IGameTimer gameTimer, IObjectsController objectsController,
@@ -107,17 +109,32 @@ public final class ChickenController extends EntityController implements IChicke
 
     @Override
     public boolean isStopped() {
-        return entityData.getComponent(entityId, Navigation.class) == null;
+        return pendingNavigation == null && entityData.getComponent(entityId, Navigation.class) == null;
     }
 
-    private boolean createNavigation(Point currentLocation, Point destination, Point faceTarget) {
-        GraphPath<IMapTileInformation> path = navigationService.findPath(currentLocation, destination, this);
-        if (path == null) {
-            logger.log(Level.WARNING, "No path from {0} to {1}", new Object[]{getChickenCoordinates(), destination});
-            return true;
+    private void createNavigation(Point currentLocation, Point destination, Point faceTarget) {
+        if (pendingNavigation != null) {
+            pendingNavigation.cancel(false);
         }
-        entityData.setComponent(entityId, new Navigation(destination, faceTarget, SteeringUtils.pathToList(path)));
-        return false;
+
+        // The search might take a few ticks if there are a lot of them
+        CompletableFuture<GraphPath<IMapTileInformation>> search = navigationService.schedulePathSearch(currentLocation, destination, this);
+        pendingNavigation = search;
+        search.whenComplete((path, e) -> {
+            if (pendingNavigation != search) {
+                return; // Cancelled
+            }
+            pendingNavigation = null;
+            if (e != null || entityData.getComponent(entityId, Position.class) == null) {
+                return;
+            }
+
+            if (path == null) {
+                logger.log(Level.WARNING, "No path from {0} to {1}", new Object[]{getChickenCoordinates(), destination});
+                return;
+            }
+            entityData.setComponent(entityId, new Navigation(destination, faceTarget, SteeringUtils.pathToList(navigationService.simplifyPath(path, this))));
+        });
     }
 
     @Override
@@ -52,6 +52,7 @@ import toniarts.openkeeper.game.component.Party;
 import toniarts.openkeeper.game.component.PlayerObjective;
 import toniarts.openkeeper.game.component.PortalGem;
 import toniarts.openkeeper.game.component.Position;
+import toniarts.openkeeper.game.component.Senses;
 import toniarts.openkeeper.game.component.Possessed;
 import toniarts.openkeeper.game.component.Slapped;
 import toniarts.openkeeper.game.component.Stored;
@@ -74,6 +75,7 @@ import toniarts.openkeeper.game.data.ObjectiveType;
 import toniarts.openkeeper.game.logic.IEntityPositionLookup;
 import toniarts.openkeeper.game.map.IMapTileInformation;
 import toniarts.openkeeper.game.navigation.INavigationService;
+import toniarts.openkeeper.game.navigation.PathStatus;
 import toniarts.openkeeper.game.navigation.steering.SteeringUtils;
 import toniarts.openkeeper.game.task.ITaskManager;
 import toniarts.openkeeper.game.task.Task;
@@ -94,6 +96,8 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 /**
@@ -118,6 +122,9 @@ public final class CreatureController extends EntityController implements ICreat
     private final Creature creature;
     private final StateMachine<ICreatureController, CreatureState> stateMachine;
     private float motionless = 0;
+    private boolean waitedForPathCheck = false;
+    private CompletableFuture<GraphPath<IMapTileInformation>> pendingNavigation;
+    private Point pendingDestination;
 
     public CreatureController(EntityId entityId, EntityData entityData, Creature creature, INavigationService navigationService,
             ITaskManager taskManager, IGameTimer gameTimer, Map<Variable.MiscVariable.MiscType, Variable.MiscVariable> gameSettings,
@@ -412,10 +419,11 @@ public final class CreatureController extends EntityController implements ICreat
     public void executeAssignedTask() {
         TaskComponent taskComponent = entityData.getComponent(entityId, TaskComponent.class);
         if (!taskComponent.taskStarted) {
-            entityData.setComponent(entityId, new TaskComponent(taskComponent.taskId, taskComponent.targetEntity, taskComponent.targetLocation, taskComponent.taskType, taskComponent.taskDuration, true));
+            taskComponent = new TaskComponent(taskComponent.taskId, taskComponent.targetEntity, taskComponent.targetLocation, taskComponent.taskType, gameTimer.getGameTime(), true);
+            entityData.setComponent(entityId, taskComponent);
         }
         if (isAssignedTaskValid()) {
-            getAssignedTask().executeTask(this, taskComponent.taskDuration);
+            getAssignedTask().executeTask(this, (float) taskComponent.getTaskDuration(gameTimer.getGameTime()));
         }
     }
 
@@ -438,7 +446,9 @@ public final class CreatureController extends EntityController implements ICreat
 
     @Override
     public boolean isStopped() {
-        return entityData.getComponent(entityId, Navigation.class) == null;
+
+        // Waiting for the path counts as moving, otherwise the AI would think we are there already
+        return pendingNavigation == null && entityData.getComponent(entityId, Navigation.class) == null;
     }
 
     @Override
@@ -457,14 +467,43 @@ public final class CreatureController extends EntityController implements ICreat
         }
     }
 
-    private boolean createNavigation(Point currentLocation, Point destination, Point faceTarget) {
-        GraphPath<IMapTileInformation> path = navigationService.findPath(currentLocation, destination, this);
-        if (path == null) {
-            logger.log(Level.WARNING, "No path from {0} to {1}", getCreatureCoordinates(), destination);
-            return true;
+    private void createNavigation(Point currentLocation, Point destination, Point faceTarget) {
+
+        // Already waiting for the path there
+        if (pendingNavigation != null && destination.equals(pendingDestination)) {
+            return;
+        }
+        cancelNavigation();
+
+        // The search might take a few ticks if there are a lot of them
+        CompletableFuture<GraphPath<IMapTileInformation>> search = navigationService.schedulePathSearch(currentLocation, destination, this);
+        pendingNavigation = search;
+        pendingDestination = destination;
+        search.whenComplete((path, e) -> {
+            if (pendingNavigation != search) {
+                return; // Cancelled
+            }
+            pendingNavigation = null;
+            pendingDestination = null;
+            if (e != null || entityData.getComponent(entityId, Position.class) == null) {
+                return;
+            }
+
+            if (path == null) {
+                logger.log(Level.WARNING, "No path from {0} to {1}", getCreatureCoordinates(), destination);
+                return;
+            }
+            entityData.setComponent(entityId, new Navigation(destination, faceTarget, SteeringUtils.pathToList(navigationService.simplifyPath(path, this))));
+        });
+    }
+
+    private void cancelNavigation() {
+        CompletableFuture<GraphPath<IMapTileInformation>> search = pendingNavigation;
+        if (search != null) {
+            pendingNavigation = null;
+            pendingDestination = null;
+            search.cancel(false);
         }
-        entityData.setComponent(entityId, new Navigation(destination, faceTarget, SteeringUtils.pathToList(path)));
-        return false;
     }
 
     @Override
@@ -508,18 +547,21 @@ public final class CreatureController extends EntityController implements ICreat
             // Pick a new target
             // TODO: is there any preference? Now just take the nearest
             // TODO: creatures only now
+            // The search goes outwards from us, so the costlier checks are only done for the closest ones
             EntityId nearestEnemy = null;
-            float nearestDistance = Float.MAX_VALUE;
-            for (EntityId entity : entityPositionLookup.getSensedEntities(entityId)) {
-                if (creaturesController.isValidEntity(entity)
+            Set<EntityId> sensedEntities = entityPositionLookup.getSensedEntities(entityId);
+            if (!sensedEntities.isEmpty()) {
+                Senses senses = entityData.getComponent(entityId, Senses.class);
+                nearestEnemy = entityPositionLookup.findNearestEntity(getCreatureCoordinates(), Math.max(senses.distanceCanHear, senses.distanceCanSee),
+                        entity -> sensedEntities.contains(entity)
+                        && creaturesController.isValidEntity(entity)
                         && isEnemy(entity)
                         && !(isIncapacitated(entity) || isFleeing(entity) || isCaptive(entity))
-                        && (hasPathToEntity(entity) || isWithinAttackDistance(entity))) {
-                    float distance = getDistanceToCreature(entity);
-                    if (distance < nearestDistance) {
-                        nearestDistance = distance;
-                        nearestEnemy = entity;
-                    }
+                        && (getPathStatusToEntity(entity) != PathStatus.NOT_FOUND || isWithinAttackDistance(entity)));
+
+                // Don't go for the ones further away before we know whether we can get to this one
+                if (nearestEnemy != null && getPathStatusToEntity(nearestEnemy) == PathStatus.UNKNOWN && !isWithinAttackDistance(nearestEnemy)) {
+                    return null;
                 }
             }
             if (nearestEnemy != null) {
@@ -534,11 +576,11 @@ public final class CreatureController extends EntityController implements ICreat
         return attackTargetController;
     }
 
-    private boolean hasPathToEntity(EntityId entity) {
+    private PathStatus getPathStatusToEntity(EntityId entity) {
         Point ourPos = WorldUtils.vectorToPoint(getPosition());
         Point theirPos = WorldUtils.vectorToPoint(getPosition(entityData, entity));
 
-        return ourPos.equals(theirPos) || navigationService.findPath(ourPos, theirPos, this) != null;
+        return ourPos.equals(theirPos) ? PathStatus.FOUND : navigationService.checkPath(ourPos, theirPos, this);
     }
 
     private void setAttackTarget(EntityId entity) {
@@ -942,12 +984,6 @@ public final class CreatureController extends EntityController implements ICreat
             motionless = 0;
         }
 
-        // Task timer
-        TaskComponent taskComponent = entityData.getComponent(entityId, TaskComponent.class);
-        if (taskComponent != null && taskComponent.taskStarted) {
-            entityData.setComponent(entityId, new TaskComponent(taskComponent.taskId, taskComponent.targetEntity, taskComponent.targetLocation, taskComponent.taskType, taskComponent.taskDuration + tpf, taskComponent.taskStarted));
-        }
-
         stateMachine.update();
 
         // Also change our state component
@@ -962,12 +998,24 @@ public final class CreatureController extends EntityController implements ICreat
 
         // See that we have been motionless for enough time, per state
         // TODO: now just 5 seconds, it is the default for imps
-        return motionless >= 5f;
+        // Or that the path checks we were waiting for are answered
+        return motionless >= 5f || (waitedForPathCheck && !navigationService.isCheckingPath(this));
     }
 
     @Override
     public void resetReEvaluationTimer() {
         motionless = 0;
+        waitedForPathCheck = false;
+    }
+
+    @Override
+    public boolean isWaitingForPathCheck() {
+        if (navigationService.isCheckingPath(this)) {
+            waitedForPathCheck = true;
+            return true;
+        }
+
+        return false;
     }
 
     @Override
@@ -1038,7 +1086,7 @@ public final class CreatureController extends EntityController implements ICreat
         unassingCurrentTask();
 
         //workNavigationRequired = true;
-        entityData.setComponent(entityId, new TaskComponent(task.getId(), task.getTaskTarget(), task.getTaskLocation(), task.getTaskType(), 0.0f, false));
+        entityData.setComponent(entityId, new TaskComponent(task.getId(), task.getTaskTarget(), task.getTaskLocation(), task.getTaskType(), 0, false));
     }
 
     @Override
@@ -1048,6 +1096,7 @@ public final class CreatureController extends EntityController implements ICreat
 
     @Override
     public void stopCreature() {
+        cancelNavigation();
         entityData.removeComponent(entityId, Navigation.class);
     }
 
@@ -1414,6 +1463,7 @@ public final class CreatureController extends EntityController implements ICreat
         entityData.setComponent(entityId, new Mana(mana != null ? -manaDrain - mana.manaGeneration : -manaDrain));
         entityData.setComponent(entityId, new Possessed(manaDrain, gameTimer.getGameTime()));
         entityData.removeComponent(entityId, CreatureAi.class);
+        cancelNavigation();
         entityData.removeComponent(entityId, Navigation.class);
     }
 
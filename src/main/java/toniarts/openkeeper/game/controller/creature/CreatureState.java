@@ -41,7 +41,7 @@ public enum CreatureState implements State<ICreatureController> {
             // Idling is the last resort
             entity.unassingCurrentTask();
             findStuffToDo(entity, (foundWork) -> {
-                if (!foundWork) {
+                if (!foundWork && !entity.isWaitingForPathCheck()) {
                     entity.navigateToRandomPoint();
                 }
             });
@@ -85,6 +85,12 @@ public enum CreatureState implements State<ICreatureController> {
                 return; // Found work
             }
 
+            // Don't settle for less while we don't know whether the needs can be met
+            if (entity.isWaitingForPathCheck()) {
+                workResult.accept(false);
+                return;
+            }
+
             // Find work
             entity.findWork((foundWork) -> {
                 if (foundWork || (entity.isWorker() && entity.isTooMuchGold() && entity.dropGoldToTreasury())) {
@@ -107,7 +113,7 @@ public enum CreatureState implements State<ICreatureController> {
             if (entity.isTimeToReEvaluate()) {
                 entity.resetReEvaluationTimer();
                 findStuffToDo(entity, (foundWork) -> {
-                    if (!foundWork && entity.isStopped()) {
+                    if (!foundWork && entity.isStopped() && !entity.isWaitingForPathCheck()) {
                         entity.navigateToRandomPoint();
                     }
                 });
@@ -252,6 +258,9 @@ public enum CreatureState implements State<ICreatureController> {
         public void update(ICreatureController entity) {
             ICreatureController attackTarget = entity.getAttackTarget();
             if (attackTarget == null) {
+                if (entity.isWaitingForPathCheck()) {
+                    return; // Still finding out whether we can get to them
+                }
                 entity.getStateMachine().changeState(IDLE); // Nothing to do
                 return;
             }
@@ -117,6 +117,15 @@ public interface ICreatureController extends IGameLogicUpdatable, INavigable, IE
 
     public void resetReEvaluationTimer();
 
+    /**
+     * Whether the creature is waiting for some of its path checks, rather
+     * than act on the missing answers. Once answered, it is time to
+     * re-evaluate
+     *
+     * @return true if some path checks are still being searched
+     */
+    public boolean isWaitingForPathCheck();
+
     public int getGold();
 
     public int getMaxGold();
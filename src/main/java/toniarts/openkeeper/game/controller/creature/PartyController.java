@@ -252,6 +252,13 @@ public final class PartyController implements IPartyController {
         return cost;
     }
 
+    @Override
+    public boolean isDefaultTraversal() {
+
+        // We might dig or smash our way through
+        return false;
+    }
+
     @Override
     public boolean canMoveDiagonally() {
 
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2014-2026 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.controller.entity;
+
+import com.simsilica.es.Entity;
+import com.simsilica.es.EntityComponent;
+import com.simsilica.es.EntityData;
+import com.simsilica.es.EntityId;
+import com.simsilica.es.EntitySet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Keeps the controllers of one type of entities. The controller is created
+ * once when the entity appears and dropped when the entity is removed, so
+ * everybody shares the same instance for the whole lifetime of the entity.
+ * <br>
+ * The entities are followed with an entity set. A controller can be asked
+ * for before the set has caught up with a new entity, it is then created on
+ * demand. Such an entity might also be gone before the set ever sees it, so
+ * the controllers created on demand are checked on the next update.
+ *
+ * @param <T> the controller type
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class EntityControllerRegistry<T extends IEntityController> {
+
+    private final EntityData entityData;
+    private final Class<? extends EntityComponent> type;
+    private final Function<EntityId, T> factory;
+    private final EntitySet entities;
+    private final Map<EntityId, T> controllers = new ConcurrentHashMap<>();
+    private final Set<EntityId> createdOnDemand = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Create a registry
+     *
+     * @param entityData the entity data
+     * @param type the component that identifies the entities of this type
+     * @param factory creates the controller for an entity
+     */
+    public EntityControllerRegistry(EntityData entityData, Class<? extends EntityComponent> type, Function<EntityId, T> factory) {
+        this.entityData = entityData;
+        this.type = type;
+        this.factory = factory;
+
+        entities = entityData.getEntities(type);
+    }
+
+    /**
+     * Get the controller of the entity
+     *
+     * @param entityId the entity
+     * @return the controller, or {@code null} if the entity is not of this
+     * type
+     */
+    public T get(EntityId entityId) {
+        T controller = controllers.get(entityId);
+        if (controller != null) {
+            return controller;
+        }
+
+        if (entityData.getComponent(entityId, type) == null) {
+            return null;
+        }
+
+        return controllers.computeIfAbsent(entityId, id -> {
+            createdOnDemand.add(id);
+            return factory.apply(id);
+        });
+    }
+
+    /**
+     * Drop the controller of the entity, the next request creates a new one.
+     * Needed when the entity is transformed to something else in place.
+     *
+     * @param entityId the entity
+     */
+    public void invalidate(EntityId entityId) {
+        controllers.remove(entityId);
+    }
+
+    /**
+     * Follow the entities appearing and disappearing. Should be called from
+     * the game logic loop.
+     */
+    public void update() {
+        if (entities.applyChanges()) {
+            for (Entity entity : entities.getRemovedEntities()) {
+                controllers.remove(entity.getId());
+            }
+            for (Entity entity : entities.getAddedEntities()) {
+                controllers.computeIfAbsent(entity.getId(), factory);
+            }
+        }
+
+        // Once the set has caught up, it reports the removal. Unless the entity came and went in between
+        Iterator<EntityId> iter = createdOnDemand.iterator();
+        while (iter.hasNext()) {
+            EntityId entityId = iter.next();
+            if (entities.containsId(entityId)) {
+                iter.remove();
+            } else if (entityData.getComponent(entityId, type) == null) {
+                controllers.remove(entityId);
+                iter.remove();
+            }
+        }
+    }
+
+    public void release() {
+        entities.release();
+        controllers.clear();
+        createdOnDemand.clear();
+    }
+
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2014-2026 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.data;
+
+import com.simsilica.es.ComponentFilter;
+import com.simsilica.es.EntityComponent;
+import com.simsilica.es.EntityId;
+import com.simsilica.es.base.ComponentHandler;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Component storage of a single component type as a sparse set. The
+ * components are packed densely in an array, and a sparse array indexed by
+ * the entity ID points to them. So a lookup is a few array reads, no hashing
+ * and no boxing. Removing swaps the last component into the hole.<br>
+ * The entity IDs are never reused, so the sparse array is split into pages.
+ * A page only exists while some entity in its ID range has the component, so
+ * the memory follows the live entities and not the highest ID ever seen. The
+ * dense arrays shrink back as well.<br>
+ * The entity data is used from several threads. The reads are optimistic and
+ * only fall back to locking if a write happened meanwhile.
+ *
+ * @param <T> the component type
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class ArrayComponentHandler<T extends EntityComponent> implements ComponentHandler<T> {
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int NONE = -1;
+
+    private final StampedLock lock = new StampedLock();
+    private int[][] pages = new int[INITIAL_CAPACITY][];
+    private int[] pageCounts = new int[INITIAL_CAPACITY];
+    private EntityId[] entityIds = new EntityId[INITIAL_CAPACITY];
+    private EntityComponent[] components = new EntityComponent[INITIAL_CAPACITY];
+    private int size = 0;
+
+    public ArrayComponentHandler() {
+    }
+
+    @Override
+    public void setComponent(EntityId entityId, T component) {
+        long id = entityId.getId();
+        if (id < 0 || id >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Entity ID " + entityId + " out of range!");
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            int index = (int) id;
+            int pageIndex = index >>> PAGE_BITS;
+            if (pageIndex >= pages.length) {
+                int length = Math.max(pageIndex + 1, pages.length * 2);
+                pages = Arrays.copyOf(pages, length);
+                pageCounts = Arrays.copyOf(pageCounts, length);
+            }
+            int[] page = pages[pageIndex];
+            if (page == null) {
+                page = new int[PAGE_SIZE];
+                Arrays.fill(page, NONE);
+                pages[pageIndex] = page;
+            }
+
+            int denseIndex = page[index & PAGE_MASK];
+            if (denseIndex != NONE) {
+                components[denseIndex] = component;
+                return;
+            }
+
+            if (size == components.length) {
+                entityIds = Arrays.copyOf(entityIds, size * 2);
+                components = Arrays.copyOf(components, size * 2);
+            }
+            entityIds[size] = entityId;
+            components[size] = component;
+            page[index & PAGE_MASK] = size++;
+            pageCounts[pageIndex]++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean removeComponent(EntityId entityId) {
+        long id = entityId.getId();
+        if (id < 0 || id >= Integer.MAX_VALUE) {
+            return false;
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            int index = (int) id;
+            int pageIndex = index >>> PAGE_BITS;
+            int[] page = pageIndex < pages.length ? pages[pageIndex] : null;
+            if (page == null || page[index & PAGE_MASK] == NONE) {
+                return false;
+            }
+
+            // Move the last one to the hole
+            int denseIndex = page[index & PAGE_MASK];
+            int last = --size;
+            if (denseIndex != last) {
+                entityIds[denseIndex] = entityIds[last];
+                components[denseIndex] = components[last];
+                int movedIndex = (int) entityIds[denseIndex].getId();
+                pages[movedIndex >>> PAGE_BITS][movedIndex & PAGE_MASK] = denseIndex;
+            }
+            entityIds[last] = null;
+            components[last] = null;
+            page[index & PAGE_MASK] = NONE;
+
+            // Drop the page once it is empty, the IDs in it are likely never used again
+            if (--pageCounts[pageIndex] == 0) {
+                pages[pageIndex] = null;
+            }
+
+            // And give back the room of the dense arrays after a peak
+            if (components.length > INITIAL_CAPACITY && size < components.length / 4) {
+                entityIds = Arrays.copyOf(entityIds, components.length / 2);
+                components = Arrays.copyOf(components, components.length / 2);
+            }
+
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T getComponent(EntityId entityId) {
+        long id = entityId.getId();
+        if (id < 0 || id >= Integer.MAX_VALUE) {
+            return null;
+        }
+
+        long stamp = lock.tryOptimisticRead();
+        EntityComponent component = find((int) id);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                component = find((int) id);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        return (T) component;
+    }
+
+    /**
+     * Reads the component without locking, the result is only valid if no
+     * writes happened during the read
+     */
+    private EntityComponent find(int index) {
+        int[][] pageArray = pages;
+        EntityComponent[] componentArray = components;
+        int pageIndex = index >>> PAGE_BITS;
+        if (pageIndex >= pageArray.length) {
+            return null;
+        }
+
+        int[] page = pageArray[pageIndex];
+        if (page == null) {
+            return null;
+        }
+
+        int denseIndex = page[index & PAGE_MASK];
+        if (denseIndex == NONE || denseIndex >= componentArray.length) {
+            return null;
+        }
+
+        return componentArray[denseIndex];
+    }
+
+    @Override
+    public Set<EntityId> getEntities() {
+        return getEntities(null);
+    }
+
+    @Override
+    public Set<EntityId> getEntities(ComponentFilter filter) {
+        long stamp = lock.readLock();
+        try {
+            Set<EntityId> result = new HashSet<>();
+            for (int i = 0; i < size; i++) {
+                if (filter == null || filter.evaluate(components[i])) {
+                    result.add(entityIds[i]);
+                }
+            }
+
+            return result;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public EntityId findEntity(ComponentFilter filter) {
+        long stamp = lock.readLock();
+        try {
+            for (int i = 0; i < size; i++) {
+                if (filter == null || filter.evaluate(components[i])) {
+                    return entityIds[i];
+                }
+            }
+
+            return null;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+}
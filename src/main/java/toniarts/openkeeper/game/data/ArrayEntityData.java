@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2014-2026 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.data;
+
+import com.simsilica.es.EntityComponent;
+import com.simsilica.es.EntityId;
+import com.simsilica.es.base.ComponentHandler;
+import com.simsilica.es.base.DefaultEntityData;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import toniarts.openkeeper.game.component.ServerLocal;
+
+/**
+ * Entity data for the game server, stores the components in arrays instead
+ * of hash maps. Everything else, the entity sets, the change events and the
+ * network hosting, works like with the default entity data.<br>
+ * The changes to the {@link ServerLocal} components are not published at
+ * all.
+ *
+ * @see ArrayComponentHandler
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class ArrayEntityData extends DefaultEntityData {
+
+    private static final ClassValue<Boolean> SERVER_LOCAL = new ClassValue<>() {
+
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return type.isAnnotationPresent(ServerLocal.class);
+        }
+
+    };
+
+    private final Map<Class, ComponentHandler> handlers = new ConcurrentHashMap<>();
+
+    public ArrayEntityData() {
+        super();
+    }
+
+    @Override
+    protected ComponentHandler getHandler(Class type) {
+        return handlers.computeIfAbsent(type, (t) -> new ArrayComponentHandler<>());
+    }
+
+    @Override
+    public void registerComponentHandler(Class type, ComponentHandler handler) {
+        handlers.put(type, handler);
+    }
+
+    @Override
+    public void setComponent(EntityId entityId, EntityComponent component) {
+        if (SERVER_LOCAL.get(component.getClass())) {
+            getHandler(component.getClass()).setComponent(entityId, component);
+            return;
+        }
+
+        super.setComponent(entityId, component);
+    }
+
+    @Override
+    public void setComponents(EntityId entityId, EntityComponent... components) {
+        for (EntityComponent component : components) {
+            setComponent(entityId, component);
+        }
+    }
+
+    @Override
+    public boolean removeComponent(EntityId entityId, Class type) {
+        if (SERVER_LOCAL.get(type)) {
+            return getHandler(type).removeComponent(entityId);
+        }
+
+        return super.removeComponent(entityId, type);
+    }
+
+    @Override
+    public void removeEntity(EntityId entityId) {
+
+        // The handlers are ours, the default implementation doesn't know about them
+        for (Class type : handlers.keySet()) {
+            removeComponent(entityId, type);
+        }
+    }
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2014-2026 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.listener;
+
+import java.util.Collection;
+import toniarts.openkeeper.utils.Point;
+
+/**
+ * Server side listener for map changes that might affect how the map can be
+ * traversed. Terrain changes, rooms built, sold or merged etc. Unlike the
+ * {@link MapListener}, this is not meant to be delivered to the clients.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public interface TerrainChangeListener {
+
+    /**
+     * The terrain or the room structure has changed in the given tiles
+     *
+     * @param changedTiles the tiles that changed
+     */
+    void onTerrainChange(Collection<Point> changedTiles);
+
+}
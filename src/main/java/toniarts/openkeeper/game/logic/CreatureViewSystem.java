@@ -43,7 +43,10 @@ import toniarts.openkeeper.utils.GameTimeCounter;
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
-public final class CreatureViewSystem extends GameTimeCounter {
+public final class CreatureViewSystem extends GameTimeCounter implements IGameLogicAccess {
+
+    private static final Set<Class<?>> READ_TYPES = Set.of(CreatureViewState.class, Position.class, CreatureAi.class, TaskComponent.class, Navigation.class, Death.class, Unconscious.class);
+    private static final Set<Class<?>> WRITE_TYPES = Set.of(CreatureViewState.class);
 
     private final EntityData entityData;
     private final EntitySet creatureViewEntities;
@@ -113,6 +116,16 @@ public final class CreatureViewSystem extends GameTimeCounter {
         }
     }
 
+    @Override
+    public Set<Class<?>> getReadTypes() {
+        return READ_TYPES;
+    }
+
+    @Override
+    public Set<Class<?>> getWriteTypes() {
+        return WRITE_TYPES;
+    }
+
     @Override
     public void start() {
 
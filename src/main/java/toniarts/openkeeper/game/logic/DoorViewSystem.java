@@ -24,13 +24,13 @@ import com.simsilica.es.EntitySet;
 import com.simsilica.es.filter.AndFilter;
 import com.simsilica.es.filter.FieldFilter;
 import java.util.Collections;
-import java.util.List;
 import java.util.Set;
 import toniarts.openkeeper.game.component.CreatureComponent;
 import toniarts.openkeeper.game.component.DoorComponent;
 import toniarts.openkeeper.game.component.DoorViewState;
 import toniarts.openkeeper.game.component.Owner;
 import toniarts.openkeeper.game.component.Position;
+import toniarts.openkeeper.utils.Point;
 import toniarts.openkeeper.utils.WorldUtils;
 
 /**
@@ -40,13 +40,17 @@ import toniarts.openkeeper.utils.WorldUtils;
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
-public final class DoorViewSystem implements IGameLogicUpdatable {
+public final class DoorViewSystem implements IGameLogicUpdatable, IGameLogicAccess {
+
+    private static final Set<Class<?>> READ_TYPES = Set.of(DoorViewState.class, DoorComponent.class, Position.class, Owner.class, CreatureComponent.class, IEntityPositionLookup.class);
+    private static final Set<Class<?>> WRITE_TYPES = Set.of(DoorViewState.class);
 
     private final EntitySet doorEntities;
 
     private final EntityData entityData;
     private final SafeArrayList<EntityId> doorEntityIds;
     private final IEntityPositionLookup entityPositionLookup;
+    private final DoorUserVisitor doorUserVisitor = new DoorUserVisitor();
 
     public DoorViewSystem(EntityData entityData, IEntityPositionLookup entityPositionLookup) {
         this.entityData = entityData;
@@ -76,22 +80,11 @@ public final class DoorViewSystem implements IGameLogicUpdatable {
             Entity doorEntity = doorEntities.getEntity(doorEntityId);
             boolean shouldBeOpen = false;
             Position position = doorEntity.get(Position.class);
-            List<EntityId> entitiesInSameTile = entityPositionLookup.getEntitiesInLocation(WorldUtils.vectorToPoint(position.position));
-            if (entitiesInSameTile.size() > 1) {
-                Owner owner = doorEntity.get(Owner.class);
-                for (EntityId entityId : entitiesInSameTile) {
-                    if (doorEntityId != entityId) {
-
-                        // Should we open? Only to a creature of ours
-                        if (entityData.getComponent(entityId, CreatureComponent.class) != null) {
-                            Owner creatureOwner = entityData.getComponent(entityId, Owner.class);
-                            if (creatureOwner.ownerId == owner.ownerId) {
-                                shouldBeOpen = true;
-                                break;
-                            }
-                        }
-                    }
-                }
+            Point p = WorldUtils.vectorToPoint(position.position);
+            if (entityPositionLookup.getEntityCountInLocation(p.x, p.y) > 1) {
+                doorUserVisitor.doorEntityId = doorEntityId;
+                doorUserVisitor.ownerId = doorEntity.get(Owner.class).ownerId;
+                shouldBeOpen = !entityPositionLookup.forEachEntityInLocation(p, doorUserVisitor);
             }
 
             // Close if nobody there or open if somebody is
@@ -117,6 +110,16 @@ public final class DoorViewSystem implements IGameLogicUpdatable {
         }
     }
 
+    @Override
+    public Set<Class<?>> getReadTypes() {
+        return READ_TYPES;
+    }
+
+    @Override
+    public Set<Class<?>> getWriteTypes() {
+        return WRITE_TYPES;
+    }
+
     @Override
     public void start() {
 
@@ -128,4 +131,30 @@ public final class DoorViewSystem implements IGameLogicUpdatable {
         doorEntityIds.clear();
     }
 
+    /**
+     * Looks for a creature that the door should open to, stops at the first
+     * one found
+     */
+    private final class DoorUserVisitor implements IEntityPositionLookup.EntityVisitor {
+
+        private EntityId doorEntityId;
+        private short ownerId;
+
+        @Override
+        public boolean visit(EntityId entityId) {
+            if (doorEntityId.equals(entityId)) {
+                return true;
+            }
+
+            // Should we open? Only to a creature of ours
+            if (entityData.getComponent(entityId, CreatureComponent.class) != null) {
+                Owner creatureOwner = entityData.getComponent(entityId, Owner.class);
+                return creatureOwner.ownerId != ownerId;
+            }
+
+            return true;
+        }
+
+    }
+
 }
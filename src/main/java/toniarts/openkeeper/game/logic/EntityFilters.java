@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2014-2026 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.logic;
+
+import com.simsilica.es.EntityComponent;
+import com.simsilica.es.EntityData;
+import com.simsilica.es.EntityId;
+import java.util.function.Predicate;
+import toniarts.openkeeper.game.component.Owner;
+
+/**
+ * Common entity filters for the spatial queries of
+ * {@link IEntityPositionLookup}. Combine them with the {@link Predicate}
+ * methods
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class EntityFilters {
+
+    private EntityFilters() {
+        // Nope
+    }
+
+    /**
+     * Accepts the entities that have the given component
+     *
+     * @param entityData the entity data
+     * @param type the component type
+     * @return the filter
+     */
+    public static Predicate<EntityId> hasComponent(EntityData entityData, Class<? extends EntityComponent> type) {
+        return entityId -> entityData.getComponent(entityId, type) != null;
+    }
+
+    /**
+     * Accepts the entities owned by the given player
+     *
+     * @param entityData the entity data
+     * @param ownerId the owner player ID
+     * @return the filter
+     */
+    public static Predicate<EntityId> ownedBy(EntityData entityData, short ownerId) {
+        return entityId -> {
+            Owner owner = entityData.getComponent(entityId, Owner.class);
+            return owner != null && owner.ownerId == ownerId;
+        };
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2014-2026 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.logic;
+
+import com.simsilica.es.Entity;
+import com.simsilica.es.EntityComponent;
+import com.simsilica.es.EntityData;
+import com.simsilica.es.EntityId;
+import com.simsilica.es.EntitySet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Follows the group of each entity, like the owner or the owner and the
+ * creature type, and tells a listener when an entity enters or leaves a
+ * group. The groups are followed from the change sets of an entity set, the
+ * listener keeps whatever per group state it needs, so nothing is stored
+ * twice.<br>
+ * The tracker is updated by calling {@link #update()}, typically from the
+ * processTick of the owning system. Not thread safe, use from the game logic
+ * thread.
+ *
+ * @param <K> the key type
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class EntityGroupTracker<K> {
+
+    /**
+     * Notified when an entity enters or leaves a group
+     *
+     * @param <K> the key type
+     */
+    public interface GroupListener<K> {
+
+        void onAdded(EntityId entityId, K key);
+
+        void onRemoved(EntityId entityId, K key);
+
+    }
+
+    private final EntitySet entities;
+    private final Function<Entity, K> keyFunction;
+    private final GroupListener<K> listener;
+    private final Map<EntityId, K> keysByEntity = new HashMap<>();
+
+    /**
+     * Create a tracker, the listener is told about the current entities right
+     * away
+     *
+     * @param entityData the entity data
+     * @param keyFunction the key of an entity, from the components of the
+     * entity set
+     * @param listener listener for the group changes
+     * @param types the components the tracked entities must have
+     */
+    @SafeVarargs
+    public EntityGroupTracker(EntityData entityData, Function<Entity, K> keyFunction, GroupListener<K> listener, Class<? extends EntityComponent>... types) {
+        this.keyFunction = keyFunction;
+        this.listener = listener;
+
+        entities = entityData.getEntities(types);
+        for (Entity entity : entities) {
+            add(entity.getId(), keyFunction.apply(entity));
+        }
+    }
+
+    /**
+     * Apply the changes since the last update
+     *
+     * @return true if there were changes
+     */
+    public boolean update() {
+        if (!entities.applyChanges()) {
+            return false;
+        }
+
+        for (Entity entity : entities.getRemovedEntities()) {
+            K key = keysByEntity.remove(entity.getId());
+            if (key != null) {
+                listener.onRemoved(entity.getId(), key);
+            }
+        }
+        for (Entity entity : entities.getAddedEntities()) {
+            add(entity.getId(), keyFunction.apply(entity));
+        }
+        for (Entity entity : entities.getChangedEntities()) {
+            K key = keyFunction.apply(entity);
+            K oldKey = keysByEntity.get(entity.getId());
+            if (!Objects.equals(key, oldKey)) {
+                listener.onRemoved(entity.getId(), oldKey);
+                add(entity.getId(), key);
+            }
+        }
+
+        return true;
+    }
+
+    private void add(EntityId entityId, K key) {
+        keysByEntity.put(entityId, key);
+        listener.onAdded(entityId, key);
+    }
+
+    /**
+     * Get a tracked entity
+     *
+     * @param entityId the entity
+     * @return the entity with the tracked components, or {@code null} if not
+     * tracked
+     */
+    public Entity getEntity(EntityId entityId) {
+        return entities.getEntity(entityId);
+    }
+
+    /**
+     * Get the group of an entity
+     *
+     * @param entityId the entity
+     * @return the group key, or {@code null} if the entity is not tracked
+     */
+    public K getKey(EntityId entityId) {
+        return keysByEntity.get(entityId);
+    }
+
+    public void release() {
+        entities.release();
+        keysByEntity.clear();
+    }
+
+}
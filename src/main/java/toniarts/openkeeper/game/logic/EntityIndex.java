@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2014-2026 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.logic;
+
+import com.simsilica.es.Entity;
+import com.simsilica.es.EntityComponent;
+import com.simsilica.es.EntityData;
+import com.simsilica.es.EntityId;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Groups entities by a key derived from their components, like the tile they
+ * are on. The groups are kept up to date from the change sets, see
+ * {@link EntityGroupTracker}, so asking for a group doesn't scan anything. Use
+ * the tracker alone if the groups are already kept elsewhere.<br>
+ * The index is updated by calling {@link #update()}, typically from the
+ * processTick of the owning system. Not thread safe, use from the game logic
+ * thread.
+ *
+ * @param <K> the key type
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class EntityIndex<K> {
+
+    private final EntityGroupTracker<K> tracker;
+    private final Map<K, Set<EntityId>> entitiesByKey = new LinkedHashMap<>();
+    private final Map<K, Set<EntityId>> entitiesByKeyViews = new LinkedHashMap<>();
+    private final Set<K> keysView = Collections.unmodifiableSet(entitiesByKey.keySet());
+
+    /**
+     * Create an index
+     *
+     * @param entityData the entity data
+     * @param keyFunction the key of an entity, from the components of the
+     * entity set
+     * @param types the components the indexed entities must have
+     */
+    @SafeVarargs
+    public EntityIndex(EntityData entityData, Function<Entity, K> keyFunction, Class<? extends EntityComponent>... types) {
+        tracker = new EntityGroupTracker<>(entityData, keyFunction, new EntityGroupTracker.GroupListener<K>() {
+
+            @Override
+            public void onAdded(EntityId entityId, K key) {
+                add(entityId, key);
+            }
+
+            @Override
+            public void onRemoved(EntityId entityId, K key) {
+                remove(entityId, key);
+            }
+
+        }, types);
+    }
+
+    /**
+     * Apply the changes since the last update
+     *
+     * @return true if there were changes
+     */
+    public boolean update() {
+        return tracker.update();
+    }
+
+    private void add(EntityId entityId, K key) {
+        entitiesByKey.computeIfAbsent(key, (k) -> {
+            Set<EntityId> set = new LinkedHashSet<>();
+            entitiesByKeyViews.put(k, Collections.unmodifiableSet(set));
+            return set;
+        }).add(entityId);
+    }
+
+    private void remove(EntityId entityId, K key) {
+        Set<EntityId> set = entitiesByKey.get(key);
+        if (set != null && set.remove(entityId) && set.isEmpty()) {
+            entitiesByKey.remove(key);
+            entitiesByKeyViews.remove(key);
+        }
+    }
+
+    /**
+     * Get the entities in a group
+     *
+     * @param key the group key
+     * @return a read only view of the entities, not a copy
+     */
+    public Set<EntityId> get(K key) {
+        Set<EntityId> set = entitiesByKeyViews.get(key);
+
+        return set != null ? set : Collections.emptySet();
+    }
+
+    /**
+     * Get the amount of entities in a group
+     *
+     * @param key the group key
+     * @return the amount of entities
+     */
+    public int getCount(K key) {
+        Set<EntityId> set = entitiesByKey.get(key);
+
+        return set != null ? set.size() : 0;
+    }
+
+    /**
+     * Get the groups that have entities
+     *
+     * @return a read only view of the group keys, not a copy
+     */
+    public Set<K> getKeys() {
+        return keysView;
+    }
+
+    /**
+     * Get an indexed entity
+     *
+     * @param entityId the entity
+     * @return the entity with the indexed components, or {@code null} if not
+     * indexed
+     */
+    public Entity getEntity(EntityId entityId) {
+        return tracker.getEntity(entityId);
+    }
+
+    /**
+     * Get the group of an entity
+     *
+     * @param entityId the entity
+     * @return the group key, or {@code null} if the entity is not indexed
+     */
+    public K getKey(EntityId entityId) {
+        return tracker.getKey(entityId);
+    }
+
+    public void release() {
+        tracker.release();
+        entitiesByKey.clear();
+        entitiesByKeyViews.clear();
+    }
+
+}
@@ -18,20 +18,95 @@ package toniarts.openkeeper.game.logic;
 
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
- * Runs the game logic tasks, well, doesn't literally run them but wraps them up
+ * Runs the game logic tasks, well, doesn't literally run them but wraps them
+ * up.<br>
+ * The updatables are run in stages. An updatable goes to the stage after the
+ * last earlier updatable it conflicts with, see {@link IGameLogicAccess}. So
+ * the conflicting updatables always run in the given order, and the
+ * updatables of a stage are run in parallel. The stages are fixed when
+ * constructed. The updatables of a stage don't share anything they write, so
+ * their results don't depend on which one finishes first. Only the errors
+ * need ordering, they are logged in the given order.<br>
+ * Only the updatables that touch a known set of components and services can
+ * share a stage. The heavy ones, like the decay, health, creature AI, task
+ * and trigger logic, remove entities and drive the creature, map and player
+ * controllers, which touch nearly everything. They don't declare their access
+ * and always run alone. So only the declared updatables placed next to each
+ * other can overlap, with the current game logic that is just the creature
+ * and door views.
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
 public final class GameLogicManager implements IGameLogicUpdatable {
 
+    /**
+     * Set to false to run all the updatables in sequence
+     */
+    public static final String PARALLEL_PROPERTY = "openkeeper.parallelLogic";
+
     private static final Logger logger = System.getLogger(GameLogicManager.class.getName());
 
     protected final IGameLogicUpdatable[] updatables;
+    private final UpdatableTask[][] stages;
+    private final StageTask[] stageTasks;
+    private ForkJoinPool pool;
+    private ForkJoinPool workerPool;
+    private long tick = -1;
 
     public GameLogicManager(IGameLogicUpdatable... updatables) {
         this.updatables = updatables;
+
+        // Place the updatables to the stages
+        int[] stageIndices = new int[updatables.length];
+        List<List<UpdatableTask>> stageList = new ArrayList<>();
+        for (int i = 0; i < updatables.length; i++) {
+            int stage = 0;
+            for (int j = 0; j < i; j++) {
+                if (stageIndices[j] >= stage && isConflicting(updatables[i], updatables[j])) {
+                    stage = stageIndices[j] + 1;
+                }
+            }
+            stageIndices[i] = stage;
+            if (stage == stageList.size()) {
+                stageList.add(new ArrayList<>());
+            }
+            stageList.get(stage).add(new UpdatableTask(updatables[i]));
+        }
+
+        stages = new UpdatableTask[stageList.size()][];
+        stageTasks = new StageTask[stageList.size()];
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = stageList.get(i).toArray(UpdatableTask[]::new);
+            stageTasks[i] = new StageTask(stages[i]);
+        }
+    }
+
+    private static boolean isConflicting(IGameLogicUpdatable updatable, IGameLogicUpdatable other) {
+        if (!(updatable instanceof IGameLogicAccess access) || !(other instanceof IGameLogicAccess otherAccess)) {
+            return true;
+        }
+
+        return !Collections.disjoint(access.getWriteTypes(), otherAccess.getWriteTypes())
+                || !Collections.disjoint(access.getWriteTypes(), otherAccess.getReadTypes())
+                || !Collections.disjoint(access.getReadTypes(), otherAccess.getWriteTypes());
+    }
+
+    /**
+     * Use a shared pool for running the stages in parallel instead of
+     * creating our own. Set before starting. The pool is not shut down on
+     * stop, it belongs to the caller.
+     *
+     * @param workerPool the worker pool
+     */
+    public void setWorkerPool(ForkJoinPool workerPool) {
+        this.workerPool = workerPool;
     }
 
     @Override
@@ -39,27 +114,113 @@ public final class GameLogicManager implements IGameLogicUpdatable {
         for (IGameLogicUpdatable updatable : updatables) {
             updatable.start();
         }
+
+        if (stages.length < updatables.length && Runtime.getRuntime().availableProcessors() > 1
+                && !"false".equalsIgnoreCase(System.getProperty(PARALLEL_PROPERTY))) {
+            int parallelism = 1;
+            for (UpdatableTask[] stage : stages) {
+                parallelism = Math.max(parallelism, stage.length);
+            }
+            pool = workerPool != null ? workerPool : new ForkJoinPool(Math.min(parallelism, Runtime.getRuntime().availableProcessors()));
+            logger.log(Level.DEBUG, "Running {0} game logic updatables in {1} stages", updatables.length, stages.length);
+        }
     }
 
     @Override
     public void processTick(float tpf) {
+        processTick(tpf, tick + 1);
+    }
+
+    @Override
+    public void processTick(float tpf, long tick) {
+        this.tick = tick;
+
         // Update updatables
-        for (IGameLogicUpdatable updatable : updatables) {
-            try {
-                updatable.processTick(tpf);
-            } catch (Exception e) {
-                logger.log(Level.ERROR, "Error in game logic tick on " + updatable.getClass() + "!", e);
+        for (int i = 0; i < stages.length; i++) {
+            UpdatableTask[] stage = stages[i];
+            if (stage.length == 1 || pool == null) {
+                for (UpdatableTask task : stage) {
+                    task.tpf = tpf;
+                    task.tick = tick;
+                    task.compute();
+                }
+            } else {
+                for (UpdatableTask task : stage) {
+                    task.tpf = tpf;
+                    task.tick = tick;
+                    task.reinitialize();
+                }
+                stageTasks[i].reinitialize();
+                pool.invoke(stageTasks[i]);
+            }
+
+            // Report in order
+            for (UpdatableTask task : stage) {
+                if (task.error != null) {
+                    logger.log(Level.ERROR, "Error in game logic tick on " + task.updatable.getClass() + "!", task.error);
+                    task.error = null;
+                }
             }
         }
     }
 
     @Override
     public void stop() {
+        if (pool != null) {
+            if (pool != workerPool) {
+                pool.shutdown();
+            }
+            pool = null;
+        }
+
         for (IGameLogicUpdatable updatable : updatables) {
             updatable.stop();
         }
     }
 
+    /**
+     * Runs a single updatable, catches the error to be reported in order
+     */
+    private static final class UpdatableTask extends RecursiveAction {
+
+        private final IGameLogicUpdatable updatable;
+        private float tpf;
+        private long tick;
+        private Exception error;
+
+        public UpdatableTask(IGameLogicUpdatable updatable) {
+            this.updatable = updatable;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                updatable.processTick(tpf, tick);
+            } catch (Exception e) {
+                error = e;
+            }
+        }
+
+    }
+
+    /**
+     * Runs the updatables of a stage in parallel
+     */
+    private static final class StageTask extends RecursiveAction {
+
+        private final UpdatableTask[] tasks;
+
+        public StageTask(UpdatableTask[] tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected void compute() {
+            invokeAll(tasks);
+        }
+
+    }
+
 //    private void drawCreatureVisibilities() {
 //        Node node = new Node("Visibilities");
 //        float elevation = 0.1f;
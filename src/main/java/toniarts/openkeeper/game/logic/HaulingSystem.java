@@ -20,6 +20,7 @@ import com.jme3.math.Vector3f;
 import com.simsilica.es.Entity;
 import com.simsilica.es.EntityData;
 import com.simsilica.es.EntitySet;
+import java.util.Set;
 import toniarts.openkeeper.game.component.HauledBy;
 import toniarts.openkeeper.game.component.Position;
 
@@ -28,7 +29,10 @@ import toniarts.openkeeper.game.component.Position;
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
-public final class HaulingSystem implements IGameLogicUpdatable {
+public final class HaulingSystem implements IGameLogicUpdatable, IGameLogicAccess {
+
+    private static final Set<Class<?>> READ_TYPES = Set.of(HauledBy.class, Position.class);
+    private static final Set<Class<?>> WRITE_TYPES = Set.of(HauledBy.class, Position.class);
 
     private final EntityData entityData;
     private final EntitySet hauledEntities;
@@ -61,6 +65,16 @@ public final class HaulingSystem implements IGameLogicUpdatable {
         }
     }
 
+    @Override
+    public Set<Class<?>> getReadTypes() {
+        return READ_TYPES;
+    }
+
+    @Override
+    public Set<Class<?>> getWriteTypes() {
+        return WRITE_TYPES;
+    }
+
     @Override
     public void start() {
 
@@ -20,6 +20,7 @@ import com.simsilica.es.EntityId;
 import toniarts.openkeeper.utils.Point;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Predicate;
 import toniarts.openkeeper.game.controller.entity.IEntityController;
 import toniarts.openkeeper.game.map.IMapTileInformation;
 
@@ -55,6 +56,102 @@ public interface IEntityPositionLookup {
      */
     List<EntityId> getEntitiesInLocation(IMapTileInformation mapTile);
 
+    /**
+     * Visit the entities in specified map point. Unlike getting the list of
+     * the entities, this doesn't create any garbage
+     *
+     * @param p the map point
+     * @param visitor the visitor
+     * @return false if the visitor stopped the visiting
+     */
+    boolean forEachEntityInLocation(Point p, EntityVisitor visitor);
+
+    /**
+     * Visit the entities in specified map point. Unlike getting the list of
+     * the entities, this doesn't create any garbage
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param visitor the visitor
+     * @return false if the visitor stopped the visiting
+     */
+    boolean forEachEntityInLocation(int x, int y, EntityVisitor visitor);
+
+    /**
+     * Visit the entities in specified map tile. Unlike getting the list of
+     * the entities, this doesn't create any garbage
+     *
+     * @param mapTile the map tile
+     * @param visitor the visitor
+     * @return false if the visitor stopped the visiting
+     */
+    boolean forEachEntityInLocation(IMapTileInformation mapTile, EntityVisitor visitor);
+
+    /**
+     * Get the number of entities in specified map point
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return number of entities in given location
+     */
+    int getEntityCountInLocation(int x, int y);
+
+    /**
+     * Visit the entities inside a rectangle of tiles
+     *
+     * @param minX the left edge, inclusive
+     * @param minY the top edge, inclusive
+     * @param maxX the right edge, inclusive
+     * @param maxY the bottom edge, inclusive
+     * @param filter only the entities passing the filter are visited, null
+     * for all
+     * @param visitor the visitor
+     * @return false if the visitor stopped the visiting
+     * @see EntityFilters
+     */
+    boolean forEachEntityInArea(int minX, int minY, int maxX, int maxY, Predicate<EntityId> filter, EntityVisitor visitor);
+
+    /**
+     * Visit the entities within a radius of the given tile. The distance is
+     * measured between the tile centres, in tiles
+     *
+     * @param center the center tile
+     * @param radius the radius, in tiles
+     * @param filter only the entities passing the filter are visited, null
+     * for all
+     * @param visitor the visitor
+     * @return false if the visitor stopped the visiting
+     * @see EntityFilters
+     */
+    boolean forEachEntityInRadius(Point center, float radius, Predicate<EntityId> filter, EntityVisitor visitor);
+
+    /**
+     * Find the entities closest to the given tile. The tiles are searched
+     * outwards from the center, so the filter is only consulted for the
+     * entities near the center
+     *
+     * @param center the center tile
+     * @param count maximum number of entities to find
+     * @param maxRadius the maximum distance, in tiles
+     * @param filter only the entities passing the filter are accepted, null
+     * for all
+     * @return the closest entities, the closest first
+     * @see EntityFilters
+     */
+    List<EntityId> findNearestEntities(Point center, int count, float maxRadius, Predicate<EntityId> filter);
+
+    /**
+     * Find the entity closest to the given tile
+     *
+     * @param center the center tile
+     * @param maxRadius the maximum distance, in tiles
+     * @param filter only the entities passing the filter are accepted, null
+     * for all
+     * @return the closest entity, null if none found
+     * @see #findNearestEntities(Point, int, float, Predicate)
+     */
+    EntityId findNearestEntity(Point center, float maxRadius, Predicate<EntityId> filter);
+
     /**
      * Get the map tile of an entity
      *
@@ -120,6 +217,15 @@ public interface IEntityPositionLookup {
      */
     boolean isTileBlocked(IMapTileInformation mapTile, short playerId);
 
+    /**
+     * Get the door epoch, it advances every time the doors blocking the tiles
+     * change. Lets the caches built on top of the blocked tiles know when to
+     * rebuild
+     *
+     * @return the door epoch
+     */
+    long getDoorEpoch();
+
     /**
      * Gets all the entities around given entity that you see or hear at this
      * given moment
@@ -129,4 +235,21 @@ public interface IEntityPositionLookup {
      */
     Set<EntityId> getSensedEntities(EntityId entityId);
 
+    /**
+     * Receives the entities of a location query
+     */
+    @FunctionalInterface
+    interface EntityVisitor {
+
+        /**
+         * Visit an entity. The position lookup must not be modified during the
+         * visit
+         *
+         * @param entityId the entity
+         * @return true to continue, false to stop visiting
+         */
+        boolean visit(EntityId entityId);
+
+    }
+
 }
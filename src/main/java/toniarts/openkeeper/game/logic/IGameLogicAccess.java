@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2014-2026 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.logic;
+
+import java.util.Set;
+
+/**
+ * Declares what a game logic updatable touches during its tick. The types
+ * are usually components, but can be any shared resource, like a player
+ * control or a lookup service.<br>
+ * {@link GameLogicManager} runs the updatables that don't conflict in
+ * parallel. An updatable without the declaration is assumed to touch
+ * everything and always runs alone. So declare only what you know, and
+ * everything you know. Removing entities or calling into the controllers
+ * usually touches more than the own components, such updatables should not
+ * declare anything.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public interface IGameLogicAccess {
+
+    /**
+     * Get the types read during the tick
+     *
+     * @return the read types
+     */
+    Set<Class<?>> getReadTypes();
+
+    /**
+     * Get the types written during the tick
+     *
+     * @return the written types
+     */
+    Set<Class<?>> getWriteTypes();
+
+}
@@ -42,4 +42,18 @@ public interface IGameLogicUpdatable {
      */
     public void processTick(float tpf);
 
+    /**
+     * Process one game tick. The loops running on a fixed time step call this
+     * with the tick number, override if you need it. Replays and such need to
+     * know exactly on which tick something happened.
+     *
+     * @param tpf time since the last call to update(), in seconds. Our tick
+     * rate.
+     * @param tick the number of the tick, starts from zero and grows by one
+     * on every tick
+     */
+    public default void processTick(float tpf, long tick) {
+        processTick(tpf);
+    }
+
 }
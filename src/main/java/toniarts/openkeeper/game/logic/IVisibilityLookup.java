@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2014-2026 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.logic;
+
+import com.simsilica.es.EntityId;
+import java.util.BitSet;
+
+/**
+ * Fog of war, what each player can see on the map
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public interface IVisibilityLookup {
+
+    /**
+     * Is the tile visible to the player
+     *
+     * @param playerId the player
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return true if the player can see the tile
+     */
+    boolean isTileVisible(short playerId, int x, int y);
+
+    /**
+     * Is the entity visible to the player, i.e. is it on a visible tile
+     *
+     * @param playerId the player
+     * @param entityId the entity
+     * @return true if the player can see the entity
+     */
+    boolean isEntityVisible(short playerId, EntityId entityId);
+
+    /**
+     * Get all the tiles visible to the player
+     *
+     * @param playerId the player
+     * @return a copy of the visible tiles, indexed by the tile index
+     */
+    BitSet getVisibleTiles(short playerId);
+
+    /**
+     * Lift the fog of war completely for the player
+     *
+     * @param playerId the player
+     * @param revealAll true to see everything
+     */
+    void setRevealAll(short playerId, boolean revealAll);
+
+}
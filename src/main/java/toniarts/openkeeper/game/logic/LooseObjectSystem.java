@@ -16,11 +16,9 @@
  */
 package toniarts.openkeeper.game.logic;
 
-import com.jme3.util.SafeArrayList;
 import com.simsilica.es.Entity;
 import com.simsilica.es.EntityData;
 import com.simsilica.es.EntityId;
-import com.simsilica.es.EntitySet;
 import toniarts.openkeeper.game.component.Gold;
 import toniarts.openkeeper.game.component.ObjectComponent;
 import toniarts.openkeeper.game.component.Placeable;
@@ -34,114 +32,89 @@ import toniarts.openkeeper.game.controller.room.IRoomController;
 import toniarts.openkeeper.game.map.IMapTileInformation;
 import toniarts.openkeeper.tools.convert.map.Player;
 import toniarts.openkeeper.utils.Point;
+import toniarts.openkeeper.utils.WorldUtils;
 
-import java.util.Collections;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * A simple state to scan the loose objects inside rooms. The loose objects are
- * added to the rooms automatically if there is some storage capacity left
+ * added to the rooms automatically if there is some storage capacity left. The
+ * loose objects are indexed by their tiles, so the rooms are looked up once
+ * per tile and only for the tiles that have something lying on them
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
 public final class LooseObjectSystem implements IGameLogicUpdatable {
 
-    private final EntitySet looseObjectEntities;
+    private final EntityIndex<Point> looseObjectsByTile;
 
     private final EntityData entityData;
-    private final SafeArrayList<EntityId> looseObjectEntityIds;
     private final IMapController mapController;
     private final Map<Short, IPlayerController> playerControllers;
-    private final IEntityPositionLookup entityPositionLookup;
 
-    public LooseObjectSystem(EntityData entityData, IMapController mapController, Map<Short, IPlayerController> playerControllers,
-            IEntityPositionLookup entityPositionLookup) {
+    public LooseObjectSystem(EntityData entityData, IMapController mapController, Map<Short, IPlayerController> playerControllers) {
         this.entityData = entityData;
         this.mapController = mapController;
         this.playerControllers = playerControllers;
-        this.entityPositionLookup = entityPositionLookup;
 
-        looseObjectEntities = entityData.getEntities(ObjectComponent.class, Position.class, Placeable.class);
-        looseObjectEntityIds = new SafeArrayList<>(EntityId.class);
-        processAddedEntities(looseObjectEntities);
+        looseObjectsByTile = new EntityIndex<>(entityData,
+                (entity) -> WorldUtils.vectorToPoint(entity.get(Position.class).position),
+                ObjectComponent.class, Position.class, Placeable.class);
     }
 
     @Override
     public void processTick(float tpf) {
 
         // Add new & remove old
-        if (looseObjectEntities.applyChanges()) {
-
-            processAddedEntities(looseObjectEntities.getAddedEntities());
-
-            processDeletedEntities(looseObjectEntities.getRemovedEntities());
-
-        }
+        looseObjectsByTile.update();
 
         // Attach loose objects to rooms
-        for (EntityId entityId : looseObjectEntityIds.getArray()) {
-            Stored roomStorage = entityData.getComponent(entityId, Stored.class);
-            if (roomStorage != null) {
-
-                // TODO: Dunno if this the best way, we always iterate through a lot of unnecessary objects
-                // Maybe storage should remove the placeable temporarily...
-                continue;
-            }
-
-            IMapTileInformation mapTile = entityPositionLookup.getEntityLocation(entityId);
+        for (Point point : looseObjectsByTile.getKeys()) {
+            IMapTileInformation mapTile = mapController.getMapData().getTile(point);
             if (mapTile == null) {
-
-                // No position yet, we get it next time
                 continue;
             }
             if (mapTile.getOwnerId() == Player.GOOD_PLAYER_ID || mapTile.getOwnerId() == Player.NEUTRAL_PLAYER_ID) {
                 continue;
             }
 
-            Point point = mapTile.getLocation();
             IRoomController roomController = mapController.getRoomControllerByCoordinates(point);
-            if(roomController == null) {
+            if (roomController == null) {
                 continue;
             }
 
-            Entity entity = looseObjectEntities.getEntity(entityId);
-            ObjectComponent objectComponent = entity.get(ObjectComponent.class);
-            if (objectComponent.objectType != null && roomController.hasObjectControl(objectComponent.objectType) && !roomController.getObjectControl(objectComponent.objectType).isFullCapacity()) {
-                short ownerId = roomController.getOwnerId();
-                if (objectComponent.objectType == AbstractRoomController.ObjectType.GOLD) {
-                    synchronized (GameWorldController.GOLD_LOCK) {
-                        Gold gold = entityData.getComponent(entityId, Gold.class);
-                        int goldLeft = (int) roomController.getObjectControl(AbstractRoomController.ObjectType.GOLD).addItem(gold.gold, point);
-                        playerControllers.get(ownerId).getGoldControl().addGold(gold.gold - goldLeft);
-                        if (goldLeft == 0) {
-                            entityData.removeEntity(entityId);
-                        } else {
-                            entityData.setComponent(entityId, new Gold(goldLeft, gold.maxGold));
+            for (EntityId entityId : looseObjectsByTile.get(point)) {
+                Stored roomStorage = entityData.getComponent(entityId, Stored.class);
+                if (roomStorage != null) {
+
+                    // TODO: Dunno if this the best way, we always iterate through a lot of unnecessary objects
+                    // Maybe storage should remove the placeable temporarily...
+                    continue;
+                }
+
+                Entity entity = looseObjectsByTile.getEntity(entityId);
+                ObjectComponent objectComponent = entity.get(ObjectComponent.class);
+                if (objectComponent.objectType != null && roomController.hasObjectControl(objectComponent.objectType) && !roomController.getObjectControl(objectComponent.objectType).isFullCapacity()) {
+                    short ownerId = roomController.getOwnerId();
+                    if (objectComponent.objectType == AbstractRoomController.ObjectType.GOLD) {
+                        synchronized (GameWorldController.GOLD_LOCK) {
+                            Gold gold = entityData.getComponent(entityId, Gold.class);
+                            int goldLeft = (int) roomController.getObjectControl(AbstractRoomController.ObjectType.GOLD).addItem(gold.gold, point);
+                            playerControllers.get(ownerId).getGoldControl().addGold(gold.gold - goldLeft);
+                            if (goldLeft == 0) {
+                                entityData.removeEntity(entityId);
+                            } else {
+                                entityData.setComponent(entityId, new Gold(goldLeft, gold.maxGold));
+                            }
                         }
+                    } else {
+                        roomController.getObjectControl(objectComponent.objectType).addItem(entityId, point);
                     }
-                } else {
-                    roomController.getObjectControl(objectComponent.objectType).addItem(entityId, point);
                 }
             }
         }
     }
 
-    private void processAddedEntities(Set<Entity> entities) {
-        for (Entity entity : entities) {
-            int index = Collections.binarySearch(looseObjectEntityIds, entity.getId());
-            looseObjectEntityIds.add(~index, entity.getId());
-        }
-    }
-
-    private void processDeletedEntities(Set<Entity> entities) {
-        for (Entity entity : entities) {
-            int index = Collections.binarySearch(looseObjectEntityIds, entity.getId());
-            looseObjectEntityIds.remove(index);
-        }
-    }
-
-
     @Override
     public void start() {
 
@@ -149,8 +122,7 @@ public final class LooseObjectSystem implements IGameLogicUpdatable {
 
     @Override
     public void stop() {
-        looseObjectEntities.release();
-        looseObjectEntities.clear();
+        looseObjectsByTile.release();
     }
 
 }
@@ -34,7 +34,10 @@ import toniarts.openkeeper.game.controller.player.PlayerManaControl;
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
-public final class ManaCalculatorLogic implements IGameLogicUpdatable {
+public final class ManaCalculatorLogic implements IGameLogicUpdatable, IGameLogicAccess {
+
+    private static final Set<Class<?>> READ_TYPES = Set.of(Mana.class, Owner.class);
+    private static final Set<Class<?>> WRITE_TYPES = Set.of(IPlayerController.class);
 
     private float tick = 0;
     private final EntitySet manaEntities;
@@ -76,6 +79,16 @@ public final class ManaCalculatorLogic implements IGameLogicUpdatable {
         }
     }
 
+    @Override
+    public Set<Class<?>> getReadTypes() {
+        return READ_TYPES;
+    }
+
+    @Override
+    public Set<Class<?>> getWriteTypes() {
+        return WRITE_TYPES;
+    }
+
     @Override
     public void start() {
 
@@ -16,10 +16,8 @@
  */
 package toniarts.openkeeper.game.logic;
 
-import com.simsilica.es.Entity;
 import com.simsilica.es.EntityData;
 import com.simsilica.es.EntityId;
-import com.simsilica.es.EntitySet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
@@ -32,17 +30,20 @@ import toniarts.openkeeper.game.controller.player.PlayerCreatureControl;
 import toniarts.openkeeper.tools.convert.map.KwdFile;
 
 /**
- * Basically just calculates the amount of creatures
+ * Basically just calculates the amount of creatures. The creatures are
+ * grouped by the owner and the creature type, the player creature controls
+ * keep the groups.
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
-public final class PlayerCreatureSystem implements IGameLogicUpdatable {
+public final class PlayerCreatureSystem implements IGameLogicUpdatable, IGameLogicAccess, EntityGroupTracker.GroupListener<Integer> {
+
+    private static final Set<Class<?>> READ_TYPES = Set.of(CreatureComponent.class, Health.class, Owner.class);
+    private static final Set<Class<?>> WRITE_TYPES = Set.of(IPlayerController.class);
 
     private final KwdFile kwdFile;
-    private final EntitySet creatureEntities;
     private final Map<Short, PlayerCreatureControl> creatureControls;
-    private final Map<EntityId, Short> ownerIdsByEntityId = new HashMap<>();
-    private final Map<EntityId, Short> creatureIdsByEntityId = new HashMap<>();
+    private final EntityGroupTracker<Integer> creaturesByOwnerAndType;
 
     public PlayerCreatureSystem(EntityData entityData, KwdFile kwdFile, Collection<IPlayerController> playerControllers) {
         this.kwdFile = kwdFile;
@@ -51,59 +52,44 @@ public final class PlayerCreatureSystem implements IGameLogicUpdatable {
             creatureControls.put(playerController.getKeeper().getId(), playerController.getCreatureControl());
         }
 
-        creatureEntities = entityData.getEntities(CreatureComponent.class, Health.class, Owner.class);
-        processAddedEntities(creatureEntities);
+        creaturesByOwnerAndType = new EntityGroupTracker<>(entityData,
+                (entity) -> getKey(entity.get(Owner.class).ownerId, entity.get(CreatureComponent.class).creatureId),
+                this, CreatureComponent.class, Health.class, Owner.class);
+    }
+
+    private static int getKey(short ownerId, short creatureId) {
+        return (ownerId << 16) | (creatureId & 0xFFFF);
     }
 
     @Override
     public void processTick(float tpf) {
-        if (creatureEntities.applyChanges()) {
-
-            processAddedEntities(creatureEntities.getAddedEntities());
-
-            processDeletedEntities(creatureEntities.getRemovedEntities());
+        creaturesByOwnerAndType.update();
+    }
 
-            processChangedEntities(creatureEntities.getChangedEntities());
+    @Override
+    public void onAdded(EntityId entityId, Integer key) {
+        PlayerCreatureControl creatureControl = creatureControls.get((short) (key >> 16));
+        if (creatureControl != null) {
+            creatureControl.onCreatureAdded(entityId, kwdFile.getCreature((short) (key & 0xFFFF)));
         }
     }
 
-    private void processAddedEntities(Set<Entity> entities) {
-        for (Entity entity : entities) {
-            short ownerId = entity.get(Owner.class).ownerId;
-            short creatureId = entity.get(CreatureComponent.class).creatureId;
-            ownerIdsByEntityId.put(entity.getId(), ownerId);
-            creatureIdsByEntityId.put(entity.getId(), creatureId);
-            if (creatureControls.containsKey(ownerId)) {
-                creatureControls.get(ownerId).onCreatureAdded(entity.getId(), kwdFile.getCreature(creatureId));
-            }
+    @Override
+    public void onRemoved(EntityId entityId, Integer key) {
+        PlayerCreatureControl creatureControl = creatureControls.get((short) (key >> 16));
+        if (creatureControl != null) {
+            creatureControl.onCreatureRemoved(entityId, kwdFile.getCreature((short) (key & 0xFFFF)));
         }
     }
 
-    private void processDeletedEntities(Set<Entity> entities) {
-        for (Entity entity : entities) {
-            short ownerId = ownerIdsByEntityId.remove(entity.getId());
-            short creatureId = creatureIdsByEntityId.remove(entity.getId());
-            if (creatureControls.containsKey(ownerId)) {
-                creatureControls.get(ownerId).onCreatureRemoved(entity.getId(), kwdFile.getCreature(creatureId));
-            }
-        }
+    @Override
+    public Set<Class<?>> getReadTypes() {
+        return READ_TYPES;
     }
 
-    private void processChangedEntities(Set<Entity> entities) {
-        for (Entity entity : entities) {
-            short newOwnerId = entity.get(Owner.class).ownerId;
-            short newCreatureId = entity.get(CreatureComponent.class).creatureId;
-            short oldOwnerId = ownerIdsByEntityId.put(entity.getId(), newOwnerId);
-            short oldCreatureId = creatureIdsByEntityId.put(entity.getId(), newCreatureId);
-            if (newOwnerId != oldOwnerId || newCreatureId != oldCreatureId) {
-                if (creatureControls.containsKey(newOwnerId)) {
-                    creatureControls.get(newOwnerId).onCreatureAdded(entity.getId(), kwdFile.getCreature(newCreatureId));
-                }
-                if (creatureControls.containsKey(oldOwnerId)) {
-                    creatureControls.get(oldOwnerId).onCreatureRemoved(entity.getId(), kwdFile.getCreature(oldCreatureId));
-                }
-            }
-        }
+    @Override
+    public Set<Class<?>> getWriteTypes() {
+        return WRITE_TYPES;
     }
 
     @Override
@@ -113,7 +99,7 @@ public final class PlayerCreatureSystem implements IGameLogicUpdatable {
 
     @Override
     public void stop() {
-        creatureEntities.release();
+        creaturesByOwnerAndType.release();
     }
 
 }
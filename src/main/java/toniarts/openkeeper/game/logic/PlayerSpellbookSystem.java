@@ -39,7 +39,10 @@ import toniarts.openkeeper.tools.convert.map.KwdFile;
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
-public final class PlayerSpellbookSystem implements IGameLogicUpdatable {
+public final class PlayerSpellbookSystem implements IGameLogicUpdatable, IGameLogicAccess {
+
+    private static final Set<Class<?>> READ_TYPES = Set.of(Spellbook.class, Stored.class, Owner.class);
+    private static final Set<Class<?>> WRITE_TYPES = Set.of(IPlayerController.class);
 
     private final KwdFile kwdFile;
     private final EntitySet spellbookEntities;
@@ -113,6 +116,16 @@ public final class PlayerSpellbookSystem implements IGameLogicUpdatable {
         }
     }
 
+    @Override
+    public Set<Class<?>> getReadTypes() {
+        return READ_TYPES;
+    }
+
+    @Override
+    public Set<Class<?>> getWriteTypes() {
+        return WRITE_TYPES;
+    }
+
     @Override
     public void start() {
 
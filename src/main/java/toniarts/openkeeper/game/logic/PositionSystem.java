@@ -21,13 +21,20 @@ import com.simsilica.es.EntityData;
 import com.simsilica.es.EntityId;
 import com.simsilica.es.EntitySet;
 import toniarts.openkeeper.utils.Point;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 import toniarts.openkeeper.game.component.DoorComponent;
 import toniarts.openkeeper.game.component.Owner;
 import toniarts.openkeeper.game.component.Position;
@@ -52,16 +59,39 @@ import toniarts.openkeeper.utils.WorldUtils;
  */
 public final class PositionSystem implements IGameLogicUpdatable, IEntityPositionLookup {
 
+    private static final long ALL_PLAYERS = -1L;
+    private static final int[] SENSE_DIRECTIONS_X = {1, -1, 0, 0};
+    private static final int[] SENSE_DIRECTIONS_Y = {0, 0, 1, -1};
+
     private final EntityData entityData;
     private final IMapController mapController;
     private final IObjectsController objectsController;
     private final EntitySet positionedEntities;
-    private final Set<EntityId>[][] entitiesByMapTile;
-    private final Set<EntityId>[][] obstaclesByMapTile;
-    private final Map<EntityId, IMapTileInformation> mapTilesByEntities = new HashMap<>();
+    private final EntitySet doorEntities;
+    private final EntitySet doorOwners;
+    private final TileEntityIndex entitiesByMapTile;
+    private final int width;
+    private final int height;
     private final Map<Class, IEntityWrapper<?>> entityWrappers = new HashMap<>();
+    /**
+     * Plain controllers for the positioned entities that no wrapper claims,
+     * the wrappers keep their own
+     */
+    private final Map<EntityId, IEntityController> entityControllers = new ConcurrentHashMap<>();
+
+    /**
+     * Tiles blocked by doors, a bit for each player ID
+     */
+    private final long[] blockedTiles;
+    private final Map<EntityId, Integer> doorTilesByEntities = new HashMap<>();
+    private volatile long doorEpoch = 0;
 
     private final Map<EntityId, Set<EntityId>> sensedEntitiesByEntity = new HashMap<>();
+    private final Map<Long, Set<EntityId>> sensedEntitiesByTile = new HashMap<>();
+    private final int[] senseVisited;
+    private final int[] senseQueue;
+    private final int[] senseDepths;
+    private int senseId = 0;
 
     public PositionSystem(IMapController mapController, EntityData entityData, ICreaturesController creaturesController, IDoorsController doorsController, IObjectsController objectsController) {
         this.entityData = entityData;
@@ -71,72 +101,50 @@ public final class PositionSystem implements IGameLogicUpdatable, IEntityPositio
         entityWrappers.put(IDoorController.class, doorsController);
 
         // Initialize data structures
-        int width = mapController.getMapData().getWidth();
-        int height = mapController.getMapData().getHeight();
-        entitiesByMapTile = initializeMatrix(width, height);
-        obstaclesByMapTile = initializeMatrix(width, height);
+        width = mapController.getMapData().getWidth();
+        height = mapController.getMapData().getHeight();
+        entitiesByMapTile = new TileEntityIndex(width, height);
+        senseVisited = new int[width * height];
+        senseQueue = new int[width * height];
+        senseDepths = new int[width * height];
+
+        blockedTiles = new long[width * height];
 
         positionedEntities = entityData.getEntities(Position.class);
         processAddedEntities(positionedEntities);
-    }
 
-    private static Set<EntityId>[][] initializeMatrix(int width, int height) {
-        Set<EntityId>[][] matrix = new Set[width][height];
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                matrix[x][y] = new HashSet<>();
-            }
-        }
-
-        return matrix;
+        // Doors without owners block too, the owners are followed separately to catch the captures
+        doorEntities = entityData.getEntities(DoorComponent.class, Position.class);
+        doorOwners = entityData.getEntities(DoorComponent.class, Owner.class);
+        processDoorChanges();
     }
 
     @Override
     public void processTick(float tpf) {
         // This is just a cache for a tick
         sensedEntitiesByEntity.clear();
+        sensedEntitiesByTile.clear();
 
         if (positionedEntities.applyChanges()) {
             processAddedEntities(positionedEntities.getAddedEntities());
             processDeletedEntities(positionedEntities.getRemovedEntities());
             processChangedEntities(positionedEntities.getChangedEntities());
         }
+
+        boolean doorsChanged = doorEntities.applyChanges();
+        if (doorOwners.applyChanges() || doorsChanged) {
+            processDoorChanges();
+        }
     }
 
     private void processChangedEntities(Set<Entity> entities) {
-        // Update
+
+        // Update, the index ignores the moves within the same tile
         for (Entity entity : entities) {
             Point p = WorldUtils.vectorToPoint(entity.get(Position.class).position);
             IMapTileInformation currentMapTile = mapController.getMapData().getTile(p);
 
-            IMapTileInformation previousMapTile = mapTilesByEntities.get(entity.getId());
-            if (currentMapTile.equals(previousMapTile)) {
-                continue;
-            }
-
-            int x = previousMapTile.getX();
-            int y = previousMapTile.getY();
-
-            // Moved
-            mapTilesByEntities.put(entity.getId(), currentMapTile);
-            entitiesByMapTile[x][y].remove(entity.getId());
-
-            // Obstacles
-            obstaclesByMapTile[x][y].remove(entity.getId());
-
-            addEntityToTile(currentMapTile, entity);
-        }
-    }
-
-    private void addEntityToTile(IMapTileInformation mapTile, Entity entity) {
-        int x = mapTile.getX();
-        int y = mapTile.getY();
-
-        entitiesByMapTile[x][y].add(entity.getId());
-
-        // Obstacles
-        if (isObstacle(entityData, entity.getId())) {
-            obstaclesByMapTile[x][y].add(entity.getId());
+            entitiesByMapTile.move(entity.getId(), currentMapTile.getIndex());
         }
     }
 
@@ -144,12 +152,8 @@ public final class PositionSystem implements IGameLogicUpdatable, IEntityPositio
 
         // Remove
         for (Entity entity : entities) {
-            IMapTileInformation mapTile = mapTilesByEntities.remove(entity.getId());
-
-            int x = mapTile.getX();
-            int y = mapTile.getY();
-            entitiesByMapTile[x][y].remove(entity.getId());
-            obstaclesByMapTile[x][y].remove(entity.getId());
+            entitiesByMapTile.remove(entity.getId());
+            entityControllers.remove(entity.getId());
         }
     }
 
@@ -159,9 +163,8 @@ public final class PositionSystem implements IGameLogicUpdatable, IEntityPositio
         for (Entity entity : entities) {
             Point p = WorldUtils.vectorToPoint(entity.get(Position.class).position);
             IMapTileInformation mapTile = mapController.getMapData().getTile(p);
-            mapTilesByEntities.put(entity.getId(), mapTile);
 
-            addEntityToTile(mapTile, entity);
+            entitiesByMapTile.add(entity.getId(), mapTile.getIndex());
         }
     }
 
@@ -177,17 +180,163 @@ public final class PositionSystem implements IGameLogicUpdatable, IEntityPositio
 
     @Override
     public List<EntityId> getEntitiesInLocation(int x, int y) {
-        Set<EntityId> entityIds = entitiesByMapTile[x][y];
-        if (entityIds.isEmpty()) {
+        int tile = y * width + x;
+        if (entitiesByMapTile.getCount(tile) == 0) {
+            return Collections.emptyList();
+        }
+
+        List<EntityId> entityIds = new ArrayList<>(entitiesByMapTile.getCount(tile));
+        addEntities(tile, entityIds);
+
+        return entityIds;
+    }
+
+    private void addEntities(int tile, Collection<EntityId> entityIds) {
+        for (int slot = entitiesByMapTile.getFirst(tile); slot != TileEntityIndex.NONE; slot = entitiesByMapTile.getNext(slot)) {
+            entityIds.add(entitiesByMapTile.getEntityId(slot));
+        }
+    }
+
+    @Override
+    public boolean forEachEntityInLocation(Point p, EntityVisitor visitor) {
+        return forEachEntityInLocation(p.x, p.y, visitor);
+    }
+
+    @Override
+    public boolean forEachEntityInLocation(IMapTileInformation mapTile, EntityVisitor visitor) {
+        return forEachEntityInLocation(mapTile.getX(), mapTile.getY(), visitor);
+    }
+
+    @Override
+    public boolean forEachEntityInLocation(int x, int y, EntityVisitor visitor) {
+        for (int slot = entitiesByMapTile.getFirst(y * width + x); slot != TileEntityIndex.NONE; slot = entitiesByMapTile.getNext(slot)) {
+            if (!visitor.visit(entitiesByMapTile.getEntityId(slot))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public int getEntityCountInLocation(int x, int y) {
+        return entitiesByMapTile.getCount(y * width + x);
+    }
+
+    @Override
+    public boolean forEachEntityInArea(int minX, int minY, int maxX, int maxY, Predicate<EntityId> filter, EntityVisitor visitor) {
+        int x1 = Math.max(0, minX);
+        int y1 = Math.max(0, minY);
+        int x2 = Math.min(width - 1, maxX);
+        int y2 = Math.min(height - 1, maxY);
+        for (int y = y1; y <= y2; y++) {
+            for (int x = x1; x <= x2; x++) {
+                if (!visitTile(y * width + x, filter, visitor)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean forEachEntityInRadius(Point center, float radius, Predicate<EntityId> filter, EntityVisitor visitor) {
+        int r = (int) radius;
+        float radiusSquared = radius * radius;
+        int y1 = Math.max(0, center.y - r);
+        int y2 = Math.min(height - 1, center.y + r);
+        int x1 = Math.max(0, center.x - r);
+        int x2 = Math.min(width - 1, center.x + r);
+        for (int y = y1; y <= y2; y++) {
+            int dy = y - center.y;
+            for (int x = x1; x <= x2; x++) {
+                int dx = x - center.x;
+                if (dx * dx + dy * dy <= radiusSquared && !visitTile(y * width + x, filter, visitor)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private boolean visitTile(int tile, Predicate<EntityId> filter, EntityVisitor visitor) {
+        for (int slot = entitiesByMapTile.getFirst(tile); slot != TileEntityIndex.NONE; slot = entitiesByMapTile.getNext(slot)) {
+            EntityId entityId = entitiesByMapTile.getEntityId(slot);
+            if ((filter == null || filter.test(entityId)) && !visitor.visit(entityId)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public List<EntityId> findNearestEntities(Point center, int count, float maxRadius, Predicate<EntityId> filter) {
+        if (count <= 0) {
             return Collections.emptyList();
         }
 
-        return new ArrayList<>(entityIds);
+        NearestEntities nearestEntities = new NearestEntities(count);
+        findNearestEntities(center, maxRadius, filter, nearestEntities);
+
+        return nearestEntities.toList();
+    }
+
+    @Override
+    public EntityId findNearestEntity(Point center, float maxRadius, Predicate<EntityId> filter) {
+        NearestEntities nearestEntities = new NearestEntities(1);
+        findNearestEntities(center, maxRadius, filter, nearestEntities);
+
+        return nearestEntities.size > 0 ? nearestEntities.entityIds[0] : null;
+    }
+
+    /**
+     * Searches ring by ring outwards from the center. Every tile on ring d is
+     * at least d tiles away, so once the candidates found are closer than
+     * that, the search is done
+     */
+    private void findNearestEntities(Point center, float maxRadius, Predicate<EntityId> filter, NearestEntities nearestEntities) {
+        int maxRing = Math.min((int) maxRadius, Math.max(width, height));
+        float maxDistanceSquared = maxRadius * maxRadius;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            if (nearestEntities.isFull() && nearestEntities.getWorstDistance() <= ring * ring) {
+                return;
+            }
+
+            for (int dy = -ring; dy <= ring; dy++) {
+
+                // The top and bottom rows whole, from the rest just the edges
+                int step = (dy == -ring || dy == ring) ? 1 : Math.max(1, 2 * ring);
+                for (int dx = -ring; dx <= ring; dx += step) {
+                    int x = center.x + dx;
+                    int y = center.y + dy;
+                    int distanceSquared = dx * dx + dy * dy;
+                    if (x < 0 || y < 0 || x >= width || y >= height || distanceSquared > maxDistanceSquared) {
+                        continue;
+                    }
+
+                    int tile = y * width + x;
+                    for (int slot = entitiesByMapTile.getFirst(tile); slot != TileEntityIndex.NONE; slot = entitiesByMapTile.getNext(slot)) {
+                        EntityId entityId = entitiesByMapTile.getEntityId(slot);
+                        if (nearestEntities.accepts(distanceSquared) && (filter == null || filter.test(entityId))) {
+                            nearestEntities.add(entityId, distanceSquared);
+                        }
+                    }
+                }
+            }
+        }
     }
 
     @Override
     public IMapTileInformation getEntityLocation(EntityId entityId) {
-        return mapTilesByEntities.get(entityId);
+        int tile = entitiesByMapTile.getTile(entityId);
+        if (tile == TileEntityIndex.NONE) {
+            return null;
+        }
+
+        return mapController.getMapData().getTile(tile % width, tile / width);
     }
 
     @Override
@@ -202,23 +351,27 @@ public final class PositionSystem implements IGameLogicUpdatable, IEntityPositio
 
     @Override
     public <T extends IEntityController> List<T> getEntityTypesInLocation(int x, int y, Class<T> clazz) {
-        Set<EntityId> entityIds = entitiesByMapTile[x][y];
-        if (entityIds.isEmpty()) {
+        int tile = y * width + x;
+        if (entitiesByMapTile.getCount(tile) == 0) {
             return Collections.emptyList();
         }
 
         IEntityWrapper<T> entityWrapper = getEntityWrapper(clazz);
 
-        List<T> entities = new ArrayList<>(entityIds.size());
-        for (EntityId entityId : new ArrayList<>(entityIds)) {
+        List<T> entities = null;
+        for (int slot = entitiesByMapTile.getFirst(tile); slot != TileEntityIndex.NONE; slot = entitiesByMapTile.getNext(slot)) {
+            EntityId entityId = entitiesByMapTile.getEntityId(slot);
             if (!entityWrapper.isValidEntity(entityId)) {
                 continue;
             }
 
+            if (entities == null) {
+                entities = new ArrayList<>(entitiesByMapTile.getCount(tile));
+            }
             entities.add(entityWrapper.createController(entityId));
         }
 
-        return entities;
+        return entities != null ? entities : Collections.emptyList();
     }
 
     @Override
@@ -233,7 +386,12 @@ public final class PositionSystem implements IGameLogicUpdatable, IEntityPositio
         }
 
         // Hmm, I think this is safe, just create the general one
-        return new EntityController(entityId, entityData, objectsController, mapController);
+        // Only the positioned ones are cached, we know when they disappear
+        if (entitiesByMapTile.getTile(entityId) == TileEntityIndex.NONE) {
+            return new EntityController(entityId, entityData, objectsController, mapController);
+        }
+
+        return entityControllers.computeIfAbsent(entityId, (id) -> new EntityController(id, entityData, objectsController, mapController));
     }
 
     @Override
@@ -259,27 +417,12 @@ public final class PositionSystem implements IGameLogicUpdatable, IEntityPositio
     @Override
     public void stop() {
         positionedEntities.release();
-        mapTilesByEntities.clear();
+        doorEntities.release();
+        doorOwners.release();
+        doorTilesByEntities.clear();
         entityWrappers.clear();
-        clearMatrix(entitiesByMapTile);
-        clearMatrix(obstaclesByMapTile);
-    }
-
-    private static void clearMatrix(Set<EntityId>[][] matrix) {
-        for (int x = 0; x < matrix.length; x++) {
-            for (int y = 0; y < matrix[x].length; y++) {
-                matrix[x][y] = null;
-            }
-        }
-    }
-
-    private static boolean isObstacle(EntityData entityData, EntityId id) {
-
-        // Objects have solid obstacle property, but that in my opinion doesn't block the whole tile
-        // More of a physics thingie that...
-        // So only doors here now...
-        DoorComponent doorComponent = entityData.getComponent(id, DoorComponent.class);
-        return doorComponent != null && !doorComponent.blueprint;
+        entityControllers.clear();
+        entitiesByMapTile.clear();
     }
 
     @Override
@@ -294,27 +437,54 @@ public final class PositionSystem implements IGameLogicUpdatable, IEntityPositio
 
     @Override
     public boolean isTileBlocked(int x, int y, short playerId) {
-        Set<EntityId> entityIds = obstaclesByMapTile[x][y];
-        if (entityIds.isEmpty()) {
-            return false;
+        return (blockedTiles[y * width + x] & (1L << playerId)) != 0;
+    }
+
+    private void processDoorChanges() {
+
+        // Doors are few and rarely change, just rebuild them all
+        for (int tile : doorTilesByEntities.values()) {
+            blockedTiles[tile] = 0;
         }
+        doorTilesByEntities.clear();
+
+        for (Entity entity : doorEntities) {
+            DoorComponent doorComponent = entity.get(DoorComponent.class);
 
-        for (EntityId entityId : entityIds) {
-            DoorComponent doorComponent = entityData.getComponent(entityId, DoorComponent.class);
-            if (doorComponent == null) {
+            // Objects have solid obstacle property, but that in my opinion doesn't block the whole tile
+            // More of a physics thingie that...
+            // So only doors here now...
+            if (doorComponent.blueprint) {
                 continue;
             }
 
-            if (doorComponent.locked) {
-                return true;
-            }
+            IMapTileInformation mapTile = mapController.getMapData().getTile(WorldUtils.vectorToPoint(entity.get(Position.class).position));
+            doorTilesByEntities.put(entity.getId(), mapTile.getIndex());
+            blockedTiles[mapTile.getIndex()] |= getBlockedPlayers(doorComponent, getOwner(entity.getId()));
+        }
+        doorEpoch++;
+    }
 
-            Owner owner = entityData.getComponent(entityId, Owner.class);
+    @Override
+    public long getDoorEpoch() {
+        return doorEpoch;
+    }
 
-            return owner == null || owner.ownerId != playerId;
+    private Owner getOwner(EntityId doorId) {
+        Entity entity = doorOwners.getEntity(doorId);
+        return entity != null ? entity.get(Owner.class) : null;
+    }
+
+    /**
+     * Get the players the door blocks, as a bit mask of player IDs. A door
+     * without an owner blocks everybody
+     */
+    private static long getBlockedPlayers(DoorComponent doorComponent, Owner owner) {
+        if (doorComponent.locked || owner == null) {
+            return ALL_PLAYERS;
         }
 
-        return false;
+        return ALL_PLAYERS & ~(1L << owner.ownerId);
     }
 
     @Override
@@ -325,35 +495,192 @@ public final class PositionSystem implements IGameLogicUpdatable, IEntityPositio
         }
 
         return sensedEntitiesByEntity.computeIfAbsent(entityId, (id) -> {
-            Set<EntityId> sensedEntities = new HashSet<>();
 
             // Get creatures we sense
             IMapTileInformation tile = getEntityLocation(id);
+            if (tile == null) {
+                return Collections.emptySet();
+            }
+
             // TODO: Every creature has hearing & vision 4, so I can just cheat this in, but should fix eventually
             // https://github.com/tonihele/OpenKeeper/issues/261
-            if (tile != null) {
-                addSensedEntities(tile, (int) Math.max(senses.distanceCanHear, senses.distanceCanSee), sensedEntities);
-            }
+            int range = (int) Math.max(senses.distanceCanHear, senses.distanceCanSee);
 
-            // Remove us, the caller
-            sensedEntities.remove(id);
+            // Everybody on the same tile with the same senses senses the same, apart from themselves
+            Set<EntityId> sensedEntities = sensedEntitiesByTile.computeIfAbsent(((long) range << 32) | tile.getIndex(),
+                    (key) -> senseEntities(tile, range));
 
-            return sensedEntities;
+            return new SensedEntities(sensedEntities, id);
         });
     }
 
-    private void addSensedEntities(IMapTileInformation tile, int range, Set<EntityId> sensedEntities) {
-        if (tile == null || mapController.getTerrain(tile).getFlags().contains(Terrain.TerrainFlag.SOLID)
-                || range-- < 0) {
-            return;
+    /**
+     * Breadth first search of the tiles within the range, through non-solid
+     * tiles. Collects everybody there
+     */
+    private Set<EntityId> senseEntities(IMapTileInformation tile, int range) {
+        Set<EntityId> sensedEntities = new HashSet<>();
+        if (range < 0 || isSolid(tile)) {
+            return sensedEntities;
+        }
+
+        int id = nextSenseId();
+        int head = 0;
+        int tail = 0;
+        int start = tile.getIndex();
+        senseVisited[start] = id;
+        senseQueue[tail] = start;
+        senseDepths[tail++] = 0;
+        while (head < tail) {
+            int index = senseQueue[head];
+            int depth = senseDepths[head++];
+            addEntities(index, sensedEntities);
+            if (depth >= range) {
+                continue;
+            }
+
+            int x = index % width;
+            int y = index / width;
+            for (int i = 0; i < SENSE_DIRECTIONS_X.length; i++) {
+                IMapTileInformation neighbour = mapController.getMapData().getTile(x + SENSE_DIRECTIONS_X[i], y + SENSE_DIRECTIONS_Y[i]);
+                if (neighbour == null || senseVisited[neighbour.getIndex()] == id) {
+                    continue;
+                }
+
+                senseVisited[neighbour.getIndex()] = id;
+                if (isSolid(neighbour)) {
+                    continue;
+                }
+
+                senseQueue[tail] = neighbour.getIndex();
+                senseDepths[tail++] = depth + 1;
+            }
+        }
+
+        return sensedEntities;
+    }
+
+    private boolean isSolid(IMapTileInformation tile) {
+        return mapController.getTerrain(tile).getFlags().contains(Terrain.TerrainFlag.SOLID);
+    }
+
+    private int nextSenseId() {
+        if (senseId == Integer.MAX_VALUE) {
+            Arrays.fill(senseVisited, 0);
+            senseId = 0;
+        }
+
+        return ++senseId;
+    }
+
+    /**
+     * View of the entities sensed from a tile, without the one sensing
+     */
+    private static final class SensedEntities extends AbstractSet<EntityId> {
+
+        private final Set<EntityId> sensedEntities;
+        private final EntityId entityId;
+
+        public SensedEntities(Set<EntityId> sensedEntities, EntityId entityId) {
+            this.sensedEntities = sensedEntities;
+            this.entityId = entityId;
+        }
+
+        @Override
+        public Iterator<EntityId> iterator() {
+            Iterator<EntityId> iter = sensedEntities.iterator();
+            return new Iterator<>() {
+
+                private EntityId next = advance();
+
+                private EntityId advance() {
+                    while (iter.hasNext()) {
+                        EntityId id = iter.next();
+                        if (!entityId.equals(id)) {
+                            return id;
+                        }
+                    }
+
+                    return null;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public EntityId next() {
+                    if (next == null) {
+                        throw new NoSuchElementException();
+                    }
+                    EntityId result = next;
+                    next = advance();
+
+                    return result;
+                }
+
+            };
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return !entityId.equals(o) && sensedEntities.contains(o);
+        }
+
+        @Override
+        public int size() {
+            return sensedEntities.size() - (sensedEntities.contains(entityId) ? 1 : 0);
+        }
+
+    }
+
+    /**
+     * The closest entities found so far, sorted by the distance
+     */
+    private static final class NearestEntities {
+
+        private final EntityId[] entityIds;
+        private final int[] distances;
+        private int size = 0;
+
+        public NearestEntities(int count) {
+            entityIds = new EntityId[count];
+            distances = new int[count];
+        }
+
+        private boolean isFull() {
+            return size == entityIds.length;
+        }
+
+        private int getWorstDistance() {
+            return distances[size - 1];
+        }
+
+        private boolean accepts(int distance) {
+            return !isFull() || distance < getWorstDistance();
         }
 
-        sensedEntities.addAll(getEntitiesInLocation(tile));
+        private void add(EntityId entityId, int distance) {
+            int i = isFull() ? size - 1 : size++;
+            while (i > 0 && distances[i - 1] > distance) {
+                entityIds[i] = entityIds[i - 1];
+                distances[i] = distances[i - 1];
+                i--;
+            }
+            entityIds[i] = entityId;
+            distances[i] = distance;
+        }
+
+        private List<EntityId> toList() {
+            List<EntityId> result = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                result.add(entityIds[i]);
+            }
+
+            return result;
+        }
 
-        addSensedEntities(mapController.getMapData().getTile(tile.getX() + 1, tile.getY()), range, sensedEntities);
-        addSensedEntities(mapController.getMapData().getTile(tile.getX() - 1, tile.getY()), range, sensedEntities);
-        addSensedEntities(mapController.getMapData().getTile(tile.getX(), tile.getY() + 1), range, sensedEntities);
-        addSensedEntities(mapController.getMapData().getTile(tile.getX(), tile.getY() - 1), range, sensedEntities);
     }
 
 }
@@ -0,0 +1,306 @@
+/*
+ * Copyright (C) 2014-2026 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.logic;
+
+import com.simsilica.es.EntityId;
+import java.util.Arrays;
+
+/**
+ * Flat spatial index of the entities by map tile. Each entity has a slot, and
+ * the slots on the same tile form an intrusive doubly linked list. So moving
+ * an entity is just relinking its slot and walking a tile creates no garbage.
+ * The slots are found by the entity IDs from a primitive open addressing
+ * table.<br>
+ * Not thread safe, the index is meant to be modified from the game logic
+ * thread only.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+final class TileEntityIndex {
+
+    public static final int NONE = -1;
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final long EMPTY_KEY = Long.MIN_VALUE;
+
+    private final int tileCount;
+    private final int[] heads;
+    private final int[] counts;
+
+    // The slots
+    private EntityId[] entityIds;
+    private int[] tiles;
+    private int[] next;
+    private int[] previous;
+    private int usedSlots = 0;
+    private int freeSlot = NONE;
+    private int size = 0;
+
+    // Entity ID -> slot
+    private long[] keys;
+    private int[] values;
+    private int mask;
+
+    public TileEntityIndex(int width, int height) {
+        tileCount = width * height;
+        heads = new int[tileCount];
+        counts = new int[tileCount];
+        Arrays.fill(heads, NONE);
+
+        entityIds = new EntityId[INITIAL_CAPACITY];
+        tiles = new int[INITIAL_CAPACITY];
+        next = new int[INITIAL_CAPACITY];
+        previous = new int[INITIAL_CAPACITY];
+
+        keys = new long[INITIAL_CAPACITY * 2];
+        values = new int[INITIAL_CAPACITY * 2];
+        mask = keys.length - 1;
+        Arrays.fill(keys, EMPTY_KEY);
+    }
+
+    /**
+     * Add an entity to a tile
+     *
+     * @param entityId the entity
+     * @param tile the tile index
+     */
+    public void add(EntityId entityId, int tile) {
+        if (getSlot(entityId.getId()) != NONE) {
+            remove(entityId);
+        }
+
+        int slot = allocateSlot();
+        entityIds[slot] = entityId;
+        link(slot, tile);
+        putSlot(entityId.getId(), slot);
+        size++;
+    }
+
+    /**
+     * Move an entity to a new tile
+     *
+     * @param entityId the entity
+     * @param tile the new tile index
+     * @return the previous tile index, {@link #NONE} if the entity is not
+     * indexed
+     */
+    public int move(EntityId entityId, int tile) {
+        int slot = getSlot(entityId.getId());
+        if (slot == NONE) {
+            return NONE;
+        }
+
+        int previousTile = tiles[slot];
+        if (previousTile != tile) {
+            unlink(slot);
+            link(slot, tile);
+        }
+
+        return previousTile;
+    }
+
+    /**
+     * Remove an entity
+     *
+     * @param entityId the entity
+     * @return the tile index the entity was in, {@link #NONE} if the entity is
+     * not indexed
+     */
+    public int remove(EntityId entityId) {
+        int slot = removeSlot(entityId.getId());
+        if (slot == NONE) {
+            return NONE;
+        }
+
+        int tile = tiles[slot];
+        unlink(slot);
+        entityIds[slot] = null;
+        tiles[slot] = NONE;
+        next[slot] = freeSlot;
+        freeSlot = slot;
+        size--;
+
+        return tile;
+    }
+
+    /**
+     * Get the tile of an entity
+     *
+     * @param entityId the entity
+     * @return the tile index, {@link #NONE} if the entity is not indexed
+     */
+    public int getTile(EntityId entityId) {
+        int slot = getSlot(entityId.getId());
+        return slot == NONE ? NONE : tiles[slot];
+    }
+
+    public int getCount(int tile) {
+        return counts[tile];
+    }
+
+    /**
+     * Get the first slot on a tile, walk the rest with
+     * {@link #getNext(int)}
+     *
+     * @param tile the tile index
+     * @return the first slot, {@link #NONE} if the tile is empty
+     */
+    public int getFirst(int tile) {
+        return heads[tile];
+    }
+
+    public int getNext(int slot) {
+        return next[slot];
+    }
+
+    public EntityId getEntityId(int slot) {
+        return entityIds[slot];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(heads, NONE);
+        Arrays.fill(counts, 0);
+        Arrays.fill(entityIds, null);
+        Arrays.fill(keys, EMPTY_KEY);
+        usedSlots = 0;
+        freeSlot = NONE;
+        size = 0;
+    }
+
+    private void link(int slot, int tile) {
+        int head = heads[tile];
+        tiles[slot] = tile;
+        previous[slot] = NONE;
+        next[slot] = head;
+        if (head != NONE) {
+            previous[head] = slot;
+        }
+        heads[tile] = slot;
+        counts[tile]++;
+    }
+
+    private void unlink(int slot) {
+        int tile = tiles[slot];
+        if (previous[slot] != NONE) {
+            next[previous[slot]] = next[slot];
+        } else {
+            heads[tile] = next[slot];
+        }
+        if (next[slot] != NONE) {
+            previous[next[slot]] = previous[slot];
+        }
+        counts[tile]--;
+    }
+
+    private int allocateSlot() {
+        if (freeSlot != NONE) {
+            int slot = freeSlot;
+            freeSlot = next[slot];
+            return slot;
+        }
+
+        if (usedSlots == entityIds.length) {
+            int capacity = entityIds.length * 2;
+            entityIds = Arrays.copyOf(entityIds, capacity);
+            tiles = Arrays.copyOf(tiles, capacity);
+            next = Arrays.copyOf(next, capacity);
+            previous = Arrays.copyOf(previous, capacity);
+        }
+
+        return usedSlots++;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private int getSlot(long key) {
+        for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+            if (keys[i] == EMPTY_KEY) {
+                return NONE;
+            }
+        }
+    }
+
+    private void putSlot(long key, int slot) {
+
+        // Keep the table at most half full
+        if ((size + 1) * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+
+        int i = hash(key) & mask;
+        while (keys[i] != EMPTY_KEY && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = slot;
+    }
+
+    private int removeSlot(long key) {
+        int i = hash(key) & mask;
+        while (keys[i] != key) {
+            if (keys[i] == EMPTY_KEY) {
+                return NONE;
+            }
+            i = (i + 1) & mask;
+        }
+        int slot = values[i];
+
+        // Shift the following entries back so that the probing chains stay intact
+        int gap = i;
+        for (int j = (gap + 1) & mask; keys[j] != EMPTY_KEY; j = (j + 1) & mask) {
+            int home = hash(keys[j]) & mask;
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        keys[gap] = EMPTY_KEY;
+
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        Arrays.fill(keys, EMPTY_KEY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY_KEY) {
+                int j = hash(oldKeys[i]) & mask;
+                while (keys[j] != EMPTY_KEY) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+}
@@ -0,0 +1,480 @@
+/*
+ * Copyright (C) 2014-2026 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.logic;
+
+import com.simsilica.es.Entity;
+import com.simsilica.es.EntityData;
+import com.simsilica.es.EntityId;
+import com.simsilica.es.EntitySet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import toniarts.openkeeper.game.component.Owner;
+import toniarts.openkeeper.game.component.Position;
+import toniarts.openkeeper.game.component.Senses;
+import toniarts.openkeeper.game.controller.IMapController;
+import toniarts.openkeeper.game.listener.TerrainChangeListener;
+import toniarts.openkeeper.game.map.IMapTileInformation;
+import toniarts.openkeeper.tools.convert.map.Player;
+import toniarts.openkeeper.tools.convert.map.Terrain;
+import toniarts.openkeeper.utils.Point;
+import toniarts.openkeeper.utils.WorldUtils;
+
+/**
+ * Maintains the fog of war for each player. The players see around their own
+ * tiles and whatever their creatures see. Each tile keeps a count of the
+ * player's viewers seeing it, so a creature moving only takes away its old
+ * view and adds the new one. The views of the creatures are shadow cast
+ * through the solid terrain, and cached per tile and sight range.<br>
+ * The work per tick depends on the changes only, not on the map size or the
+ * number of creatures.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class VisibilitySystem implements IGameLogicUpdatable, IVisibilityLookup, TerrainChangeListener {
+
+    private static final int FOOTPRINT_CACHE_SIZE = 4096;
+
+    /**
+     * Own tiles reveal themselves and their neighbours
+     */
+    private static final int OWNED_TILE_RADIUS = 1;
+
+    /**
+     * The coordinate transformations for each of the eight octants
+     */
+    private static final int[][] OCTANTS = {
+        {1, 0, 0, -1, -1, 0, 0, 1},
+        {0, 1, -1, 0, 0, -1, 1, 0},
+        {0, 1, 1, 0, 0, -1, -1, 0},
+        {1, 0, 0, 1, -1, 0, 0, -1}
+    };
+
+    private final IMapController mapController;
+    private final IEntityPositionLookup entityPositionLookup;
+    private final EntitySet viewerEntities;
+    private final int width;
+    private final int height;
+    private final Map<Short, PlayerVisibility> playerVisibilities = new ConcurrentHashMap<>();
+    private final Map<EntityId, Viewer> viewers = new HashMap<>();
+    private final short[] tileOwners;
+    private final Map<Long, int[]> footprints;
+    private final Queue<Point> changedTiles = new ConcurrentLinkedQueue<>();
+    private final List<Point> changedTileBatch = new ArrayList<>();
+
+    // Shadow casting buffers
+    private final int[] castVisited;
+    private final int[] castTiles;
+    private int castId = 0;
+    private int castCount = 0;
+
+    public VisibilitySystem(IMapController mapController, EntityData entityData, IEntityPositionLookup entityPositionLookup) {
+        this.mapController = mapController;
+        this.entityPositionLookup = entityPositionLookup;
+
+        width = mapController.getMapData().getWidth();
+        height = mapController.getMapData().getHeight();
+        tileOwners = new short[width * height];
+        castVisited = new int[width * height];
+        castTiles = new int[width * height];
+        footprints = new LinkedHashMap<>(FOOTPRINT_CACHE_SIZE, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, int[]> eldest) {
+                return size() > FOOTPRINT_CACHE_SIZE;
+            }
+
+        };
+
+        // The initial view of the owned tiles
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                updateTileOwner(mapController.getMapData().getTile(x, y));
+            }
+        }
+
+        viewerEntities = entityData.getEntities(Position.class, Owner.class, Senses.class);
+        processAddedViewers(viewerEntities);
+
+        mapController.addListener(this);
+    }
+
+    @Override
+    public void processTick(float tpf) {
+        if (!changedTiles.isEmpty()) {
+            processTerrainChanges();
+        }
+
+        if (viewerEntities.applyChanges()) {
+            processAddedViewers(viewerEntities.getAddedEntities());
+            processDeletedViewers(viewerEntities.getRemovedEntities());
+            processChangedViewers(viewerEntities.getChangedEntities());
+        }
+    }
+
+    @Override
+    public void onTerrainChange(Collection<Point> changedTiles) {
+
+        // Might come from any thread, handle on the next tick
+        this.changedTiles.addAll(changedTiles);
+    }
+
+    private void processTerrainChanges() {
+        changedTileBatch.clear();
+        Point p;
+        while ((p = changedTiles.poll()) != null) {
+            changedTileBatch.add(p);
+            updateTileOwner(mapController.getMapData().getTile(p));
+        }
+
+        // The terrain might now block or let through views
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        for (Point changedTile : changedTileBatch) {
+            minX = Math.min(minX, changedTile.x);
+            minY = Math.min(minY, changedTile.y);
+            maxX = Math.max(maxX, changedTile.x);
+            maxY = Math.max(maxY, changedTile.y);
+        }
+
+        Iterator<Long> iter = footprints.keySet().iterator();
+        while (iter.hasNext()) {
+            long key = iter.next();
+            int tile = (int) key;
+            int radius = (int) (key >>> 32);
+            if (isNear(tile, radius, minX, minY, maxX, maxY)) {
+                iter.remove();
+            }
+        }
+
+        for (Viewer viewer : viewers.values()) {
+            if (isNear(viewer.tile, viewer.radius, minX, minY, maxX, maxY)) {
+                PlayerVisibility playerVisibility = getPlayerVisibility(viewer.ownerId);
+                playerVisibility.remove(viewer.footprint);
+                viewer.footprint = getFootprint(viewer.tile, viewer.radius);
+                playerVisibility.add(viewer.footprint);
+            }
+        }
+    }
+
+    /**
+     * Is the view from the tile affected by the changes
+     */
+    private boolean isNear(int tile, int radius, int minX, int minY, int maxX, int maxY) {
+        int x = tile % width;
+        int y = tile / width;
+        if (x < minX - radius || x > maxX + radius || y < minY - radius || y > maxY + radius) {
+            return false;
+        }
+
+        for (Point p : changedTileBatch) {
+            if (Math.abs(p.x - x) <= radius && Math.abs(p.y - y) <= radius) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void updateTileOwner(IMapTileInformation mapTile) {
+        if (mapTile == null) {
+            return;
+        }
+
+        short ownerId = mapTile.getOwnerId() == Player.NEUTRAL_PLAYER_ID ? 0 : mapTile.getOwnerId();
+        int index = mapTile.getIndex();
+        short previousOwnerId = tileOwners[index];
+        if (previousOwnerId == ownerId) {
+            return;
+        }
+
+        tileOwners[index] = ownerId;
+        int[] area = getOwnedTileArea(mapTile.getX(), mapTile.getY());
+        if (previousOwnerId != 0) {
+            getPlayerVisibility(previousOwnerId).remove(area);
+        }
+        if (ownerId != 0) {
+            getPlayerVisibility(ownerId).add(area);
+        }
+    }
+
+    private int[] getOwnedTileArea(int x, int y) {
+        int x1 = Math.max(0, x - OWNED_TILE_RADIUS);
+        int y1 = Math.max(0, y - OWNED_TILE_RADIUS);
+        int x2 = Math.min(width - 1, x + OWNED_TILE_RADIUS);
+        int y2 = Math.min(height - 1, y + OWNED_TILE_RADIUS);
+        int[] area = new int[(x2 - x1 + 1) * (y2 - y1 + 1)];
+        int i = 0;
+        for (int areaY = y1; areaY <= y2; areaY++) {
+            for (int areaX = x1; areaX <= x2; areaX++) {
+                area[i++] = areaY * width + areaX;
+            }
+        }
+
+        return area;
+    }
+
+    private void processAddedViewers(Set<Entity> entities) {
+        for (Entity entity : entities) {
+            Viewer viewer = new Viewer();
+            viewer.ownerId = entity.get(Owner.class).ownerId;
+            viewer.tile = getTileIndex(entity);
+            viewer.radius = getRadius(entity);
+            viewer.footprint = getFootprint(viewer.tile, viewer.radius);
+            getPlayerVisibility(viewer.ownerId).add(viewer.footprint);
+            viewers.put(entity.getId(), viewer);
+        }
+    }
+
+    private void processDeletedViewers(Set<Entity> entities) {
+        for (Entity entity : entities) {
+            Viewer viewer = viewers.remove(entity.getId());
+            if (viewer != null) {
+                getPlayerVisibility(viewer.ownerId).remove(viewer.footprint);
+            }
+        }
+    }
+
+    private void processChangedViewers(Set<Entity> entities) {
+        for (Entity entity : entities) {
+            Viewer viewer = viewers.get(entity.getId());
+            short ownerId = entity.get(Owner.class).ownerId;
+            int tile = getTileIndex(entity);
+            int radius = getRadius(entity);
+
+            // Mostly just moving within the tile
+            if (viewer.ownerId == ownerId && viewer.tile == tile && viewer.radius == radius) {
+                continue;
+            }
+
+            getPlayerVisibility(viewer.ownerId).remove(viewer.footprint);
+            viewer.ownerId = ownerId;
+            viewer.tile = tile;
+            viewer.radius = radius;
+            viewer.footprint = getFootprint(tile, radius);
+            getPlayerVisibility(ownerId).add(viewer.footprint);
+        }
+    }
+
+    private int getTileIndex(Entity entity) {
+        Point p = WorldUtils.vectorToPoint(entity.get(Position.class).position);
+        return p.y * width + p.x;
+    }
+
+    private static int getRadius(Entity entity) {
+        return (int) entity.get(Senses.class).distanceCanSee;
+    }
+
+    private PlayerVisibility getPlayerVisibility(short playerId) {
+        return playerVisibilities.computeIfAbsent(playerId, (id) -> new PlayerVisibility(width * height));
+    }
+
+    private int[] getFootprint(int tile, int radius) {
+        return footprints.computeIfAbsent(((long) radius << 32) | tile, (key) -> castFootprint(tile, radius));
+    }
+
+    /**
+     * Recursive shadow casting, one octant at a time
+     */
+    private int[] castFootprint(int tile, int radius) {
+        if (castId == Integer.MAX_VALUE) {
+            Arrays.fill(castVisited, 0);
+            castId = 0;
+        }
+        castId++;
+        castCount = 0;
+
+        int x = tile % width;
+        int y = tile / width;
+        addCastTile(x, y);
+        for (int octant = 0; octant < OCTANTS[0].length; octant++) {
+            castLight(x, y, 1, 1.0f, 0.0f, radius, OCTANTS[0][octant], OCTANTS[1][octant], OCTANTS[2][octant], OCTANTS[3][octant]);
+        }
+
+        return Arrays.copyOf(castTiles, castCount);
+    }
+
+    private void castLight(int centerX, int centerY, int row, float start, float end, int radius, int xx, int xy, int yx, int yy) {
+        if (start < end) {
+            return;
+        }
+
+        int radiusSquared = radius * radius;
+        float newStart = 0;
+        for (int distance = row; distance <= radius; distance++) {
+            int dy = -distance;
+            boolean blocked = false;
+            for (int dx = -distance; dx <= 0; dx++) {
+                float leftSlope = (dx - 0.5f) / (dy + 0.5f);
+                float rightSlope = (dx + 0.5f) / (dy - 0.5f);
+                if (start < rightSlope) {
+                    continue;
+                } else if (end > leftSlope) {
+                    break;
+                }
+
+                int x = centerX + dx * xx + dy * xy;
+                int y = centerY + dx * yx + dy * yy;
+                if (dx * dx + dy * dy <= radiusSquared) {
+                    addCastTile(x, y);
+                }
+
+                boolean opaque = isOpaque(x, y);
+                if (blocked) {
+                    if (opaque) {
+                        newStart = rightSlope;
+                    } else {
+                        blocked = false;
+                        start = newStart;
+                    }
+                } else if (opaque && distance < radius) {
+                    blocked = true;
+                    castLight(centerX, centerY, distance + 1, start, leftSlope, radius, xx, xy, yx, yy);
+                    newStart = rightSlope;
+                }
+            }
+            if (blocked) {
+                break;
+            }
+        }
+    }
+
+    private void addCastTile(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return;
+        }
+
+        int index = y * width + x;
+        if (castVisited[index] != castId) {
+            castVisited[index] = castId;
+            castTiles[castCount++] = index;
+        }
+    }
+
+    private boolean isOpaque(int x, int y) {
+        IMapTileInformation mapTile = mapController.getMapData().getTile(x, y);
+        return mapTile == null || mapController.getTerrain(mapTile).getFlags().contains(Terrain.TerrainFlag.SOLID);
+    }
+
+    @Override
+    public boolean isTileVisible(short playerId, int x, int y) {
+        PlayerVisibility playerVisibility = playerVisibilities.get(playerId);
+        return playerVisibility != null && playerVisibility.isVisible(y * width + x);
+    }
+
+    @Override
+    public boolean isEntityVisible(short playerId, EntityId entityId) {
+        IMapTileInformation mapTile = entityPositionLookup.getEntityLocation(entityId);
+        return mapTile != null && isTileVisible(playerId, mapTile.getX(), mapTile.getY());
+    }
+
+    @Override
+    public BitSet getVisibleTiles(short playerId) {
+        return getPlayerVisibility(playerId).getVisibleTiles();
+    }
+
+    @Override
+    public void setRevealAll(short playerId, boolean revealAll) {
+        getPlayerVisibility(playerId).revealAll = revealAll;
+    }
+
+    @Override
+    public void start() {
+
+    }
+
+    @Override
+    public void stop() {
+        mapController.removeListener(this);
+        viewerEntities.release();
+        viewers.clear();
+        footprints.clear();
+        playerVisibilities.clear();
+    }
+
+    /**
+     * An entity seeing for its owner
+     */
+    private static final class Viewer {
+
+        private short ownerId;
+        private int tile;
+        private int radius;
+        private int[] footprint;
+
+    }
+
+    /**
+     * The view of a single player. Counts the viewers per tile, a tile is
+     * visible as long as somebody sees it
+     */
+    private static final class PlayerVisibility {
+
+        private final int[] viewerCounts;
+        private final BitSet visibleTiles;
+        private volatile boolean revealAll = false;
+
+        public PlayerVisibility(int tileCount) {
+            viewerCounts = new int[tileCount];
+            visibleTiles = new BitSet(tileCount);
+        }
+
+        private synchronized void add(int[] tiles) {
+            for (int tile : tiles) {
+                if (viewerCounts[tile]++ == 0) {
+                    visibleTiles.set(tile);
+                }
+            }
+        }
+
+        private synchronized void remove(int[] tiles) {
+            for (int tile : tiles) {
+                if (--viewerCounts[tile] == 0) {
+                    visibleTiles.clear(tile);
+                }
+            }
+        }
+
+        private boolean isVisible(int tile) {
+            return revealAll || viewerCounts[tile] > 0;
+        }
+
+        private synchronized BitSet getVisibleTiles() {
+            if (revealAll) {
+                BitSet all = new BitSet(viewerCounts.length);
+                all.set(0, viewerCounts.length);
+                return all;
+            }
+
+            return (BitSet) visibleTiles.clone();
+        }
+
+    }
+
+}
@@ -23,4 +23,10 @@ package toniarts.openkeeper.game.map;
  */
 public interface IMapData extends IMapDataInformation<IMapTileController> {
 
+    /**
+     * Publish the tile changes to the tile entities. The map data is the
+     * source of truth on the server, the entities are for the clients.
+     */
+    void publishChanges();
+
 }
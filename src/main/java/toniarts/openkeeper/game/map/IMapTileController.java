@@ -18,6 +18,7 @@ package toniarts.openkeeper.game.map;
 
 import com.simsilica.es.EntityId;
 import toniarts.openkeeper.utils.Point;
+import toniarts.openkeeper.tools.convert.map.Terrain;
 import toniarts.openkeeper.tools.convert.map.Tile;
 
 /**
@@ -27,6 +28,14 @@ import toniarts.openkeeper.tools.convert.map.Tile;
  */
 public interface IMapTileController extends IMapTileInformation {
 
+    /**
+     * Set health, gold, mana and such from the terrain. Used when the terrain
+     * changes
+     *
+     * @param terrain the terrain of the tile
+     */
+    void setAttributesFromTerrain(Terrain terrain);
+
     void setBridgeTerrainType(Tile.BridgeTerrainType bridgeTerrainType);
 
     void setFlashed(boolean flashed, short playerId);
@@ -16,77 +16,146 @@
  */
 package toniarts.openkeeper.game.map;
 
+import com.jme3.math.FastMath;
 import com.simsilica.es.EntityData;
 import com.simsilica.es.EntityId;
 import toniarts.openkeeper.utils.Point;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import toniarts.openkeeper.game.component.Gold;
+import toniarts.openkeeper.game.component.Health;
+import toniarts.openkeeper.game.component.Mana;
 import toniarts.openkeeper.game.component.MapTile;
 import toniarts.openkeeper.game.component.Owner;
 import toniarts.openkeeper.game.data.Keeper;
-import static toniarts.openkeeper.game.map.MapTileController.setAttributesFromTerrain;
 import toniarts.openkeeper.tools.convert.map.KwdFile;
 import toniarts.openkeeper.tools.convert.map.Player;
 import toniarts.openkeeper.tools.convert.map.Terrain;
 import toniarts.openkeeper.tools.convert.map.Tile;
 
 /**
- * This is a container for the map data
+ * This is a container for the map data. The server's map is stored here in
+ * plain arrays indexed by the tile index, reading a tile is just an array
+ * load. The map tiles are still entities for the clients, the changed tiles
+ * are journaled and their components are published in
+ * {@link #publishChanges()}.<br>
+ * The tiles are written from several threads, only the journal is
+ * synchronized. A reader on another thread may see a stale value for a
+ * moment, the journal makes sure the latest values get published.
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
 public final class MapData implements IMapData {
 
+    static final byte MAP_TILE = 1;
+    static final byte OWNER = 1 << 1;
+    static final byte HEALTH = 1 << 2;
+    static final byte GOLD = 1 << 3;
+    static final byte MANA = 1 << 4;
+    private static final byte ALL = MAP_TILE | OWNER | HEALTH | GOLD | MANA;
+
+    private final EntityData entityData;
     private final int width;
     private final int height;
-    private final IMapTileController[][] tiles;
+    private final MapTileController[] tiles;
+
+    // The tile data
+    final EntityId[] entityIds;
+    final Point[] locations;
+    final int[] indices;
+    final short[] terrainIds;
+    final short[] ownerIds;
+    final Tile.BridgeTerrainType[] bridgeTerrainTypes;
+    final int[] randomTextureIndices;
+    final int[] health;
+    final int[] maxHealth;
+    final int[] gold;
+    final int[] maxGold;
+    final int[] manaGain;
+    final EntityId[] roomIds;
+
+    /**
+     * Selection and flashing, a bit per player ID. The known masks tell which
+     * players have a value at all, to publish the same maps as before
+     */
+    final int[] selectionKnown;
+    final int[] selected;
+    final int[] flashingKnown;
+    final int[] flashed;
+
+    // The change journal
+    private final Object journalLock = new Object();
+    private final byte[] changes;
+    private int[] changedTiles;
+    private int changedTileCount = 0;
+    private int[] publishedTiles;
 
     public MapData(KwdFile kwdFile, EntityData entityData, Collection<Keeper> players) {
+        this.entityData = entityData;
         width = kwdFile.getMap().getWidth();
         height = kwdFile.getMap().getHeight();
 
+        int size = width * height;
+        tiles = new MapTileController[size];
+        entityIds = new EntityId[size];
+        locations = new Point[size];
+        indices = new int[size];
+        terrainIds = new short[size];
+        ownerIds = new short[size];
+        bridgeTerrainTypes = new Tile.BridgeTerrainType[size];
+        randomTextureIndices = new int[size];
+        health = new int[size];
+        maxHealth = new int[size];
+        gold = new int[size];
+        maxGold = new int[size];
+        manaGain = new int[size];
+        roomIds = new EntityId[size];
+        selectionKnown = new int[size];
+        selected = new int[size];
+        flashingKnown = new int[size];
+        flashed = new int[size];
+        changes = new byte[size];
+        changedTiles = new int[size];
+        publishedTiles = new int[size];
+
         // Duplicate the map
-        this.tiles = new IMapTileController[width][height];
         Map<Short, Keeper> playersById = players.stream().collect(Collectors.toMap(Keeper::getId, keeper -> keeper));
         for (int y = 0; y < height; y++) {
             for (int x = 0; x < width; x++) {
                 Tile tile = kwdFile.getMap().getTile(x, y);
-                tiles[x][y] = createMapTile(entityData, tile, kwdFile, x, y, y * width + x, playersById);
+                createMapTile(tile, kwdFile, x, y, y * width + x, playersById);
             }
         }
-    }
-
-    private static MapTileController createMapTile(EntityData entityData, Tile tile, KwdFile kwdFile, int x, int y, int index,
-            Map<Short, Keeper> playersById) {
-        EntityId entityId = entityData.createEntity();
 
-        // Create ALL components for the map tile, even things like Gold when it has none, helps to parse the map tile as whole in client
-        // The actual map tile
-        MapTile mapTileComponent = new MapTile();
-        mapTileComponent.p = new Point(x, y);
-        mapTileComponent.index = index;
-        mapTileComponent.bridgeTerrainType = tile.getFlag();
+        // Create ALL components for the map tiles, even things like Gold when it has none, helps to parse the map tile as whole in client
+        publishChanges();
+    }
 
-        mapTileComponent.terrainId = setupTerrainOwner(kwdFile, tile, entityData, entityId, playersById);
+    private void createMapTile(Tile tile, KwdFile kwdFile, int x, int y, int index, Map<Short, Keeper> playersById) {
+        entityIds[index] = entityData.createEntity();
+        locations[index] = new Point(x, y);
+        indices[index] = index;
+        bridgeTerrainTypes[index] = tile.getFlag();
+        setupTerrainOwner(kwdFile, tile, index, playersById);
 
         // The water/lava under the bridge is set only when there is an actual bridge, but we might as well set it here, it doesn't change
-        Terrain terrain = kwdFile.getTerrain(mapTileComponent.terrainId);
+        Terrain terrain = kwdFile.getTerrain(terrainIds[index]);
         if (terrain.getFlags().contains(Terrain.TerrainFlag.LAVA)) {
-            mapTileComponent.bridgeTerrainType = Tile.BridgeTerrainType.LAVA;
+            bridgeTerrainTypes[index] = Tile.BridgeTerrainType.LAVA;
         } else if (terrain.getFlags().contains(Terrain.TerrainFlag.WATER)) {
-            mapTileComponent.bridgeTerrainType = Tile.BridgeTerrainType.WATER;
+            bridgeTerrainTypes[index] = Tile.BridgeTerrainType.WATER;
         }
 
-        // Set attributes
-        setAttributesFromTerrain(entityData, entityId, mapTileComponent, terrain);
+        tiles[index] = new MapTileController(this, index);
 
-        return new MapTileController(entityId, entityData);
+        // Set attributes
+        tiles[index].setAttributesFromTerrain(terrain);
     }
 
-    private static short setupTerrainOwner(KwdFile kwdFile, Tile tile, EntityData entityData, EntityId entityId,
-            Map<Short, Keeper> playersById) {
+    private void setupTerrainOwner(KwdFile kwdFile, Tile tile, int index, Map<Short, Keeper> playersById) {
         short terrainId = tile.getTerrainId();
         short ownerId = tile.getPlayerId();
 
@@ -105,11 +174,115 @@ public final class MapData implements IMapData {
             }
         }
 
-        // Owner
-        Owner owner = new Owner(ownerId, ownerId);
-        entityData.setComponent(entityId, owner);
+        terrainIds[index] = terrainId;
+        ownerIds[index] = ownerId;
+    }
+
+    /**
+     * Set the tile attributes that come from the terrain
+     *
+     * @param index the tile index
+     * @param terrain the terrain
+     */
+    void setAttributesFromTerrain(int index, Terrain terrain) {
+        health[index] = terrain.getStartingHealth();
+        maxHealth[index] = terrain.getMaxHealth();
+        gold[index] = terrain.getGoldValue();
+        maxGold[index] = terrain.getGoldValue();
+        manaGain[index] = terrain.getManaGain();
+
+        // Randomize the texture index, the terrain can change for sure but the changed types have no random textures
+        // But for the principle, let it be here
+        if (terrain.getFlags().contains(Terrain.TerrainFlag.RANDOM_TEXTURE)) {
+            randomTextureIndices[index] = FastMath.nextRandomInt(0, terrain.getTextureFrames() - 1);
+        }
+
+        markChanged(index, ALL);
+    }
 
-        return terrainId;
+    /**
+     * Mark tile data changed, call after writing the data
+     *
+     * @param index the tile index
+     * @param components the changed components
+     */
+    void markChanged(int index, byte components) {
+        synchronized (journalLock) {
+            if (changes[index] == 0) {
+                changedTiles[changedTileCount++] = index;
+            }
+            changes[index] |= components;
+        }
+    }
+
+    /**
+     * Publish the changed tiles as entity components, so that the clients and
+     * the entity sets see them. Should be called once per game tick.
+     */
+    @Override
+    public void publishChanges() {
+        int count;
+        int[] tilesToPublish;
+        byte[] componentsToPublish;
+        synchronized (journalLock) {
+            if (changedTileCount == 0) {
+                return;
+            }
+
+            count = changedTileCount;
+            tilesToPublish = changedTiles;
+            changedTiles = publishedTiles;
+            publishedTiles = tilesToPublish;
+            changedTileCount = 0;
+
+            componentsToPublish = new byte[count];
+            for (int i = 0; i < count; i++) {
+                componentsToPublish[i] = changes[tilesToPublish[i]];
+                changes[tilesToPublish[i]] = 0;
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            publishTile(tilesToPublish[i], componentsToPublish[i]);
+        }
+    }
+
+    private void publishTile(int index, byte components) {
+        EntityId entityId = entityIds[index];
+        if ((components & MAP_TILE) != 0) {
+            MapTile mapTile = new MapTile(randomTextureIndices[index], terrainIds[index], bridgeTerrainTypes[index], locations[index], indices[index]);
+            mapTile.room = roomIds[index];
+            mapTile.selection = toPlayerMap(selectionKnown[index], selected[index]);
+            mapTile.flashing = toPlayerMap(flashingKnown[index], flashed[index]);
+            entityData.setComponent(entityId, mapTile);
+        }
+        if ((components & OWNER) != 0) {
+            entityData.setComponent(entityId, new Owner(ownerIds[index], ownerIds[index]));
+        }
+        if ((components & HEALTH) != 0) {
+            entityData.setComponent(entityId, new Health(health[index], maxHealth[index]));
+        }
+        if ((components & GOLD) != 0) {
+            entityData.setComponent(entityId, new Gold(gold[index], maxGold[index]));
+        }
+        if ((components & MANA) != 0) {
+            entityData.setComponent(entityId, new Mana(manaGain[index]));
+        }
+    }
+
+    private static Map<Short, Boolean> toPlayerMap(int known, int values) {
+        if (known == 0) {
+            return null;
+        }
+
+        Map<Short, Boolean> map = HashMap.newHashMap(4);
+        for (short playerId = 0; known >>> playerId != 0; playerId++) {
+            if ((known & (1 << playerId)) != 0) {
+                map.put(playerId, (values & (1 << playerId)) != 0);
+            }
+        }
+
+        return map;
     }
 
     @Override
@@ -134,13 +307,28 @@ public final class MapData implements IMapData {
         if (x < 0 || y < 0 || x >= width || y >= height) {
             return null;
         }
-        return this.tiles[x][y];
+        return this.tiles[y * width + x];
     }
 
     @Override
     public void setTiles(List<IMapTileController> mapTiles) {
         for (IMapTileController mapTile : mapTiles) {
-            tiles[mapTile.getX()][mapTile.getY()] = mapTile;
+            int index = mapTile.getY() * width + mapTile.getX();
+            if (tiles[index] == mapTile) {
+                continue;
+            }
+
+            // Copy the data over, the tile entities stay
+            terrainIds[index] = mapTile.getTerrainId();
+            ownerIds[index] = mapTile.getOwnerId();
+            bridgeTerrainTypes[index] = mapTile.getBridgeTerrainType();
+            randomTextureIndices[index] = mapTile.getRandomTextureIndex();
+            health[index] = mapTile.getHealth();
+            maxHealth[index] = mapTile.getMaxHealth();
+            gold[index] = mapTile.getGold();
+            manaGain[index] = mapTile.getManaGain();
+            roomIds[index] = mapTile.getRoomId();
+            markChanged(index, ALL);
         }
     }
 
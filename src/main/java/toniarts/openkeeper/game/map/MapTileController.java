@@ -16,103 +16,176 @@
  */
 package toniarts.openkeeper.game.map;
 
-import com.jme3.math.FastMath;
-import com.simsilica.es.EntityComponent;
-import com.simsilica.es.EntityData;
 import com.simsilica.es.EntityId;
 import toniarts.openkeeper.utils.Point;
-import java.util.HashMap;
-import toniarts.openkeeper.game.component.Gold;
-import toniarts.openkeeper.game.component.Health;
-import toniarts.openkeeper.game.component.Mana;
-import toniarts.openkeeper.game.component.MapTile;
-import toniarts.openkeeper.game.component.Owner;
 import toniarts.openkeeper.tools.convert.map.Terrain;
 import toniarts.openkeeper.tools.convert.map.Tile.BridgeTerrainType;
 
 /**
- * A presentation of a single map tile
+ * A presentation of a single map tile. A view to the map data arrays, the
+ * changes are published to the tile entity by the map data.
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
-public final class MapTileController extends AbstractMapTileInformation implements IMapTileController {
+public final class MapTileController implements IMapTileController {
 
-    private final EntityData entityData;
+    private final MapData mapData;
+    private final int index;
 
-    public MapTileController(EntityId entityId, EntityData entityData) {
-        super(entityId);
+    MapTileController(MapData mapData, int index) {
+        this.mapData = mapData;
+        this.index = index;
+    }
+
+    @Override
+    public void setAttributesFromTerrain(Terrain terrain) {
+        mapData.setAttributesFromTerrain(index, terrain);
+    }
 
-        this.entityData = entityData;
+    @Override
+    public boolean isSelected(short playerId) {
+        return (mapData.selected[index] & (1 << playerId)) != 0;
     }
 
-    public static void setAttributesFromTerrain(EntityData entityData, IMapTileInformation mapTile, Terrain terrain) {
-        setAttributesFromTerrain(entityData, mapTile.getEntityId(), entityData.getComponent(mapTile.getEntityId(), MapTile.class), terrain);
+    @Override
+    public boolean isFlashed(short playerId) {
+        return (mapData.flashed[index] & (1 << playerId)) != 0;
     }
 
-    protected static void setAttributesFromTerrain(EntityData entityData, EntityId entity, MapTile mapTileComponent, Terrain terrain) {
+    @Override
+    public short getOwnerId() {
+        return mapData.ownerIds[index];
+    }
 
-        // Health
-        Health health = new Health(terrain.getStartingHealth(), terrain.getMaxHealth());
+    @Override
+    public short getTerrainId() {
+        return mapData.terrainIds[index];
+    }
 
-        // Gold
-        Gold gold = new Gold(terrain.getGoldValue(), terrain.getGoldValue());
+    @Override
+    public BridgeTerrainType getBridgeTerrainType() {
+        return mapData.bridgeTerrainTypes[index];
+    }
 
-        // Mana
-        Mana mana = new Mana(terrain.getManaGain());
+    @Override
+    public int getRandomTextureIndex() {
+        return mapData.randomTextureIndices[index];
+    }
 
-        // Randomize the texture index, the terrain can change for sure but the changed types have no random textures
-        // But for the principle, let it be here
-        if (terrain.getFlags().contains(Terrain.TerrainFlag.RANDOM_TEXTURE)) {
-            mapTileComponent.randomTextureIndex = FastMath.nextRandomInt(0, terrain.getTextureFrames() - 1);
-        }
+    @Override
+    public int getX() {
+        return mapData.locations[index].x;
+    }
+
+    @Override
+    public int getY() {
+        return mapData.locations[index].y;
+    }
+
+    /**
+     * Get tile index in MapData 2D array as Point
+     *
+     * @return
+     */
+    @Override
+    public Point getLocation() {
+        return mapData.locations[index];
+    }
+
+    @Override
+    public int getIndex() {
+        return mapData.indices[index];
+    }
+
+    @Override
+    public int getHealth() {
+        return mapData.health[index];
+    }
+
+    @Override
+    public int getGold() {
+        return mapData.gold[index];
+    }
+
+    @Override
+    public int getMaxHealth() {
+        return mapData.maxHealth[index];
+    }
+
+    @Override
+    public Integer getHealthPercent() {
+        return Math.round((float) mapData.health[index] / mapData.maxHealth[index] * 100);
+    }
 
-        entityData.setComponents(entity, health, gold, mana, mapTileComponent);
+    @Override
+    public int getManaGain() {
+        return mapData.manaGain[index];
+    }
+
+    /**
+     * Is tile at full health
+     *
+     * @return true if full health
+     */
+    @Override
+    public boolean isAtFullHealth() {
+        return mapData.health[index] == mapData.maxHealth[index];
+    }
+
+    @Override
+    public EntityId getEntityId() {
+        return mapData.entityIds[index];
+    }
+
+    @Override
+    public EntityId getRoomId() {
+        return mapData.roomIds[index];
     }
 
     @Override
     public void setSelected(boolean selected, short playerId) {
-        MapTile mapTileComponent = new MapTile(getEntityComponent(MapTile.class));
-        if (mapTileComponent.selection == null) {
-            mapTileComponent.selection = HashMap.newHashMap(4);
+        mapData.selectionKnown[index] |= 1 << playerId;
+        if (selected) {
+            mapData.selected[index] |= 1 << playerId;
+        } else {
+            mapData.selected[index] &= ~(1 << playerId);
         }
-        mapTileComponent.selection.put(playerId, selected);
-        entityData.setComponent(entityId, mapTileComponent);
+        mapData.markChanged(index, MapData.MAP_TILE);
     }
 
     @Override
     public void setFlashed(boolean flashed, short playerId) {
-        MapTile mapTileComponent = new MapTile(getEntityComponent(MapTile.class));
-        if (mapTileComponent.flashing == null) {
-            mapTileComponent.flashing = HashMap.newHashMap(4);
+        mapData.flashingKnown[index] |= 1 << playerId;
+        if (flashed) {
+            mapData.flashed[index] |= 1 << playerId;
+        } else {
+            mapData.flashed[index] &= ~(1 << playerId);
         }
-        mapTileComponent.flashing.put(playerId, flashed);
-        entityData.setComponent(entityId, mapTileComponent);
+        mapData.markChanged(index, MapData.MAP_TILE);
     }
 
     @Override
     public void setOwnerId(short ownerId) {
-        entityData.setComponent(entityId, new Owner(ownerId, ownerId));
+        mapData.ownerIds[index] = ownerId;
+        mapData.markChanged(index, MapData.OWNER);
     }
 
     @Override
     public void setTerrainId(short terrainId) {
-        MapTile mapTileComponent = new MapTile(getEntityComponent(MapTile.class));
-        mapTileComponent.terrainId = terrainId;
-        entityData.setComponent(entityId, mapTileComponent);
+        mapData.terrainIds[index] = terrainId;
+        mapData.markChanged(index, MapData.MAP_TILE);
     }
 
     @Override
     public void setBridgeTerrainType(BridgeTerrainType bridgeTerrainType) {
-        MapTile mapTileComponent = new MapTile(getEntityComponent(MapTile.class));
-        mapTileComponent.bridgeTerrainType = bridgeTerrainType;
-        entityData.setComponent(entityId, mapTileComponent);
+        mapData.bridgeTerrainTypes[index] = bridgeTerrainType;
+        mapData.markChanged(index, MapData.MAP_TILE);
     }
 
     @Override
     public void setRandomTextureIndex(int randomTextureIndex) {
-        MapTile mapTileComponent = new MapTile(getEntityComponent(MapTile.class));
-        mapTileComponent.randomTextureIndex = randomTextureIndex;
-        entityData.setComponent(entityId, mapTileComponent);
+        mapData.randomTextureIndices[index] = randomTextureIndex;
+        mapData.markChanged(index, MapData.MAP_TILE);
     }
 
     /**
@@ -122,49 +195,60 @@ public final class MapTileController extends AbstractMapTileInformation implemen
      */
     @Override
     public void setHealth(int health) {
-        Health healthComponent = new Health(getEntityComponent(Health.class));
-        healthComponent.health = health;
-        entityData.setComponent(entityId, healthComponent);
+        mapData.health[index] = health;
+        mapData.markChanged(index, MapData.HEALTH);
     }
 
     @Override
     public void setMaxHealth(int maxHealth) {
-        Health healthComponent = new Health(getEntityComponent(Health.class));
-        healthComponent.maxHealth = maxHealth;
-        entityData.setComponent(entityId, healthComponent);
+        mapData.maxHealth[index] = maxHealth;
+        mapData.markChanged(index, MapData.HEALTH);
     }
 
     @Override
     public void setIndex(int index) {
-        MapTile mapTileComponent = new MapTile(getEntityComponent(MapTile.class));
-        mapTileComponent.index = index;
-        entityData.setComponent(entityId, mapTileComponent);
+        mapData.indices[this.index] = index;
+        mapData.markChanged(this.index, MapData.MAP_TILE);
     }
 
     @Override
     public void setPoint(Point p) {
-        MapTile mapTileComponent = new MapTile(getEntityComponent(MapTile.class));
-        mapTileComponent.p = p;
-        entityData.setComponent(entityId, mapTileComponent);
+        mapData.locations[index] = p;
+        mapData.markChanged(index, MapData.MAP_TILE);
     }
 
     @Override
     public void setGold(int gold) {
-        Gold goldComponent = new Gold(getEntityComponent(Gold.class));
-        goldComponent.gold = gold;
-        entityData.setComponent(entityId, goldComponent);
+        mapData.gold[index] = gold;
+        mapData.markChanged(index, MapData.GOLD);
     }
 
     @Override
-    protected <T extends EntityComponent> T getEntityComponent(Class<T> type) {
-        return entityData.getComponent(entityId, type);
+    public void setRoomId(EntityId roomId) {
+        mapData.roomIds[index] = roomId;
+        mapData.markChanged(index, MapData.MAP_TILE);
     }
 
     @Override
-    public void setRoomId(EntityId roomId) {
-        MapTile mapTileComponent = new MapTile(getEntityComponent(MapTile.class));
-        mapTileComponent.room = roomId;
-        entityData.setComponent(entityId, mapTileComponent);
+    public int hashCode() {
+        int hash = 7;
+        hash = 41 * hash + index;
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final MapTileController other = (MapTileController) obj;
+        return this.mapData == other.mapData && this.index == other.index;
     }
 
 }
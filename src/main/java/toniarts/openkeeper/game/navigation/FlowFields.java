@@ -0,0 +1,298 @@
+/*
+ * Copyright (C) 2014-2026 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.navigation;
+
+import com.badlogic.gdx.ai.pfa.GraphPath;
+import com.simsilica.es.EntityId;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import toniarts.openkeeper.game.controller.IMapController;
+import toniarts.openkeeper.game.controller.room.IRoomController;
+import toniarts.openkeeper.game.listener.TerrainChangeListener;
+import toniarts.openkeeper.game.logic.IEntityPositionLookup;
+import toniarts.openkeeper.game.map.IMapTileInformation;
+import toniarts.openkeeper.game.navigation.pathfinding.INavigable;
+import toniarts.openkeeper.game.navigation.pathfinding.MapTraversalMasks;
+import toniarts.openkeeper.game.navigation.pathfinding.NodeHeap;
+import toniarts.openkeeper.utils.Point;
+
+/**
+ * Flow fields to the rooms creatures frequently head to. Each field holds the
+ * next step towards the room from every tile of the map, for a single room,
+ * movement profile and player (doors). Once a room has been requested often
+ * enough, the creatures just follow the field instead of each searching the
+ * same route.<br>
+ * The fields are rebuilt lazily, on the next request after the map or the
+ * doors have changed. There is room for a field per room for every player and
+ * movement profile asking, up to a limit.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class FlowFields implements TerrainChangeListener {
+
+    private static final int MIN_FIELDS = 32;
+    private static final int MAX_FIELDS = 256;
+    private static final int REQUESTS_TO_BUILD = 3;
+    private static final int SOURCE = -1;
+    private static final int UNREACHABLE = -2;
+
+    private final IMapController mapController;
+    private final IEntityPositionLookup entityPositionLookup;
+    private final MapTraversalMasks traversalMasks;
+    private final int width;
+    private final int height;
+    private final Map<FieldKey, FlowField> fields = new LinkedHashMap<>(16, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<FieldKey, FlowField> eldest) {
+            return size() > capacity;
+        }
+
+    };
+    private final Set<Integer> movers = new HashSet<>();
+    private int roomCount;
+    private int capacity = MIN_FIELDS;
+
+    public FlowFields(IMapController mapController, IEntityPositionLookup entityPositionLookup, MapTraversalMasks traversalMasks) {
+        this.mapController = mapController;
+        this.entityPositionLookup = entityPositionLookup;
+        this.traversalMasks = traversalMasks;
+
+        width = traversalMasks.getWidth();
+        height = traversalMasks.getHeight();
+        roomCount = mapController.getRoomControllers().size();
+    }
+
+    /**
+     * Follow the flow field from the start tile to the given room. Only works
+     * once the room is used often enough to have a field
+     *
+     * @param start the start tile
+     * @param roomId the room to go to
+     * @param navigable the entity to find path for
+     * @param outPath the output path, ending to the first tile of the room
+     * reached
+     * @return true if the path was found from a field
+     */
+    public boolean findPath(IMapTileInformation start, EntityId roomId, INavigable navigable, GraphPath<IMapTileInformation> outPath) {
+        FlowField field;
+        FieldKey key = new FieldKey(roomId, MapTraversalMasks.getProfile(navigable), navigable.getOwnerId());
+        synchronized (fields) {
+            field = fields.get(key);
+            if (field == null) {
+                if (movers.add(key.profile << Short.SIZE | (key.ownerId & 0xFFFF))) {
+                    updateCapacity();
+                }
+                field = new FlowField(key);
+                fields.put(key, field);
+            }
+            if (++field.requests < REQUESTS_TO_BUILD) {
+                return false;
+            }
+        }
+
+        synchronized (field) {
+            if (field.stale || field.doorEpoch != entityPositionLookup.getDoorEpoch()) {
+                if (!field.build()) {
+                    return false;
+                }
+            }
+
+            return field.followPath(start.getIndex(), outPath);
+        }
+    }
+
+    @Override
+    public void onTerrainChange(Collection<Point> changedTiles) {
+        synchronized (fields) {
+            for (FlowField field : fields.values()) {
+                field.stale = true;
+            }
+
+            // The rooms come and go with the map changes
+            roomCount = mapController.getRoomControllers().size();
+            updateCapacity();
+        }
+    }
+
+    /**
+     * A field for every room, for everybody moving around. Called when
+     * synchronized on the fields
+     */
+    private void updateCapacity() {
+        capacity = Math.min(MAX_FIELDS, Math.max(MIN_FIELDS, roomCount * movers.size()));
+    }
+
+    private final class FlowField {
+
+        private final FieldKey key;
+        private int requests = 0;
+        private volatile boolean stale = true;
+        private long doorEpoch;
+        private int[] nextTiles;
+        private float[] distances;
+
+        public FlowField(FieldKey key) {
+            this.key = key;
+        }
+
+        /**
+         * Dijkstra from the room tiles outwards, following the moves in
+         * reverse
+         *
+         * @return false if the room is no more
+         */
+        private boolean build() {
+            IRoomController room = mapController.getRoomController(key.roomId);
+            if (room == null) {
+                return false;
+            }
+
+            doorEpoch = entityPositionLookup.getDoorEpoch();
+            if (nextTiles == null) {
+                nextTiles = new int[width * height];
+                distances = new float[width * height];
+            }
+            Arrays.fill(nextTiles, UNREACHABLE);
+            Arrays.fill(distances, Float.POSITIVE_INFINITY);
+            NodeHeap heap = new NodeHeap();
+            for (Point p : room.getRoomInstance().getCoordinates()) {
+                int index = p.y * width + p.x;
+                nextTiles[index] = SOURCE;
+                distances[index] = 0;
+                heap.add(index, 0);
+            }
+
+            boolean[] closed = new boolean[width * height];
+            while (!heap.isEmpty()) {
+                int index = heap.poll();
+                if (closed[index]) {
+                    continue;
+                }
+                closed[index] = true;
+
+                // Nobody gets to a tile blocked by a door
+                int x = index % width;
+                int y = index / width;
+                if (nextTiles[index] != SOURCE && entityPositionLookup.isTileBlocked(x, y, key.ownerId)) {
+                    continue;
+                }
+
+                float cost = traversalMasks.getCost(key.profile, index);
+                for (int direction = 0; direction < MapTraversalMasks.DIRECTION_COUNT; direction++) {
+                    int fromX = x + MapTraversalMasks.getDirectionX(direction);
+                    int fromY = y + MapTraversalMasks.getDirectionY(direction);
+                    if (fromX < 0 || fromX >= width || fromY < 0 || fromY >= height) {
+                        continue;
+                    }
+
+                    int from = fromY * width + fromX;
+                    if (closed[from] || !traversalMasks.canMove(key.profile, from, MapTraversalMasks.getOppositeDirection(direction))) {
+                        continue;
+                    }
+
+                    // Diagonal moves can't squeeze past doors either
+                    if (direction >= MapTraversalMasks.NORTH_EAST
+                            && (entityPositionLookup.isTileBlocked(x, fromY, key.ownerId) || entityPositionLookup.isTileBlocked(fromX, y, key.ownerId))) {
+                        continue;
+                    }
+
+                    float distance = distances[index] + cost;
+                    if (distance < distances[from]) {
+                        distances[from] = distance;
+                        nextTiles[from] = index;
+                        heap.add(from, distance);
+                    }
+                }
+            }
+
+            stale = false;
+
+            return true;
+        }
+
+        private boolean followPath(int start, GraphPath<IMapTileInformation> outPath) {
+            if (nextTiles[start] == UNREACHABLE) {
+                return false;
+            }
+
+            int index = start;
+            outPath.add(getTile(index));
+            while (nextTiles[index] != SOURCE) {
+                index = nextTiles[index];
+                outPath.add(getTile(index));
+            }
+
+            return true;
+        }
+
+    }
+
+    private IMapTileInformation getTile(int index) {
+        return mapController.getMapData().getTile(index % width, index / width);
+    }
+
+    private static final class FieldKey {
+
+        private final EntityId roomId;
+        private final int profile;
+        private final short ownerId;
+
+        public FieldKey(EntityId roomId, int profile, short ownerId) {
+            this.roomId = roomId;
+            this.profile = profile;
+            this.ownerId = ownerId;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 7;
+            hash = 41 * hash + Objects.hashCode(this.roomId);
+            hash = 41 * hash + this.profile;
+            hash = 41 * hash + this.ownerId;
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null) {
+                return false;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            final FieldKey other = (FieldKey) obj;
+            if (this.profile != other.profile) {
+                return false;
+            }
+            if (this.ownerId != other.ownerId) {
+                return false;
+            }
+            return Objects.equals(this.roomId, other.roomId);
+        }
+
+    }
+
+}
@@ -17,6 +17,7 @@
 package toniarts.openkeeper.game.navigation;
 
 import com.badlogic.gdx.ai.pfa.GraphPath;
+import java.util.concurrent.CompletableFuture;
 import toniarts.openkeeper.utils.Point;
 import toniarts.openkeeper.game.map.IMapTileInformation;
 import toniarts.openkeeper.game.navigation.pathfinding.INavigable;
@@ -59,6 +60,75 @@ public interface INavigationService {
      */
     GraphPath<IMapTileInformation> findPath(Point start, Point end, INavigable navigable);
 
+    /**
+     * Finds a path between the given points on the game logic thread, a slice
+     * at a time. Each tick only spends a limited time on these searches, the
+     * unfinished ones continue on the next tick. So even the hardest searches
+     * can't stall the game logic. The returned future is completed on the game
+     * logic thread, right away if the search fits in what is left of the time
+     * of this tick
+     *
+     * @param start start point
+     * @param end end point
+     * @param navigable the entity to find path for
+     * @return future of the output path, the path is null if not found
+     */
+    CompletableFuture<GraphPath<IMapTileInformation>> schedulePathSearch(Point start, Point end, INavigable navigable);
+
+    /**
+     * Checks whether there is a path between the given points. The search is
+     * run a slice at a time, with the same time limits as
+     * {@link #schedulePathSearch(Point, Point, INavigable)}, so it never
+     * stalls the tick. The known answers are given right away, the rest are
+     * {@link PathStatus#UNKNOWN} until the search finishes on the next ticks.
+     * Meant for the frequent checks, like picking the tasks and targets, that
+     * can just as well ask again a bit later. Entities with their own movement
+     * rules can't share the answers, they get the answer of
+     * {@link #isReachable(Point, Point, INavigable)}
+     *
+     * @param start start point
+     * @param end end point
+     * @param navigable the entity to find path for
+     * @return whether there is a path, or unknown if not known yet
+     * @see #isCheckingPath(INavigable)
+     */
+    PathStatus checkPath(Point start, Point end, INavigable navigable);
+
+    /**
+     * Whether some path checks of the entity are still unknown. The decisions
+     * waiting for them are better postponed than made without the answers
+     *
+     * @param navigable the entity
+     * @return true if some of its path checks are still being searched
+     */
+    boolean isCheckingPath(INavigable navigable);
+
+    /**
+     * Quick check whether there could be a path between the given points,
+     * without searching for it. The terrain and the rooms are considered, but
+     * doors are not, and every entity with its own movement rules passes. So
+     * false means the end can't be reached, true only means that it might be.
+     * Good for rejecting early, ask {@link #findPath(Point, Point, INavigable)}
+     * for the final answer
+     *
+     * @param start start point
+     * @param end end point
+     * @param navigable the entity to check for
+     * @return false if the end can't be reached from the start
+     */
+    boolean isReachable(Point start, Point end, INavigable navigable);
+
+    /**
+     * Simplifies the path for steering. Waypoints that can be skipped by
+     * moving in a straight line are dropped, so the resulting path doesn't
+     * consist of adjacent tiles anymore
+     *
+     * @param path the path to simplify
+     * @param navigable the entity the path is for
+     * @return the simplified path
+     */
+    GraphPath<IMapTileInformation> simplifyPath(GraphPath<IMapTileInformation> path, INavigable navigable);
+
     /**
      * Check if given tile is accessible by the given creature
      *
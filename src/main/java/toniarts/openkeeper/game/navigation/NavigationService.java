@@ -18,47 +18,164 @@ package toniarts.openkeeper.game.navigation;
 
 import com.badlogic.gdx.ai.pfa.DefaultGraphPath;
 import com.badlogic.gdx.ai.pfa.GraphPath;
+import com.badlogic.gdx.ai.pfa.PathFinderRequest;
+import com.simsilica.es.EntityId;
 import toniarts.openkeeper.game.controller.IMapController;
 import toniarts.openkeeper.game.controller.room.IRoomController;
 import toniarts.openkeeper.game.logic.IEntityPositionLookup;
+import toniarts.openkeeper.game.logic.IGameLogicUpdatable;
 import toniarts.openkeeper.game.map.IMapTileInformation;
+import toniarts.openkeeper.game.navigation.pathfinding.HierarchicalPathFinder;
 import toniarts.openkeeper.game.navigation.pathfinding.INavigable;
 import toniarts.openkeeper.game.navigation.pathfinding.MapDistance;
 import toniarts.openkeeper.game.navigation.pathfinding.MapIndexedGraph;
 import toniarts.openkeeper.game.navigation.pathfinding.MapPathFinder;
+import toniarts.openkeeper.game.navigation.pathfinding.MapRegions;
+import toniarts.openkeeper.game.navigation.pathfinding.MapTraversalMasks;
+import toniarts.openkeeper.game.navigation.pathfinding.PathFindingMetrics;
+import toniarts.openkeeper.game.navigation.pathfinding.PathSimplifier;
 import toniarts.openkeeper.utils.Point;
-import toniarts.openkeeper.utils.Utils;
 
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
-import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import jdk.jfr.EventType;
 
 /**
- * Offers navigation related services
+ * Offers navigation related services. The path finders are pooled so that
+ * searches can run concurrently from several threads. Long searches go through the
+ * hierarchical path finder, and the searches to the busiest rooms follow the
+ * flow fields.<br>
+ * Every tick has a time budget for the path searches. The scheduled searches
+ * and the path checks share it, whatever doesn't fit is continued on the next
+ * ticks. Both are searched a slice at a time, so no single search can stall
+ * the tick.
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
-public final class NavigationService implements INavigationService {
+public final class NavigationService implements INavigationService, IGameLogicUpdatable {
     
     private static final Logger logger = System.getLogger(NavigationService.class.getName());
 
+    /**
+     * Default time to spend on the budgeted searches per tick, in
+     * microseconds
+     */
+    private static final long DEFAULT_SEARCH_BUDGET = Long.getLong("openkeeper.pathSearchBudget", 1000);
+
+    /**
+     * Invalidate the cached paths only near the map changes, instead of all of
+     * them on every change
+     */
+    private static final boolean REGIONAL_CACHE_INVALIDATION = Boolean.parseBoolean(System.getProperty("openkeeper.pathCacheRegional", "true"));
+    private static final EventType SEARCH_EVENT_TYPE = EventType.getEventType(PathSearchEvent.class);
+
     private final IMapController mapController;
     private final IEntityPositionLookup entityPositionLookup;
-    private final MapIndexedGraph pathFindingMap;
-    private final MapPathFinder pathFinder;
+    private final MapTraversalMasks traversalMasks;
+    private final HierarchicalPathFinder hierarchicalPathFinder;
+    private final MapRegions mapRegions;
+    private final FlowFields flowFields;
+    private final PathCache pathCache;
+    private final PathSimplifier pathSimplifier;
+    private final Queue<MapPathFinder> pathFinders = new ConcurrentLinkedQueue<>();
+    private final Queue<RandomTileSearch> tileSearches = new ConcurrentLinkedQueue<>();
     private final MapDistance heuristic;
+    private final Queue<ScheduledSearch> scheduledSearches = new ConcurrentLinkedQueue<>();
+    private final Map<PathCache.PathKey, ScheduledSearch> scheduledChecks = new ConcurrentHashMap<>();
+    private final Map<INavigable, Integer> pendingChecks = new ConcurrentHashMap<>();
+    private final AtomicLong budgetLeft = new AtomicLong(DEFAULT_SEARCH_BUDGET * 1000);
+    private volatile long searchBudget = DEFAULT_SEARCH_BUDGET;
 
     public NavigationService(IMapController mapController, IEntityPositionLookup entityPositionLookup) {
         this.mapController = mapController;
         this.entityPositionLookup = entityPositionLookup;
 
-        pathFindingMap = new MapIndexedGraph(mapController, entityPositionLookup);
-        pathFinder = new MapPathFinder(pathFindingMap, false);
+        // Keep the traversal data in sync with the map
+        traversalMasks = new MapTraversalMasks(mapController);
+        mapController.addListener(traversalMasks);
+        hierarchicalPathFinder = new HierarchicalPathFinder(mapController, traversalMasks);
+        mapController.addListener(hierarchicalPathFinder);
+        mapRegions = new MapRegions(traversalMasks);
+        mapController.addListener(mapRegions);
+        flowFields = new FlowFields(mapController, entityPositionLookup, traversalMasks);
+        mapController.addListener(flowFields);
+        pathCache = new PathCache(traversalMasks, REGIONAL_CACHE_INVALIDATION);
+        mapController.addListener(pathCache);
+        pathSimplifier = new PathSimplifier(traversalMasks, entityPositionLookup);
+
         heuristic = new MapDistance();
     }
 
+    @Override
+    public void start() {
+
+    }
+
+    @Override
+    public void processTick(float tpf) {
+        pathCache.update(tpf);
+
+        // A fresh budget for the tick, the searches left over from the earlier ticks go first
+        budgetLeft.set(searchBudget * 1000);
+        processScheduledSearches();
+    }
+
+    private void processScheduledSearches() {
+        ScheduledSearch search;
+        while ((search = scheduledSearches.poll()) != null) {
+
+            // The requester might have lost interest already
+            if (search.result.isDone()) {
+                search.release();
+                continue;
+            }
+
+            if (budgetLeft.get() <= 0 || !runSearch(search)) {
+
+                // Out of time, back to the end of the line so the others get their turn too
+                scheduledSearches.offer(search);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Continue the search with the time left in the budget
+     *
+     * @param search the search
+     * @return true if the search is done
+     */
+    private boolean runSearch(ScheduledSearch search) {
+        long startTime = System.nanoTime();
+        try {
+            return search.run(budgetLeft.get());
+        } finally {
+            budgetLeft.addAndGet(startTime - System.nanoTime());
+        }
+    }
+
+    @Override
+    public void stop() {
+
+        // Don't leave anybody waiting for the searches that will never finish
+        ScheduledSearch search;
+        while ((search = scheduledSearches.poll()) != null) {
+            search.release();
+            search.result.cancel(false);
+        }
+        scheduledChecks.clear();
+        pendingChecks.clear();
+        logger.log(Level.INFO, "Path cache statistics: {0}", pathCache);
+    }
+
 
     @Override
     public Point findRandomAccessibleTile(Point start, int radius, INavigable navigable) {
@@ -72,62 +189,279 @@ public final class NavigationService implements INavigationService {
             logger.log(Level.WARNING, () -> "Starting point " + start + " is not in a room!");
             return null;
         }
-        Set<Point> allowedTiles = new HashSet<>(roomInstance.getRoomInstance().getCoordinates());
 
-        return findRandomAccessibleTile(start, radius, navigable, allowedTiles);
+        return findRandomAccessibleTile(start, radius, navigable, mapController.getMapData().getTile(start).getRoomId());
     }
 
-    private Point findRandomAccessibleTile(Point start, int radius, INavigable navigable, Set<Point> allowedTiles) {
-        Set<Point> tiles = HashSet.newHashSet(radius * radius - 1);
+    private Point findRandomAccessibleTile(Point start, int radius, INavigable navigable, EntityId roomId) {
+        RandomTileSearch tileSearch = tileSearches.poll();
+        if (tileSearch == null) {
+            tileSearch = new RandomTileSearch(mapController, entityPositionLookup, traversalMasks);
+        }
 
-        // Start growing the circle, always testing the tile
-        getAccessibleNeighbours(mapController.getMapData().getTile(start.x, start.y), radius, navigable, tiles, allowedTiles);
-        tiles.remove(start);
+        try {
+            return tileSearch.findRandomAccessibleTile(start, radius, navigable, roomId);
+        } finally {
+            tileSearches.offer(tileSearch);
+        }
+    }
 
-        // Take a random point
-        if (!tiles.isEmpty()) {
-            return Utils.getRandomItem(new ArrayList<>(tiles));
+    /**
+     * Finds a path between the given points if there is one. Each concurrent
+     * search borrows its own path finder from the pool, so this is thread
+     * safe
+     *
+     * @param start start point
+     * @param end end point
+     * @param navigable the entity to find path for
+     * @return output path, null if path not found
+     */
+    @Override
+    public GraphPath<IMapTileInformation> findPath(Point start, Point end, INavigable navigable) {
+        if (!PathFindingMetrics.isEnabled() && !SEARCH_EVENT_TYPE.isEnabled()) {
+            return findCachedPath(start, end, navigable);
+        }
+
+        PathSearchEvent event = new PathSearchEvent();
+        event.begin();
+        long startTime = System.nanoTime();
+        int visitedNodes = PathFindingMetrics.getVisitedNodes();
+        GraphPath<IMapTileInformation> path = findCachedPath(start, end, navigable);
+        long duration = System.nanoTime() - startTime;
+        event.end();
+
+        recordSearch(event, PathFindingMetrics.getCaller(), start, end, duration, PathFindingMetrics.getVisitedNodes() - visitedNodes, path != null);
+
+        return path;
+    }
+
+    private static void recordSearch(PathSearchEvent event, String caller, Point start, Point end, long duration, int visitedNodes, boolean found) {
+        if (PathFindingMetrics.isEnabled()) {
+            PathFindingMetrics.record(caller, duration, visitedNodes, found);
+        }
+        if (event.shouldCommit()) {
+            event.caller = caller;
+            event.startX = start.x;
+            event.startY = start.y;
+            event.endX = end.x;
+            event.endY = end.y;
+            event.visitedNodes = visitedNodes;
+            event.found = found;
+            event.commit();
+        }
+    }
+
+    private GraphPath<IMapTileInformation> findCachedPath(Point start, Point end, INavigable navigable) {
+        IMapTileInformation startTile = mapController.getMapData().getTile(start.x, start.y);
+        IMapTileInformation endTile = mapController.getMapData().getTile(end.x, end.y);
+        if (startTile == null || endTile == null) {
+            return null;
+        }
+
+        // Entities with their own rules might not be able to share the paths
+        if (!navigable.isDefaultTraversal()) {
+            return searchPath(startTile, endTile, navigable);
+        }
+
+        int profile = MapTraversalMasks.getProfile(navigable);
+        PathCache.CacheEntry entry = pathCache.get(startTile.getIndex(), endTile.getIndex(), profile, navigable.getOwnerId());
+        if (entry != null) {
+            return entry.getPath();
+        }
+
+        long epoch = pathCache.getEpoch();
+        GraphPath<IMapTileInformation> path = searchPath(startTile, endTile, navigable);
+        pathCache.put(startTile.getIndex(), endTile.getIndex(), profile, navigable.getOwnerId(), epoch, path);
+
+        return path;
+    }
+
+    private GraphPath<IMapTileInformation> searchPath(IMapTileInformation startTile, IMapTileInformation endTile, INavigable navigable) {
+        if (!isReachable(startTile, endTile, navigable)) {
+            return null;
+        }
+
+        MapPathFinder pathFinder = borrowPathFinder();
+        try {
+            GraphPath<IMapTileInformation> outPath = findQuickPath(startTile, endTile, navigable, pathFinder);
+            if (outPath != null) {
+                return outPath;
+            }
+
+            outPath = new DefaultGraphPath<>();
+            if (pathFinder.searchNodePath(startTile, endTile, heuristic, navigable, outPath)) {
+                return outPath;
+            }
+            return null;
+        } finally {
+            pathFinders.offer(pathFinder);
         }
-        return null;
     }
 
-    private void getAccessibleNeighbours(IMapTileInformation startTile, int radius, INavigable navigable, Set<Point> tiles, Set<Point> allowedTiles) {
-        if (radius > 0) {
-            for (int y = startTile.getY() - 1; y <= startTile.getY() + 1; y++) {
-                for (int x = startTile.getX() - 1; x <= startTile.getX() + 1; x++) {
+    /**
+     * Find the path by following a flow field or the abstract graph, the cost
+     * of these doesn't grow much with the distance
+     *
+     * @param startTile the start tile
+     * @param endTile the end tile
+     * @param navigable the entity to find path for
+     * @param pathFinder the path finder to use
+     * @return the path, null if it takes a full search to find out
+     */
+    private GraphPath<IMapTileInformation> findQuickPath(IMapTileInformation startTile, IMapTileInformation endTile, INavigable navigable, MapPathFinder pathFinder) {
+
+        // Rooms have flow fields, the search is only needed for the last bit inside the room
+        if (endTile.getRoomId() != null && navigable.isDefaultTraversal()) {
+            GraphPath<IMapTileInformation> outPath = new DefaultGraphPath<>();
+            if (flowFields.findPath(startTile, endTile.getRoomId(), navigable, outPath)) {
+                IMapTileInformation roomTile = outPath.get(outPath.getCount() - 1);
+                if (roomTile.getIndex() == endTile.getIndex()) {
+                    return outPath;
+                }
 
-                    // If this is good, add and get neighbours
-                    IMapTileInformation tile = mapController.getMapData().getTile(x, y);
-                    if (tile != null
-                            && !tiles.contains(tile.getLocation())
-                            && isAccessible(startTile, tile, navigable)
-                            && (allowedTiles == null || allowedTiles.contains(tile.getLocation()))) {
-                        tiles.add(tile.getLocation());
-                        getAccessibleNeighbours(tile, radius - 1, navigable, tiles, allowedTiles);
+                GraphPath<IMapTileInformation> roomPath = new DefaultGraphPath<>();
+                if (hierarchicalPathFinder.searchNodePath(roomTile, endTile, heuristic, navigable, pathFinder, roomPath)) {
+                    for (int i = 1; i < roomPath.getCount(); i++) {
+                        outPath.add(roomPath.get(i));
                     }
+                    return outPath;
                 }
             }
         }
+
+        GraphPath<IMapTileInformation> outPath = new DefaultGraphPath<>();
+        if (hierarchicalPathFinder.searchAbstractPath(startTile, endTile, heuristic, navigable, pathFinder, outPath)) {
+            return outPath;
+        }
+
+        return null;
+    }
+
+    @Override
+    public CompletableFuture<GraphPath<IMapTileInformation>> schedulePathSearch(Point start, Point end, INavigable navigable) {
+        IMapTileInformation startTile = mapController.getMapData().getTile(start.x, start.y);
+        IMapTileInformation endTile = mapController.getMapData().getTile(end.x, end.y);
+        if (startTile == null || endTile == null || !isReachable(startTile, endTile, navigable)) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        if (navigable.isDefaultTraversal()) {
+            PathCache.CacheEntry entry = pathCache.get(startTile.getIndex(), endTile.getIndex(), MapTraversalMasks.getProfile(navigable), navigable.getOwnerId());
+            if (entry != null) {
+                return CompletableFuture.completedFuture(entry.getPath());
+            }
+        }
+
+        // Search right away while there is time left on this tick
+        ScheduledSearch search = new ScheduledSearch(startTile, endTile, navigable);
+        if (budgetLeft.get() <= 0 || !runSearch(search)) {
+            scheduledSearches.offer(search);
+        }
+
+        return search.result;
+    }
+
+    @Override
+    public PathStatus checkPath(Point start, Point end, INavigable navigable) {
+        IMapTileInformation startTile = mapController.getMapData().getTile(start.x, start.y);
+        IMapTileInformation endTile = mapController.getMapData().getTile(end.x, end.y);
+        if (startTile == null || endTile == null || !isReachable(startTile, endTile, navigable)) {
+            return PathStatus.NOT_FOUND;
+        }
+
+        // Entities with their own rules can't share the answers, go with the region check that lets them anywhere
+        if (!navigable.isDefaultTraversal()) {
+            return PathStatus.FOUND;
+        }
+
+        int profile = MapTraversalMasks.getProfile(navigable);
+        PathCache.CacheEntry entry = pathCache.get(startTile.getIndex(), endTile.getIndex(), profile, navigable.getOwnerId());
+        if (entry != null) {
+            return entry.isFound() ? PathStatus.FOUND : PathStatus.NOT_FOUND;
+        }
+
+        // Search like the navigation does, the answer lands in the cache
+        PathCache.PathKey key = new PathCache.PathKey(startTile.getIndex(), endTile.getIndex(), profile, navigable.getOwnerId());
+        ScheduledSearch search = scheduledChecks.get(key);
+        if (search == null) {
+            ScheduledSearch check = new ScheduledSearch(startTile, endTile, navigable);
+            scheduledChecks.put(key, check);
+            check.result.whenComplete((path, e) -> {
+                scheduledChecks.remove(key, check);
+                check.releaseWaiting();
+            });
+            if (budgetLeft.get() <= 0 || !runSearch(check)) {
+                scheduledSearches.offer(check);
+            }
+            search = check;
+        }
+
+        if (search.result.isDone()) {
+            return search.path != null ? PathStatus.FOUND : PathStatus.NOT_FOUND;
+        }
+        search.addWaiting(navigable);
+
+        return PathStatus.UNKNOWN;
+    }
+
+    @Override
+    public boolean isCheckingPath(INavigable navigable) {
+        return pendingChecks.containsKey(navigable);
     }
 
     /**
-     * Note that this is not thread safe!!
+     * Set the time to spend on the budgeted searches per tick
      *
-     * @param start
-     * @param end
-     * @param navigable
-     * @return
+     * @param searchBudget the time budget in microseconds
+     * @see #schedulePathSearch(Point, Point, INavigable)
+     * @see #checkPath(Point, Point, INavigable)
      */
+    public void setSearchBudget(long searchBudget) {
+        this.searchBudget = searchBudget;
+    }
+
     @Override
-    public GraphPath<IMapTileInformation> findPath(Point start, Point end, INavigable navigable) {
-        pathFindingMap.setPathFindable(navigable);
-        GraphPath<IMapTileInformation> outPath = new DefaultGraphPath<>();
+    public boolean isReachable(Point start, Point end, INavigable navigable) {
         IMapTileInformation startTile = mapController.getMapData().getTile(start.x, start.y);
         IMapTileInformation endTile = mapController.getMapData().getTile(end.x, end.y);
-        if (startTile != null && endTile != null && pathFinder.searchNodePath(startTile, endTile, heuristic, outPath)) {
-            return outPath;
+        if (startTile == null || endTile == null) {
+            return false;
         }
-        return null;
+
+        return isReachable(startTile, endTile, navigable);
+    }
+
+    private boolean isReachable(IMapTileInformation startTile, IMapTileInformation endTile, INavigable navigable) {
+
+        // Entities with their own rules might get anywhere
+        if (!navigable.isDefaultTraversal()) {
+            return true;
+        }
+
+        return mapRegions.isConnected(MapTraversalMasks.getProfile(navigable), startTile.getIndex(), endTile.getIndex());
+    }
+
+    @Override
+    public GraphPath<IMapTileInformation> simplifyPath(GraphPath<IMapTileInformation> path, INavigable navigable) {
+
+        // Entities with their own rules need to stick to the tiles they found
+        if (!navigable.isDefaultTraversal()) {
+            return path;
+        }
+
+        return pathSimplifier.simplify(path, navigable);
+    }
+
+    private MapPathFinder borrowPathFinder() {
+        MapPathFinder pathFinder = pathFinders.poll();
+        if (pathFinder == null) {
+            pathFinder = new MapPathFinder(new MapIndexedGraph(mapController, entityPositionLookup, traversalMasks), false);
+        }
+
+        // The metrics and the recording can be turned on and off on the fly
+        pathFinder.setCalculateMetrics(PathFindingMetrics.isEnabled() || SEARCH_EVENT_TYPE.isEnabled());
+
+        return pathFinder;
     }
 
     @Override
@@ -136,4 +470,130 @@ public final class NavigationService implements INavigationService {
         return cost != null;
     }
 
+    /**
+     * A search run a slice at a time on the game logic thread. The flow fields
+     * and the abstract graph are tried first, on the first slice, only the
+     * full search is spread over the ticks. Holds on to its path finder until
+     * done
+     */
+    private final class ScheduledSearch {
+
+        private final IMapTileInformation startTile;
+        private final IMapTileInformation endTile;
+        private final INavigable navigable;
+        private final long epoch;
+        private final String caller;
+        private final CompletableFuture<GraphPath<IMapTileInformation>> result = new CompletableFuture<>();
+        private final Set<INavigable> waiting = new HashSet<>();
+        private MapPathFinder pathFinder;
+        private PathFinderRequest<IMapTileInformation> request;
+        private GraphPath<IMapTileInformation> path;
+        private PathSearchEvent event;
+        private long duration = 0;
+        private int visitedNodes = 0;
+
+        public ScheduledSearch(IMapTileInformation startTile, IMapTileInformation endTile, INavigable navigable) {
+            this.startTile = startTile;
+            this.endTile = endTile;
+            this.navigable = navigable;
+
+            epoch = pathCache.getEpoch();
+
+            // Record the actual caller, the search itself is run by the service
+            caller = PathFindingMetrics.isEnabled() || SEARCH_EVENT_TYPE.isEnabled() ? PathFindingMetrics.getCaller() : null;
+        }
+
+        /**
+         * Continue the search
+         *
+         * @param timeToRun the time available, in nanoseconds
+         * @return true if the search is done
+         */
+        private boolean run(long timeToRun) {
+            if (caller != null && event == null) {
+                event = new PathSearchEvent();
+                event.begin();
+            }
+
+            long startTime = System.nanoTime();
+            int startVisitedNodes = PathFindingMetrics.getVisitedNodes();
+            try {
+                if (!search(timeToRun)) {
+                    return false;
+                }
+            } catch (Exception e) {
+                logger.log(Level.ERROR, "Path finding failed from " + startTile.getLocation() + " to " + endTile.getLocation() + "!", e);
+                release();
+                result.completeExceptionally(e);
+                return true;
+            } finally {
+                duration += System.nanoTime() - startTime;
+                visitedNodes += PathFindingMetrics.getVisitedNodes() - startVisitedNodes;
+            }
+
+            if (navigable.isDefaultTraversal()) {
+                pathCache.put(startTile.getIndex(), endTile.getIndex(), MapTraversalMasks.getProfile(navigable), navigable.getOwnerId(), epoch, path);
+            }
+            release();
+            if (event != null) {
+                event.end();
+                recordSearch(event, caller, startTile.getLocation(), endTile.getLocation(), duration, visitedNodes, path != null);
+            }
+            result.complete(path);
+
+            return true;
+        }
+
+        private boolean search(long timeToRun) {
+            if (pathFinder == null) {
+                long startTime = System.nanoTime();
+                pathFinder = borrowPathFinder();
+                path = findQuickPath(startTile, endTile, navigable, pathFinder);
+                if (path != null) {
+                    return true;
+                }
+
+                request = pathFinder.startSearch(startTile, endTile, heuristic, navigable, new DefaultGraphPath<>());
+                timeToRun -= System.nanoTime() - startTime;
+                if (timeToRun <= 0) {
+                    return false;
+                }
+            }
+
+            if (!pathFinder.search(request, timeToRun)) {
+                return false;
+            }
+
+            path = request.pathFound ? request.resultPath : null;
+            return true;
+        }
+
+        /**
+         * Mark the entity waiting for the answer of this search
+         *
+         * @param navigable the entity
+         */
+        private synchronized void addWaiting(INavigable navigable) {
+            if (!result.isDone() && waiting.add(navigable)) {
+                pendingChecks.merge(navigable, 1, Integer::sum);
+            }
+        }
+
+        private synchronized void releaseWaiting() {
+            for (INavigable navigable : waiting) {
+                pendingChecks.computeIfPresent(navigable, (key, count) -> count > 1 ? count - 1 : null);
+            }
+            waiting.clear();
+        }
+
+        private void release() {
+            if (pathFinder != null) {
+                pathFinders.offer(pathFinder);
+                pathFinder = null;
+                request = null;
+            }
+        }
+
+    }
+
 }
@@ -0,0 +1,356 @@
+/*
+ * Copyright (C) 2014-2026 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.navigation;
+
+import com.badlogic.gdx.ai.pfa.DefaultGraphPath;
+import com.badlogic.gdx.ai.pfa.GraphPath;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import toniarts.openkeeper.game.listener.TerrainChangeListener;
+import toniarts.openkeeper.game.map.IMapTileInformation;
+import toniarts.openkeeper.game.navigation.pathfinding.MapTraversalMasks;
+import toniarts.openkeeper.utils.Point;
+
+/**
+ * Bounded LRU cache of the path search results, including the failed ones.
+ * The entries are keyed by the start and end tiles, the movement profile and
+ * the owner (doors). Every change in the traversal data, tracked by the
+ * traversal epoch, invalidates the failed searches. The found paths are either
+ * invalidated the same way, or with the regional invalidation only by the
+ * changes near them. Changes that don't affect the traversal, like claiming
+ * tiles, keep the cache intact.<br>
+ * Since door changes don't advance the epoch, the entries also expire after a
+ * while.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class PathCache implements TerrainChangeListener {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final float MAX_ENTRY_AGE = 5f;
+
+    private final MapTraversalMasks traversalMasks;
+    private final int capacity;
+    private final boolean regionalInvalidation;
+    private long lastEpoch;
+    private final Map<PathKey, CacheEntry> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile float time = 0;
+
+    public PathCache(MapTraversalMasks traversalMasks, boolean regionalInvalidation) {
+        this(traversalMasks, DEFAULT_CAPACITY, regionalInvalidation);
+    }
+
+    /**
+     * Creates a path cache. The traversal masks must get the terrain changes
+     * before the cache does
+     *
+     * @param traversalMasks the traversal data the paths are searched from
+     * @param capacity maximum number of paths to hold
+     * @param regionalInvalidation only invalidate the paths near the map
+     * changes, instead of everything
+     */
+    public PathCache(MapTraversalMasks traversalMasks, int capacity, boolean regionalInvalidation) {
+        this.traversalMasks = traversalMasks;
+        this.capacity = capacity;
+        this.regionalInvalidation = regionalInvalidation;
+        lastEpoch = traversalMasks.getEpoch();
+
+        entries = new LinkedHashMap<>(capacity, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PathKey, CacheEntry> eldest) {
+                return size() > PathCache.this.capacity;
+            }
+
+        };
+    }
+
+    /**
+     * Advance the time, for expiring the entries
+     *
+     * @param tpf time since the last update
+     */
+    public void update(float tpf) {
+        time += tpf;
+    }
+
+    /**
+     * Get the current traversal epoch, read this before searching the path to
+     * be cached
+     *
+     * @return the traversal epoch
+     */
+    public long getEpoch() {
+        return traversalMasks.getEpoch();
+    }
+
+    /**
+     * Look up a path
+     *
+     * @param start the start tile index
+     * @param end the end tile index
+     * @param profile the movement profile
+     * @param ownerId the owner of the entity
+     * @return the cache entry, {@code null} if there is no valid entry
+     */
+    public CacheEntry get(int start, int end, int profile, short ownerId) {
+        PathKey key = new PathKey(start, end, profile, ownerId);
+        CacheEntry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && !isValid(entry)) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+
+        if (entry == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+
+        return entry;
+    }
+
+    private boolean isValid(CacheEntry entry) {
+        if (time - entry.time > MAX_ENTRY_AGE) {
+            return false;
+        }
+
+        // The regional invalidation removes the found paths itself
+        return (regionalInvalidation && entry.path != null) || entry.epoch == traversalMasks.getEpoch();
+    }
+
+    /**
+     * Store a path
+     *
+     * @param start the start tile index
+     * @param end the end tile index
+     * @param profile the movement profile
+     * @param ownerId the owner of the entity
+     * @param epoch the traversal epoch from before the search
+     * @param path the path found, {@code null} if there is no path
+     */
+    public void put(int start, int end, int profile, short ownerId, long epoch, GraphPath<IMapTileInformation> path) {
+
+        // The map changed during the search
+        if (epoch != traversalMasks.getEpoch()) {
+            return;
+        }
+
+        CacheEntry entry = new CacheEntry(epoch, time, path != null ? copy(path) : null);
+        synchronized (entries) {
+            entries.put(new PathKey(start, end, profile, ownerId), entry);
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Get the cache hit rate
+     *
+     * @return hit rate between 0 and 1
+     */
+    public float getHitRate() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0 : (float) hitCount / total;
+    }
+
+    public int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    @Override
+    public void onTerrainChange(Collection<Point> changedTiles) {
+
+        // Nothing to do if the traversal stayed the same
+        long epoch = traversalMasks.getEpoch();
+        if (!regionalInvalidation || epoch == lastEpoch) {
+            return;
+        }
+        lastEpoch = epoch;
+
+        // Remove the paths passing near the changes, the failed searches are invalidated by the epoch
+        synchronized (entries) {
+            Iterator<CacheEntry> iter = entries.values().iterator();
+            while (iter.hasNext()) {
+                CacheEntry entry = iter.next();
+                if (entry.path != null && entry.isNear(changedTiles)) {
+                    iter.remove();
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PathCache{" + "size=" + getSize() + ", capacity=" + capacity + ", hits=" + hits + ", misses=" + misses + ", hitRate=" + getHitRate() + '}';
+    }
+
+    private static GraphPath<IMapTileInformation> copy(GraphPath<IMapTileInformation> path) {
+        GraphPath<IMapTileInformation> result = new DefaultGraphPath<>(path.getCount());
+        for (IMapTileInformation tile : path) {
+            result.add(tile);
+        }
+
+        return result;
+    }
+
+    /**
+     * A cached search result
+     */
+    public static final class CacheEntry {
+
+        private final long epoch;
+        private final float time;
+        private final GraphPath<IMapTileInformation> path;
+        private final int minX;
+        private final int minY;
+        private final int maxX;
+        private final int maxY;
+
+        private CacheEntry(long epoch, float time, GraphPath<IMapTileInformation> path) {
+            this.epoch = epoch;
+            this.time = time;
+            this.path = path;
+
+            int x1 = Integer.MAX_VALUE;
+            int y1 = Integer.MAX_VALUE;
+            int x2 = Integer.MIN_VALUE;
+            int y2 = Integer.MIN_VALUE;
+            if (path != null) {
+                for (IMapTileInformation tile : path) {
+                    x1 = Math.min(x1, tile.getX());
+                    y1 = Math.min(y1, tile.getY());
+                    x2 = Math.max(x2, tile.getX());
+                    y2 = Math.max(y2, tile.getY());
+                }
+            }
+            minX = x1;
+            minY = y1;
+            maxX = x2;
+            maxY = y2;
+        }
+
+        /**
+         * Get the cached path. The caller gets its own copy
+         *
+         * @return the path, {@code null} if there is no path
+         */
+        public GraphPath<IMapTileInformation> getPath() {
+            return path != null ? copy(path) : null;
+        }
+
+        /**
+         * Was there a path, without copying it
+         *
+         * @return true if the path was found
+         */
+        public boolean isFound() {
+            return path != null;
+        }
+
+        private boolean isNear(Collection<Point> changedTiles) {
+
+            // The changes affect the traversal of the neighbouring tiles as well
+            for (Point p : changedTiles) {
+                if (p.x >= minX - 1 && p.x <= maxX + 1 && p.y >= minY - 1 && p.y <= maxY + 1) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+    }
+
+    static final class PathKey {
+
+        private final int start;
+        private final int end;
+        private final int profile;
+        private final short ownerId;
+
+        public PathKey(int start, int end, int profile, short ownerId) {
+            this.start = start;
+            this.end = end;
+            this.profile = profile;
+            this.ownerId = ownerId;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 5;
+            hash = 59 * hash + this.start;
+            hash = 59 * hash + this.end;
+            hash = 59 * hash + this.profile;
+            hash = 59 * hash + this.ownerId;
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null) {
+                return false;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            final PathKey other = (PathKey) obj;
+            if (this.start != other.start) {
+                return false;
+            }
+            if (this.end != other.end) {
+                return false;
+            }
+            if (this.profile != other.profile) {
+                return false;
+            }
+            return this.ownerId == other.ownerId;
+        }
+
+    }
+
+}
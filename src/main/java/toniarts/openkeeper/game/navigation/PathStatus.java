@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2014-2026 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.navigation;
+
+/**
+ * The answer to a path check, see
+ * {@link INavigationService#checkPath(toniarts.openkeeper.utils.Point, toniarts.openkeeper.utils.Point, toniarts.openkeeper.game.navigation.pathfinding.INavigable)}
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public enum PathStatus {
+
+    /**
+     * There is a path
+     */
+    FOUND,
+    /**
+     * There is no path
+     */
+    NOT_FOUND,
+    /**
+     * Not known yet, the path is still being searched. Ask again later, don't
+     * act on it
+     */
+    UNKNOWN
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2014-2026 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.navigation;
+
+import com.simsilica.es.EntityId;
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+import toniarts.openkeeper.game.controller.IMapController;
+import toniarts.openkeeper.game.logic.IEntityPositionLookup;
+import toniarts.openkeeper.game.map.IMapTileInformation;
+import toniarts.openkeeper.game.navigation.pathfinding.INavigable;
+import toniarts.openkeeper.game.navigation.pathfinding.MapTraversalMasks;
+import toniarts.openkeeper.utils.Point;
+import toniarts.openkeeper.utils.Utils;
+
+/**
+ * Bounded breadth first search for picking a random accessible tile around a
+ * point. The search buffers are reused between the searches, and the tile is
+ * picked with reservoir sampling, so no garbage is created on the way. One
+ * instance can only serve one search at a time.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class RandomTileSearch {
+
+    private final IMapController mapController;
+    private final IEntityPositionLookup entityPositionLookup;
+    private final MapTraversalMasks traversalMasks;
+    private final int width;
+    private final int height;
+    private final int[] visited;
+    private final int[] queue;
+    private final int[] depths;
+    private int searchId = 0;
+
+    public RandomTileSearch(IMapController mapController, IEntityPositionLookup entityPositionLookup, MapTraversalMasks traversalMasks) {
+        this.mapController = mapController;
+        this.entityPositionLookup = entityPositionLookup;
+        this.traversalMasks = traversalMasks;
+
+        width = traversalMasks.getWidth();
+        height = traversalMasks.getHeight();
+        visited = new int[width * height];
+        queue = new int[width * height];
+        depths = new int[width * height];
+    }
+
+    /**
+     * Get a random tile accessible from the start within the given number of
+     * moves, that is not the starting tile
+     *
+     * @param start starting coordinates
+     * @param radius radius, in moves
+     * @param navigable the navigable entity
+     * @param roomId if set, only the tiles of this room are accepted
+     * @return a random tile if one is found
+     */
+    public Point findRandomAccessibleTile(Point start, int radius, INavigable navigable, EntityId roomId) {
+        IMapTileInformation startTile = mapController.getMapData().getTile(start.x, start.y);
+        if (startTile == null) {
+            return null;
+        }
+
+        int id = nextSearchId();
+        int profile = MapTraversalMasks.getProfile(navigable);
+        boolean defaultTraversal = navigable.isDefaultTraversal();
+        RandomGenerator random = Utils.getRandom();
+        int startIndex = startTile.getIndex();
+        int selected = -1;
+        int accepted = 0;
+        int head = 0;
+        int tail = 0;
+        visited[startIndex] = id;
+        queue[tail] = startIndex;
+        depths[tail++] = 0;
+        while (head < tail) {
+            int index = queue[head];
+            int depth = depths[head++];
+            if (depth >= radius) {
+                continue;
+            }
+
+            int x = index % width;
+            int y = index / width;
+            for (int direction = 0; direction < MapTraversalMasks.DIRECTION_COUNT; direction++) {
+                int neighbourX = x + MapTraversalMasks.getDirectionX(direction);
+                int neighbourY = y + MapTraversalMasks.getDirectionY(direction);
+                if (neighbourX < 0 || neighbourX >= width || neighbourY < 0 || neighbourY >= height) {
+                    continue;
+                }
+
+                int neighbour = neighbourY * width + neighbourX;
+                if (visited[neighbour] == id || !isAccessible(index, neighbour, direction, profile, defaultTraversal, navigable)) {
+                    continue;
+                }
+
+                IMapTileInformation tile = mapController.getMapData().getTile(neighbourX, neighbourY);
+                if (roomId != null && !roomId.equals(tile.getRoomId())) {
+                    continue;
+                }
+
+                visited[neighbour] = id;
+                queue[tail] = neighbour;
+                depths[tail++] = depth + 1;
+
+                // Every accepted tile has an equal chance to be the one
+                if (neighbour != startIndex && random.nextInt(++accepted) == 0) {
+                    selected = neighbour;
+                }
+            }
+        }
+
+        if (selected == -1) {
+            return null;
+        }
+
+        return mapController.getMapData().getTile(selected % width, selected / width).getLocation();
+    }
+
+    private boolean isAccessible(int from, int to, int direction, int profile, boolean defaultTraversal, INavigable navigable) {
+        if (traversalMasks.canMove(profile, from, direction)
+                && !entityPositionLookup.isTileBlocked(to % width, to / width, navigable.getOwnerId())) {
+            return true;
+        }
+
+        // The entity might have its own rules on top of the default ones
+        return !defaultTraversal && navigable.getCost(mapController.getMapData().getTile(from % width, from / width),
+                mapController.getMapData().getTile(to % width, to / width), mapController, entityPositionLookup) != null;
+    }
+
+    private int nextSearchId() {
+        if (searchId == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            searchId = 0;
+        }
+
+        return ++searchId;
+    }
+
+}
@@ -0,0 +1,644 @@
+/*
+ * Copyright (C) 2014-2026 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.navigation.pathfinding;
+
+import com.badlogic.gdx.ai.pfa.DefaultGraphPath;
+import com.badlogic.gdx.ai.pfa.GraphPath;
+import com.badlogic.gdx.ai.pfa.Heuristic;
+import java.util.Arrays;
+import java.util.Collection;
+import toniarts.openkeeper.game.controller.IMapController;
+import toniarts.openkeeper.game.listener.TerrainChangeListener;
+import toniarts.openkeeper.game.map.IMapTileInformation;
+import toniarts.openkeeper.utils.Point;
+
+import static toniarts.openkeeper.game.navigation.pathfinding.INavigable.DEFAULT_COST;
+import static toniarts.openkeeper.game.navigation.pathfinding.MapTraversalMasks.DIRECTION_COUNT;
+import static toniarts.openkeeper.game.navigation.pathfinding.MapTraversalMasks.EAST;
+import static toniarts.openkeeper.game.navigation.pathfinding.MapTraversalMasks.PROFILE_COUNT;
+import static toniarts.openkeeper.game.navigation.pathfinding.MapTraversalMasks.SOUTH;
+import static toniarts.openkeeper.game.navigation.pathfinding.MapTraversalMasks.getDirectionX;
+import static toniarts.openkeeper.game.navigation.pathfinding.MapTraversalMasks.getDirectionY;
+import static toniarts.openkeeper.game.navigation.pathfinding.MapTraversalMasks.getOppositeDirection;
+
+/**
+ * Hierarchical path finding (HPA*). The map is split into fixed size clusters.
+ * For each movement profile the passable spots on the cluster borders form an
+ * abstract graph of entrances, with the travel costs between the entrances of
+ * the same cluster precomputed. Long searches are first done on the abstract
+ * graph and then refined cluster by cluster with the normal path finder, so
+ * the cost of a search doesn't grow much with the map size.<br>
+ * Terrain changes only mark the affected clusters dirty, they are rebuilt on
+ * the next search of each profile.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class HierarchicalPathFinder implements TerrainChangeListener {
+
+    public static final int CLUSTER_SIZE = 16;
+
+    /**
+     * Border openings at least this wide get an entrance at both ends instead
+     * of just one in the middle
+     */
+    private static final int WIDE_ENTRANCE = 6;
+    private static final int A_TO_B = 1;
+    private static final int B_TO_A = 1 << 1;
+
+    private final IMapController mapController;
+    private final MapTraversalMasks traversalMasks;
+    private final int width;
+    private final int height;
+    private final int clustersX;
+    private final int clustersY;
+    private final ProfileLayer[] layers = new ProfileLayer[PROFILE_COUNT];
+
+    public HierarchicalPathFinder(IMapController mapController, MapTraversalMasks traversalMasks) {
+        this.mapController = mapController;
+        this.traversalMasks = traversalMasks;
+
+        width = traversalMasks.getWidth();
+        height = traversalMasks.getHeight();
+        clustersX = (width + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+        clustersY = (height + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+    }
+
+    /**
+     * Search the path for the given navigable entity. Short searches and
+     * entities with their own traversal rules go straight to the given path
+     * finder, as does everything the abstract graph can't resolve (doors
+     * etc.)
+     *
+     * @param startNode the start tile
+     * @param endNode the end tile
+     * @param heuristic the heuristic
+     * @param navigable the entity to find path for
+     * @param pathFinder the path finder to use, for the refinement and the
+     * fallback searches
+     * @param outPath the output path
+     * @return true if path was found
+     */
+    public boolean searchNodePath(IMapTileInformation startNode, IMapTileInformation endNode, Heuristic<IMapTileInformation> heuristic,
+            INavigable navigable, MapPathFinder pathFinder, GraphPath<IMapTileInformation> outPath) {
+        if (searchAbstractPath(startNode, endNode, heuristic, navigable, pathFinder, outPath)) {
+            return true;
+        }
+
+        // Blocked by doors, or the route is something the entrances don't cover
+        return pathFinder.searchNodePath(startNode, endNode, heuristic, navigable, outPath);
+    }
+
+    /**
+     * Search the path for the given navigable entity on the abstract graph
+     * only, without falling back to the normal search. The refinement searches
+     * are limited to two clusters at a time, so the cost of this stays bounded
+     * by the length of the path
+     *
+     * @param startNode the start tile
+     * @param endNode the end tile
+     * @param heuristic the heuristic
+     * @param navigable the entity to find path for
+     * @param pathFinder the path finder to use, for the refinement
+     * @param outPath the output path
+     * @return true if path was found, false if the search is short, the entity
+     * has its own traversal rules or the abstract graph couldn't resolve it
+     */
+    public boolean searchAbstractPath(IMapTileInformation startNode, IMapTileInformation endNode, Heuristic<IMapTileInformation> heuristic,
+            INavigable navigable, MapPathFinder pathFinder, GraphPath<IMapTileInformation> outPath) {
+        int startCluster = getCluster(startNode.getX(), startNode.getY());
+        int endCluster = getCluster(endNode.getX(), endNode.getY());
+        if (!navigable.isDefaultTraversal()
+                || (Math.abs(startCluster % clustersX - endCluster % clustersX) <= 1
+                && Math.abs(startCluster / clustersX - endCluster / clustersX) <= 1)) {
+            return false;
+        }
+
+        int[] waypoints = getLayer(MapTraversalMasks.getProfile(navigable)).findWaypoints(startNode.getIndex(), endNode.getIndex());
+        if (waypoints != null && refinePath(waypoints, heuristic, navigable, pathFinder, outPath)) {
+            return true;
+        }
+
+        outPath.clear();
+        return false;
+    }
+
+    private boolean refinePath(int[] waypoints, Heuristic<IMapTileInformation> heuristic, INavigable navigable, MapPathFinder pathFinder,
+            GraphPath<IMapTileInformation> outPath) {
+        GraphPath<IMapTileInformation> segment = new DefaultGraphPath<>();
+        IMapTileInformation from = getTile(waypoints[0]);
+        for (int i = 1; i < waypoints.length; i++) {
+            IMapTileInformation to = getTile(waypoints[i]);
+
+            // The waypoints are always within the same or adjacent clusters
+            int fromCluster = getCluster(from.getX(), from.getY());
+            int toCluster = getCluster(to.getX(), to.getY());
+            segment.clear();
+            if (!pathFinder.searchNodePath(from, to, heuristic, navigable,
+                    Math.min(getMinX(fromCluster), getMinX(toCluster)), Math.min(getMinY(fromCluster), getMinY(toCluster)),
+                    Math.max(getMaxX(fromCluster), getMaxX(toCluster)), Math.max(getMaxY(fromCluster), getMaxY(toCluster)), segment)) {
+                return false;
+            }
+
+            // Consecutive segments share the waypoint
+            for (int j = (i == 1 ? 0 : 1); j < segment.getCount(); j++) {
+                outPath.add(segment.get(j));
+            }
+            from = to;
+        }
+
+        return true;
+    }
+
+    private IMapTileInformation getTile(int index) {
+        return mapController.getMapData().getTile(index % width, index / width);
+    }
+
+    private ProfileLayer getLayer(int profile) {
+        ProfileLayer layer = layers[profile];
+        if (layer == null) {
+            synchronized (layers) {
+                layer = layers[profile];
+                if (layer == null) {
+                    layer = new ProfileLayer(profile);
+                    layers[profile] = layer;
+                }
+            }
+        }
+
+        return layer;
+    }
+
+    @Override
+    public void onTerrainChange(Collection<Point> changedTiles) {
+
+        // The traversal masks of the neighbouring tiles change too
+        for (Point p : changedTiles) {
+            for (int y = Math.max(0, p.y - 1); y <= Math.min(height - 1, p.y + 1); y++) {
+                for (int x = Math.max(0, p.x - 1); x <= Math.min(width - 1, p.x + 1); x++) {
+                    int cluster = getCluster(x, y);
+                    for (ProfileLayer layer : layers) {
+                        if (layer != null) {
+                            layer.markDirty(cluster);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private int getCluster(int x, int y) {
+        return (y / CLUSTER_SIZE) * clustersX + x / CLUSTER_SIZE;
+    }
+
+    private int getMinX(int cluster) {
+        return (cluster % clustersX) * CLUSTER_SIZE;
+    }
+
+    private int getMinY(int cluster) {
+        return (cluster / clustersX) * CLUSTER_SIZE;
+    }
+
+    private int getMaxX(int cluster) {
+        return Math.min(width, getMinX(cluster) + CLUSTER_SIZE) - 1;
+    }
+
+    private int getMaxY(int cluster) {
+        return Math.min(height, getMinY(cluster) + CLUSTER_SIZE) - 1;
+    }
+
+    /**
+     * The abstract graph of a single movement profile. All the access is
+     * synchronized, the graph is small and the searches on it are quick
+     */
+    private final class ProfileLayer {
+
+        private final int profile;
+
+        /**
+         * Transitions to the cluster on the east and on the south, as
+         * triplets of tile index on this side, tile index on the other side
+         * and the allowed directions
+         */
+        private final int[][] eastTransitions;
+        private final int[][] southTransitions;
+        private final Cluster[] clusters;
+        private final int[] nodeSlots;
+        private final boolean[] dirtyClusters;
+        private boolean dirty = false;
+
+        // Search state, shared by all the searches
+        private final float[] costs;
+        private final int[] parents;
+        private final int[] openIds;
+        private final int[] closedIds;
+        private final NodeHeap heap = new NodeHeap();
+        private int searchId = 0;
+
+        public ProfileLayer(int profile) {
+            this.profile = profile;
+
+            int clusterCount = clustersX * clustersY;
+            eastTransitions = new int[clusterCount][];
+            southTransitions = new int[clusterCount][];
+            clusters = new Cluster[clusterCount];
+            dirtyClusters = new boolean[clusterCount];
+            nodeSlots = new int[width * height];
+            Arrays.fill(nodeSlots, -1);
+            costs = new float[width * height];
+            parents = new int[width * height];
+            openIds = new int[width * height];
+            closedIds = new int[width * height];
+
+            for (int cluster = 0; cluster < clusterCount; cluster++) {
+                updateTransitions(cluster);
+            }
+            for (int cluster = 0; cluster < clusterCount; cluster++) {
+                updateCluster(cluster);
+            }
+        }
+
+        public synchronized void markDirty(int cluster) {
+            dirtyClusters[cluster] = true;
+            dirty = true;
+        }
+
+        /**
+         * Find the entrances to travel through from start to end
+         *
+         * @param start the start tile index
+         * @param end the end tile index
+         * @return the tile indices to travel through, including the start and
+         * the end. {@code null} if no route was found
+         */
+        public synchronized int[] findWaypoints(int start, int end) {
+            updateDirtyClusters();
+
+            // Costs from the start to the entrances of its cluster, and from the entrances to the end
+            int endCluster = getCluster(end % width, end / width);
+            Cluster startNodes = clusters[getCluster(start % width, start / width)];
+            Cluster endNodes = clusters[endCluster];
+            searchCluster(start, false);
+            float[] startCosts = collectCosts(startNodes);
+            searchCluster(end, true);
+            float[] endCosts = collectCosts(endNodes);
+
+            // A* over the entrances, the end being a virtual node
+            int id = nextSearchId();
+            int goal = width * height;
+            float goalCost = Float.POSITIVE_INFINITY;
+            int goalParent = -1;
+            heap.clear();
+            for (int i = 0; i < startNodes.nodes.length; i++) {
+                if (startCosts[i] != Float.POSITIVE_INFINITY) {
+                    int node = startNodes.nodes[i];
+                    costs[node] = startCosts[i];
+                    parents[node] = -1;
+                    openIds[node] = id;
+                    heap.add(node, startCosts[i] + estimate(node, end));
+                }
+            }
+            while (!heap.isEmpty()) {
+                int node = heap.poll();
+                if (node == goal) {
+                    return buildWaypoints(start, end, goalParent);
+                }
+                if (closedIds[node] == id) {
+                    continue;
+                }
+                closedIds[node] = id;
+
+                int nodeCluster = getCluster(node % width, node / width);
+                int slot = nodeSlots[node];
+                if (nodeCluster == endCluster && endCosts[slot] != Float.POSITIVE_INFINITY && costs[node] + endCosts[slot] < goalCost) {
+                    goalCost = costs[node] + endCosts[slot];
+                    goalParent = node;
+                    heap.add(goal, goalCost);
+                }
+
+                Cluster cluster = clusters[nodeCluster];
+                int[] targets = cluster.targets[slot];
+                float[] edgeCosts = cluster.costs[slot];
+                for (int i = 0; i < targets.length; i++) {
+                    int target = targets[i];
+                    float cost = costs[node] + edgeCosts[i];
+                    if (closedIds[target] != id && (openIds[target] != id || cost < costs[target])) {
+                        costs[target] = cost;
+                        parents[target] = node;
+                        openIds[target] = id;
+                        heap.add(target, cost + estimate(target, end));
+                    }
+                }
+            }
+
+            return null;
+        }
+
+        private int[] buildWaypoints(int start, int end, int lastNode) {
+            int count = 2;
+            for (int node = lastNode; node != -1; node = parents[node]) {
+                count++;
+            }
+
+            int[] route = new int[count];
+            route[0] = start;
+            route[count - 1] = end;
+            for (int node = lastNode, i = count - 2; node != -1; node = parents[node], i--) {
+                route[i] = node;
+            }
+
+            // The start and the end may be entrances themselves
+            int size = 0;
+            for (int i = 0; i < count; i++) {
+                if (size == 0 || route[size - 1] != route[i]) {
+                    route[size++] = route[i];
+                }
+            }
+
+            return size == count ? route : Arrays.copyOf(route, size);
+        }
+
+        private float estimate(int node, int end) {
+            return (Math.abs(node % width - end % width) + Math.abs(node / width - end / width)) * DEFAULT_COST;
+        }
+
+        private void updateDirtyClusters() {
+            if (!dirty) {
+                return;
+            }
+
+            // The borders are shared, so the neighbours need to be rebuilt as well
+            boolean[] rebuild = new boolean[dirtyClusters.length];
+            for (int cluster = 0; cluster < dirtyClusters.length; cluster++) {
+                if (!dirtyClusters[cluster]) {
+                    continue;
+                }
+
+                dirtyClusters[cluster] = false;
+                updateTransitions(cluster);
+                rebuild[cluster] = true;
+                int x = cluster % clustersX;
+                int y = cluster / clustersX;
+                if (x > 0) {
+                    updateTransitions(cluster - 1);
+                    rebuild[cluster - 1] = true;
+                }
+                if (x < clustersX - 1) {
+                    rebuild[cluster + 1] = true;
+                }
+                if (y > 0) {
+                    updateTransitions(cluster - clustersX);
+                    rebuild[cluster - clustersX] = true;
+                }
+                if (y < clustersY - 1) {
+                    rebuild[cluster + clustersX] = true;
+                }
+            }
+            dirty = false;
+
+            for (int cluster = 0; cluster < rebuild.length; cluster++) {
+                if (rebuild[cluster]) {
+                    updateCluster(cluster);
+                }
+            }
+        }
+
+        private void updateTransitions(int cluster) {
+            int minX = getMinX(cluster);
+            int minY = getMinY(cluster);
+            int maxX = getMaxX(cluster);
+            int maxY = getMaxY(cluster);
+            if (cluster % clustersX < clustersX - 1) {
+                eastTransitions[cluster] = findTransitions(maxY - minY + 1, minY * width + maxX, width, EAST);
+            }
+            if (cluster / clustersX < clustersY - 1) {
+                southTransitions[cluster] = findTransitions(maxX - minX + 1, maxY * width + minX, 1, SOUTH);
+            }
+        }
+
+        private int[] findTransitions(int length, int firstIndex, int step, int direction) {
+            int[] transitions = new int[length * 3];
+            int count = 0;
+            int runStart = 0;
+            int runFlags = 0;
+            for (int i = 0; i <= length; i++) {
+                int flags = 0;
+                if (i < length) {
+                    int index = firstIndex + i * step;
+                    int neighbour = traversalMasks.getNeighbourIndex(index, direction);
+                    flags = (canStep(index, direction) ? A_TO_B : 0) | (canStep(neighbour, getOppositeDirection(direction)) ? B_TO_A : 0);
+                }
+                if (flags == runFlags) {
+                    continue;
+                }
+
+                // An opening ended, place the entrances
+                if (runFlags != 0) {
+                    if (i - runStart >= WIDE_ENTRANCE) {
+                        count = addTransition(transitions, count, firstIndex + runStart * step, direction, runFlags);
+                        count = addTransition(transitions, count, firstIndex + (i - 1) * step, direction, runFlags);
+                    } else {
+                        count = addTransition(transitions, count, firstIndex + ((runStart + i - 1) / 2) * step, direction, runFlags);
+                    }
+                }
+                runStart = i;
+                runFlags = flags;
+            }
+
+            return Arrays.copyOf(transitions, count);
+        }
+
+        private int addTransition(int[] transitions, int count, int index, int direction, int flags) {
+            transitions[count++] = index;
+            transitions[count++] = traversalMasks.getNeighbourIndex(index, direction);
+            transitions[count++] = flags;
+
+            return count;
+        }
+
+        private void updateCluster(int clusterIndex) {
+            Cluster old = clusters[clusterIndex];
+            if (old != null) {
+                for (int node : old.nodes) {
+                    nodeSlots[node] = -1;
+                }
+            }
+
+            // Gather the entrances from all the borders, we are side A on east & south and B on west & north
+            int x = clusterIndex % clustersX;
+            int y = clusterIndex / clustersX;
+            int[][] borders = {
+                eastTransitions[clusterIndex],
+                x > 0 ? eastTransitions[clusterIndex - 1] : null,
+                southTransitions[clusterIndex],
+                y > 0 ? southTransitions[clusterIndex - clustersX] : null
+            };
+            int nodeCount = 0;
+            int[] nodes = new int[0];
+            for (int border = 0; border < borders.length; border++) {
+                int[] transitions = borders[border];
+                if (transitions == null) {
+                    continue;
+                }
+
+                int side = border % 2;
+                for (int i = 0; i < transitions.length; i += 3) {
+                    int node = transitions[i + side];
+                    if (nodeSlots[node] == -1) {
+                        if (nodeCount == nodes.length) {
+                            nodes = Arrays.copyOf(nodes, Math.max(8, nodeCount * 2));
+                        }
+                        nodeSlots[node] = nodeCount;
+                        nodes[nodeCount++] = node;
+                    }
+                }
+            }
+            nodes = Arrays.copyOf(nodes, nodeCount);
+
+            // Edges to the other clusters and the travel costs inside the cluster
+            int[][] targets = new int[nodeCount][];
+            float[][] edgeCosts = new float[nodeCount][];
+            int[] nodeTargets = new int[nodeCount + 8];
+            float[] nodeCosts = new float[nodeCount + 8];
+            for (int slot = 0; slot < nodeCount; slot++) {
+                int node = nodes[slot];
+                int edgeCount = 0;
+                for (int border = 0; border < borders.length; border++) {
+                    int[] transitions = borders[border];
+                    if (transitions == null) {
+                        continue;
+                    }
+
+                    int side = border % 2;
+                    int flag = side == 0 ? A_TO_B : B_TO_A;
+                    for (int i = 0; i < transitions.length; i += 3) {
+                        if (transitions[i + side] == node && (transitions[i + 2] & flag) != 0) {
+                            int target = transitions[i + 1 - side];
+                            nodeTargets[edgeCount] = target;
+                            nodeCosts[edgeCount++] = traversalMasks.getCost(profile, target);
+                        }
+                    }
+                }
+
+                searchCluster(node, false);
+                for (int other : nodes) {
+                    if (other != node && openIds[other] == searchId) {
+                        nodeTargets[edgeCount] = other;
+                        nodeCosts[edgeCount++] = costs[other];
+                    }
+                }
+                targets[slot] = Arrays.copyOf(nodeTargets, edgeCount);
+                edgeCosts[slot] = Arrays.copyOf(nodeCosts, edgeCount);
+            }
+
+            clusters[clusterIndex] = new Cluster(nodes, targets, edgeCosts);
+        }
+
+        /**
+         * Dijkstra inside the cluster of the given tile. The results are left
+         * in the costs, valid for the tiles opened with the current search ID
+         *
+         * @param source the tile to search from
+         * @param reverse search the costs to the source instead of from it
+         */
+        private void searchCluster(int source, boolean reverse) {
+            int cluster = getCluster(source % width, source / width);
+            int minX = getMinX(cluster);
+            int minY = getMinY(cluster);
+            int maxX = getMaxX(cluster);
+            int maxY = getMaxY(cluster);
+            int id = nextSearchId();
+            heap.clear();
+            costs[source] = 0;
+            openIds[source] = id;
+            heap.add(source, 0);
+            while (!heap.isEmpty()) {
+                int index = heap.poll();
+                if (closedIds[index] == id) {
+                    continue;
+                }
+                closedIds[index] = id;
+
+                int x = index % width;
+                int y = index / width;
+                for (int direction = 0; direction < DIRECTION_COUNT; direction++) {
+                    int neighbourX = x + getDirectionX(direction);
+                    int neighbourY = y + getDirectionY(direction);
+                    if (neighbourX < minX || neighbourX > maxX || neighbourY < minY || neighbourY > maxY) {
+                        continue;
+                    }
+
+                    int neighbour = neighbourY * width + neighbourX;
+                    if (closedIds[neighbour] == id
+                            || !(reverse ? canStep(neighbour, getOppositeDirection(direction)) : canStep(index, direction))) {
+                        continue;
+                    }
+
+                    float cost = costs[index] + traversalMasks.getCost(profile, reverse ? index : neighbour);
+                    if (openIds[neighbour] != id || cost < costs[neighbour]) {
+                        costs[neighbour] = cost;
+                        openIds[neighbour] = id;
+                        heap.add(neighbour, cost);
+                    }
+                }
+            }
+        }
+
+        private float[] collectCosts(Cluster cluster) {
+            float[] result = new float[cluster.nodes.length];
+            for (int i = 0; i < result.length; i++) {
+                int node = cluster.nodes[i];
+                result[i] = openIds[node] == searchId ? costs[node] : Float.POSITIVE_INFINITY;
+            }
+
+            return result;
+        }
+
+        private boolean canStep(int index, int direction) {
+            return traversalMasks.canMove(profile, index, direction);
+        }
+
+        private int nextSearchId() {
+            if (searchId == Integer.MAX_VALUE) {
+                Arrays.fill(openIds, 0);
+                Arrays.fill(closedIds, 0);
+                searchId = 0;
+            }
+
+            return ++searchId;
+        }
+
+    }
+
+    /**
+     * The entrances of a cluster and the edges from them, to the entrances
+     * of the same cluster and to the neighbouring clusters
+     */
+    private static final class Cluster {
+
+        private final int[] nodes;
+        private final int[][] targets;
+        private final float[][] costs;
+
+        public Cluster(int[] nodes, int[][] targets, float[][] costs) {
+            this.nodes = nodes;
+            this.targets = targets;
+            this.costs = costs;
+        }
+
+    }
+
+}
@@ -53,6 +53,19 @@ public interface INavigable {
         return MapIndexedGraph.getCost(this, from, to, mapController, entityPositionLookup);
     }
 
+    /**
+     * Does the entity follow the default movement rules, i.e. the
+     * {@link #getCost(IMapTileInformation, IMapTileInformation, IMapController, IEntityPositionLookup)}
+     * is not customized. If so, the path finding can rely solely on the
+     * precomputed traversal masks. Otherwise the cost is queried from the
+     * entity whenever the masks deny the passage.
+     *
+     * @return true if the default movement rules apply
+     */
+    default public boolean isDefaultTraversal() {
+        return true;
+    }
+
     /**
      * The owner of the entity, useful for checking can we pass the doors etc.
      *
@@ -38,14 +38,29 @@ public final class MapIndexedGraph implements IndexedGraph<IMapTileInformation>
 
     private final IMapController mapController;
     private final IEntityPositionLookup entityPositionLookup;
+    private final MapTraversalMasks traversalMasks;
     private final int nodeCount;
+    private final int width;
+    private final int height;
+    private final Array<Connection<IMapTileInformation>> connections = new Array<>(MapTraversalMasks.DIRECTION_COUNT);
     private INavigable pathFindable;
+    private int profile;
+    private byte[] masks;
+    private short ownerId;
+    private boolean defaultTraversal;
+    private int minX;
+    private int minY;
+    private int maxX;
+    private int maxY;
 
-    public MapIndexedGraph(IMapController mapController, IEntityPositionLookup entityPositionLookup) {
+    public MapIndexedGraph(IMapController mapController, IEntityPositionLookup entityPositionLookup, MapTraversalMasks traversalMasks) {
         this.mapController = mapController;
         this.entityPositionLookup = entityPositionLookup;
+        this.traversalMasks = traversalMasks;
 
-        nodeCount = mapController.getMapData().getHeight() * mapController.getMapData().getWidth();
+        width = mapController.getMapData().getWidth();
+        height = mapController.getMapData().getHeight();
+        nodeCount = height * width;
     }
 
     @Override
@@ -66,41 +81,92 @@ public final class MapIndexedGraph implements IndexedGraph<IMapTileInformation>
      */
     public void setPathFindable(INavigable pathFindable) {
         this.pathFindable = pathFindable;
+
+        // Resolve the movement capabilities once per search, not per expanded node
+        profile = MapTraversalMasks.getProfile(pathFindable);
+        masks = traversalMasks.getMasks(profile);
+        ownerId = pathFindable.getOwnerId();
+        defaultTraversal = pathFindable.isDefaultTraversal();
+        setBounds(0, 0, width - 1, height - 1);
     }
 
+    /**
+     * Restrict the search to the given area. Setting the path findable resets
+     * the area to cover the whole map
+     *
+     * @param minX the minimum x coordinate, inclusive
+     * @param minY the minimum y coordinate, inclusive
+     * @param maxX the maximum x coordinate, inclusive
+     * @param maxY the maximum y coordinate, inclusive
+     */
+    public void setBounds(int minX, int minY, int maxX, int maxY) {
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    /**
+     * Get the connections from the given tile. Note that the returned array is
+     * reused between the calls
+     *
+     * @param tile the tile
+     * @return the connections from the tile
+     */
     @Override
     public Array<Connection<IMapTileInformation>> getConnections(IMapTileInformation tile) {
 
         // The connections depend on the creature type
-        Array<Connection<IMapTileInformation>> connections = new Array<>(pathFindable.canMoveDiagonally() ? 8 : 4);
-        boolean valids[] = new boolean[4];
+        connections.clear();
+        int index = tile.getIndex();
+        int mask = masks[index];
 
-        valids[0] = addIfValidCoordinate(tile, tile.getX(), tile.getY() - 1, connections); // North
-        valids[1] = addIfValidCoordinate(tile, tile.getX() + 1, tile.getY(), connections); // East
-        valids[2] = addIfValidCoordinate(tile, tile.getX(), tile.getY() + 1, connections); // South
-        valids[3] = addIfValidCoordinate(tile, tile.getX() - 1, tile.getY(), connections); // West
+        boolean north = addIfValid(tile, index, mask, MapTraversalMasks.NORTH);
+        boolean east = addIfValid(tile, index, mask, MapTraversalMasks.EAST);
+        boolean south = addIfValid(tile, index, mask, MapTraversalMasks.SOUTH);
+        boolean west = addIfValid(tile, index, mask, MapTraversalMasks.WEST);
 
-        if (pathFindable.canMoveDiagonally()) {
-            if (valids[0] && valids[1]) { // North-East
-                addIfValidCoordinate(tile, tile.getX() + 1, tile.getY() - 1, connections);
+        if ((profile & MapTraversalMasks.PROFILE_DIAGONAL) != 0) {
+            if (north && east) {
+                addIfValid(tile, index, mask, MapTraversalMasks.NORTH_EAST);
             }
-            if (valids[0] && valids[3]) { // North-West
-                addIfValidCoordinate(tile, tile.getX() - 1, tile.getY() - 1, connections);
+            if (north && west) {
+                addIfValid(tile, index, mask, MapTraversalMasks.NORTH_WEST);
             }
-            if (valids[2] && valids[1]) { // South-East
-                addIfValidCoordinate(tile, tile.getX() + 1, tile.getY() + 1, connections);
+            if (south && east) {
+                addIfValid(tile, index, mask, MapTraversalMasks.SOUTH_EAST);
             }
-            if (valids[2] && valids[3]) { // South-West
-                addIfValidCoordinate(tile, tile.getX() - 1, tile.getY() + 1, connections);
+            if (south && west) {
+                addIfValid(tile, index, mask, MapTraversalMasks.SOUTH_WEST);
             }
         }
 
         return connections;
     }
 
-    private boolean addIfValidCoordinate(final IMapTileInformation startTile, final int x, final int y, final Array<Connection<IMapTileInformation>> connections) {
+    private boolean addIfValid(final IMapTileInformation startTile, final int index, final int mask, final int direction) {
+        int x = index % width + MapTraversalMasks.getDirectionX(direction);
+        int y = index / width + MapTraversalMasks.getDirectionY(direction);
+        if (x < minX || x > maxX || y < minY || y > maxY) {
+            return false;
+        }
+
+        if ((mask & (1 << direction)) != 0) {
+            if (!entityPositionLookup.isTileBlocked(x, y, ownerId)) {
+                connections.add(traversalMasks.getConnection(profile, startTile, index, direction));
+                return true;
+            }
+        }
+
+        // The entity might have its own rules on top of the default ones
+        return !defaultTraversal && addIfValidCoordinate(startTile, index, direction);
+    }
+
+    private boolean addIfValidCoordinate(final IMapTileInformation startTile, final int index, final int direction) {
 
         // Valid coordinate
+        int x = index % width + MapTraversalMasks.getDirectionX(direction);
+        int y = index / width + MapTraversalMasks.getDirectionY(direction);
         IMapTileInformation tile = mapController.getMapData().getTile(x, y);
         if (tile != null) {
             Float cost = pathFindable.getCost(startTile, tile, mapController, entityPositionLookup);
@@ -137,6 +203,20 @@ public final class MapIndexedGraph implements IndexedGraph<IMapTileInformation>
         return getCost(navigable, from, to, mapController, entityPositionLookup, true);
     }
 
+    /**
+     * Can the entity travel from A to B, considering only the static terrain
+     * rules. Doors and other obstacles are not checked
+     *
+     * @param navigable the navigable entity
+     * @param from the tile we are traversing from
+     * @param to the tile we are travelling to
+     * @param mapController the map controller
+     * @return {@code null} if the to tile is not accessible
+     */
+    protected static Float getTerrainCost(final INavigable navigable, final IMapTileInformation from, final IMapTileInformation to, final IMapController mapController) {
+        return getCost(navigable, from, to, mapController, null, true);
+    }
+
     private static Float getCost(final INavigable navigable, final IMapTileInformation from, final IMapTileInformation to, final IMapController mapController,
             IEntityPositionLookup entityPositionLookup, boolean checkDiagonal) {
         Terrain terrain = mapController.getTerrain(to);
@@ -171,8 +251,8 @@ public final class MapIndexedGraph implements IndexedGraph<IMapTileInformation>
                 }
             }
 
-            // Check for doors etc.
-            if (entityPositionLookup.isTileBlocked(to, navigable.getOwnerId())) {
+            // Check for doors etc., unless only interested in the terrain
+            if (entityPositionLookup != null && entityPositionLookup.isTileBlocked(to, navigable.getOwnerId())) {
                 return null;
             }
 
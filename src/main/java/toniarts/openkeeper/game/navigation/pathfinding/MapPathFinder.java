@@ -16,18 +16,122 @@
  */
 package toniarts.openkeeper.game.navigation.pathfinding;
 
+import com.badlogic.gdx.ai.pfa.GraphPath;
+import com.badlogic.gdx.ai.pfa.Heuristic;
+import com.badlogic.gdx.ai.pfa.PathFinderRequest;
 import com.badlogic.gdx.ai.pfa.indexed.IndexedAStarPathFinder;
 import toniarts.openkeeper.game.map.IMapTileInformation;
 
 /**
- * The actual path finder
+ * The actual path finder. Holds its own graph and search state, so one path
+ * finder can only serve one search at a time
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
 public final class MapPathFinder extends IndexedAStarPathFinder<IMapTileInformation> {
 
+    private final MapIndexedGraph graph;
+
     public MapPathFinder(MapIndexedGraph graph, boolean calculateMetrics) {
         super(graph, calculateMetrics);
+
+        this.graph = graph;
+    }
+
+    /**
+     * Turn the counting of the visited nodes on or off
+     *
+     * @param calculateMetrics whether to count the visited nodes
+     * @see PathFindingMetrics#isEnabled()
+     */
+    public void setCalculateMetrics(boolean calculateMetrics) {
+        if (!calculateMetrics) {
+            metrics = null;
+        } else if (metrics == null) {
+            metrics = new Metrics();
+        }
+    }
+
+    /**
+     * Search the path for the given navigable entity
+     *
+     * @param startNode the start tile
+     * @param endNode the end tile
+     * @param heuristic the heuristic
+     * @param navigable the entity to find path for
+     * @param outPath the output path
+     * @return true if path was found
+     */
+    public boolean searchNodePath(IMapTileInformation startNode, IMapTileInformation endNode, Heuristic<IMapTileInformation> heuristic,
+            INavigable navigable, GraphPath<IMapTileInformation> outPath) {
+        graph.setPathFindable(navigable);
+
+        return searchAndCount(startNode, endNode, heuristic, outPath);
+    }
+
+    /**
+     * Search the path for the given navigable entity, restricting the search
+     * to the given area
+     *
+     * @param startNode the start tile
+     * @param endNode the end tile
+     * @param heuristic the heuristic
+     * @param navigable the entity to find path for
+     * @param minX the minimum x coordinate, inclusive
+     * @param minY the minimum y coordinate, inclusive
+     * @param maxX the maximum x coordinate, inclusive
+     * @param maxY the maximum y coordinate, inclusive
+     * @param outPath the output path
+     * @return true if path was found
+     */
+    public boolean searchNodePath(IMapTileInformation startNode, IMapTileInformation endNode, Heuristic<IMapTileInformation> heuristic,
+            INavigable navigable, int minX, int minY, int maxX, int maxY, GraphPath<IMapTileInformation> outPath) {
+        graph.setPathFindable(navigable);
+        graph.setBounds(minX, minY, maxX, maxY);
+
+        return searchAndCount(startNode, endNode, heuristic, outPath);
+    }
+
+    /**
+     * Start a resumable search for the given navigable entity. Continue the
+     * search with {@link #search(PathFinderRequest, long)} until it is done.
+     * The path finder can't be used for anything else meanwhile
+     *
+     * @param startNode the start tile
+     * @param endNode the end tile
+     * @param heuristic the heuristic
+     * @param navigable the entity to find path for
+     * @param outPath the output path
+     * @return the search request
+     */
+    public PathFinderRequest<IMapTileInformation> startSearch(IMapTileInformation startNode, IMapTileInformation endNode, Heuristic<IMapTileInformation> heuristic,
+            INavigable navigable, GraphPath<IMapTileInformation> outPath) {
+        graph.setPathFindable(navigable);
+
+        PathFinderRequest<IMapTileInformation> request = new PathFinderRequest<>(startNode, endNode, heuristic, outPath);
+        request.changeStatus(PathFinderRequest.SEARCH_INITIALIZED);
+
+        return request;
+    }
+
+    @Override
+    public boolean search(PathFinderRequest<IMapTileInformation> request, long timeToRun) {
+        boolean done = super.search(request, timeToRun);
+        if (done && metrics != null) {
+            PathFindingMetrics.addVisitedNodes(metrics.visitedNodes);
+        }
+
+        return done;
+    }
+
+    private boolean searchAndCount(IMapTileInformation startNode, IMapTileInformation endNode, Heuristic<IMapTileInformation> heuristic,
+            GraphPath<IMapTileInformation> outPath) {
+        boolean found = searchNodePath(startNode, endNode, heuristic, outPath);
+        if (metrics != null) {
+            PathFindingMetrics.addVisitedNodes(metrics.visitedNodes);
+        }
+
+        return found;
     }
 
 }
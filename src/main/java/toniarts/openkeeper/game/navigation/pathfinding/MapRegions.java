@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2014-2026 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.navigation.pathfinding;
+
+import java.util.Arrays;
+import java.util.Collection;
+import toniarts.openkeeper.game.listener.TerrainChangeListener;
+import toniarts.openkeeper.utils.Point;
+
+import static toniarts.openkeeper.game.navigation.pathfinding.MapTraversalMasks.DIRECTION_COUNT;
+import static toniarts.openkeeper.game.navigation.pathfinding.MapTraversalMasks.PROFILE_COUNT;
+import static toniarts.openkeeper.game.navigation.pathfinding.MapTraversalMasks.getDirectionX;
+import static toniarts.openkeeper.game.navigation.pathfinding.MapTraversalMasks.getDirectionY;
+import static toniarts.openkeeper.game.navigation.pathfinding.MapTraversalMasks.getOppositeDirection;
+
+/**
+ * Connected regions of the map per movement profile. Tiles in different
+ * regions can never reach each other, so unreachable targets can be ruled out
+ * without searching.<br>
+ * The regions are kept in a union-find structure. Terrain changes that only
+ * open up new connections (digging, claiming) just join the regions, any lost
+ * connection makes the profile flood its regions again. Doors and other
+ * dynamic obstacles are not considered.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class MapRegions implements TerrainChangeListener {
+
+    private final MapTraversalMasks traversalMasks;
+    private final int width;
+    private final int height;
+    private final ProfileRegions[] regions = new ProfileRegions[PROFILE_COUNT];
+
+    public MapRegions(MapTraversalMasks traversalMasks) {
+        this.traversalMasks = traversalMasks;
+
+        width = traversalMasks.getWidth();
+        height = traversalMasks.getHeight();
+    }
+
+    /**
+     * Are the tiles in the same region, i.e. could there be a path between
+     * them. Doors are not considered
+     *
+     * @param profile the movement profile
+     * @param start the start tile index
+     * @param end the end tile index
+     * @return false if the end can't be reached from the start
+     * @see MapTraversalMasks#getProfile(INavigable)
+     */
+    public boolean isConnected(int profile, int start, int end) {
+        return getRegions(profile).isConnected(start, end);
+    }
+
+    private ProfileRegions getRegions(int profile) {
+        ProfileRegions profileRegions = regions[profile];
+        if (profileRegions == null) {
+            synchronized (regions) {
+                profileRegions = regions[profile];
+                if (profileRegions == null) {
+                    profileRegions = new ProfileRegions(profile);
+                    regions[profile] = profileRegions;
+                }
+            }
+        }
+
+        return profileRegions;
+    }
+
+    @Override
+    public void onTerrainChange(Collection<Point> changedTiles) {
+
+        // The traversal masks of the neighbouring tiles change too
+        for (ProfileRegions profileRegions : regions) {
+            if (profileRegions == null) {
+                continue;
+            }
+
+            for (Point p : changedTiles) {
+                for (int y = Math.max(0, p.y - 1); y <= Math.min(height - 1, p.y + 1); y++) {
+                    for (int x = Math.max(0, p.x - 1); x <= Math.min(width - 1, p.x + 1); x++) {
+                        profileRegions.markDirty(y * width + x);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The regions of a single movement profile. All the access is
+     * synchronized, the queries are just a couple of array lookups
+     */
+    private final class ProfileRegions {
+
+        private final int profile;
+        private final int[] labels;
+        private final int[] parents;
+
+        /**
+         * The masks the current regions are based on, to tell what changed
+         */
+        private final byte[] masks;
+        private final boolean[] dirtyTiles;
+        private int[] dirtyIndices = new int[64];
+        private int dirtyCount = 0;
+
+        public ProfileRegions(int profile) {
+            this.profile = profile;
+
+            labels = new int[width * height];
+            parents = new int[width * height];
+            masks = new byte[width * height];
+            dirtyTiles = new boolean[width * height];
+            floodRegions();
+        }
+
+        public synchronized boolean isConnected(int start, int end) {
+            updateDirtyTiles();
+
+            return find(labels[start]) == find(labels[end]);
+        }
+
+        public synchronized void markDirty(int index) {
+            if (dirtyTiles[index]) {
+                return;
+            }
+
+            if (dirtyCount == dirtyIndices.length) {
+                dirtyIndices = Arrays.copyOf(dirtyIndices, dirtyCount * 2);
+            }
+            dirtyTiles[index] = true;
+            dirtyIndices[dirtyCount++] = index;
+        }
+
+        private void updateDirtyTiles() {
+            if (dirtyCount == 0) {
+                return;
+            }
+
+            byte[] currentMasks = traversalMasks.getMasks(profile);
+            boolean connectionsLost = false;
+            for (int i = 0; i < dirtyCount; i++) {
+                int index = dirtyIndices[i];
+                dirtyTiles[index] = false;
+                connectionsLost |= (masks[index] & ~currentMasks[index]) != 0;
+            }
+
+            if (connectionsLost) {
+                floodRegions();
+            } else {
+
+                // New connections only, join the regions
+                for (int i = 0; i < dirtyCount; i++) {
+                    int index = dirtyIndices[i];
+                    masks[index] = currentMasks[index];
+                    for (int direction = 0; direction < DIRECTION_COUNT; direction++) {
+                        if (traversalMasks.canMove(profile, index, direction)) {
+                            union(labels[index], labels[traversalMasks.getNeighbourIndex(index, direction)]);
+                        }
+                    }
+                }
+            }
+            dirtyCount = 0;
+        }
+
+        private void floodRegions() {
+            System.arraycopy(traversalMasks.getMasks(profile), 0, masks, 0, masks.length);
+            Arrays.fill(labels, -1);
+            int[] queue = new int[width * height];
+            int label = 0;
+            for (int start = 0; start < labels.length; start++) {
+                if (labels[start] != -1) {
+                    continue;
+                }
+
+                // Moves in either direction connect the tiles
+                parents[label] = label;
+                labels[start] = label;
+                int head = 0;
+                int tail = 0;
+                queue[tail++] = start;
+                while (head < tail) {
+                    int index = queue[head++];
+                    int x = index % width;
+                    int y = index / width;
+                    for (int direction = 0; direction < DIRECTION_COUNT; direction++) {
+                        int neighbourX = x + getDirectionX(direction);
+                        int neighbourY = y + getDirectionY(direction);
+                        if (neighbourX < 0 || neighbourX >= width || neighbourY < 0 || neighbourY >= height) {
+                            continue;
+                        }
+
+                        int neighbour = neighbourY * width + neighbourX;
+                        if (labels[neighbour] == -1
+                                && (traversalMasks.canMove(profile, index, direction)
+                                || traversalMasks.canMove(profile, neighbour, getOppositeDirection(direction)))) {
+                            labels[neighbour] = label;
+                            queue[tail++] = neighbour;
+                        }
+                    }
+                }
+                label++;
+            }
+        }
+
+        private int find(int label) {
+            while (parents[label] != label) {
+                parents[label] = parents[parents[label]];
+                label = parents[label];
+            }
+
+            return label;
+        }
+
+        private void union(int a, int b) {
+            int rootA = find(a);
+            int rootB = find(b);
+            if (rootA != rootB) {
+                parents[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,399 @@
+/*
+ * Copyright (C) 2014-2026 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.navigation.pathfinding;
+
+import com.badlogic.gdx.ai.pfa.Connection;
+import java.util.Collection;
+import toniarts.openkeeper.game.controller.IMapController;
+import toniarts.openkeeper.game.listener.TerrainChangeListener;
+import toniarts.openkeeper.game.map.IMapDataInformation;
+import toniarts.openkeeper.game.map.IMapTileController;
+import toniarts.openkeeper.game.map.IMapTileInformation;
+import toniarts.openkeeper.tools.convert.map.Terrain;
+import toniarts.openkeeper.utils.Point;
+
+import static toniarts.openkeeper.game.navigation.pathfinding.INavigable.DEFAULT_COST;
+import static toniarts.openkeeper.game.navigation.pathfinding.INavigable.WATER_COST;
+
+/**
+ * Precomputed traversal data of the map. For each movement profile (flying,
+ * walking on water etc.) every tile has a bit mask of the directions the
+ * entity can move to from the tile. Only the static rules (terrain, room
+ * layouts) are covered, doors and other dynamic obstacles need to be checked
+ * separately.<br>
+ * The masks are built lazily per profile and kept up to date by listening to
+ * the terrain changes. So the path finding only needs to read primitive
+ * arrays.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class MapTraversalMasks implements TerrainChangeListener {
+
+    public static final int PROFILE_FLY = 1;
+    public static final int PROFILE_WATER = 1 << 1;
+    public static final int PROFILE_LAVA = 1 << 2;
+    public static final int PROFILE_DIAGONAL = 1 << 3;
+    public static final int PROFILE_COUNT = 1 << 4;
+
+    /**
+     * The directions, in the order the neighbours are visited: north, east,
+     * south, west, north-east, north-west, south-east and south-west
+     */
+    public static final int DIRECTION_COUNT = 8;
+    public static final int NORTH = 0;
+    public static final int EAST = 1;
+    public static final int SOUTH = 2;
+    public static final int WEST = 3;
+    public static final int NORTH_EAST = 4;
+    public static final int NORTH_WEST = 5;
+    public static final int SOUTH_EAST = 6;
+    public static final int SOUTH_WEST = 7;
+    private static final int[] DIRECTION_X = {0, 1, 0, -1, 1, -1, 1, -1};
+    private static final int[] DIRECTION_Y = {-1, 0, 1, 0, -1, -1, 1, 1};
+    private static final int[] OPPOSITE_DIRECTION = {SOUTH, WEST, NORTH, EAST, SOUTH_WEST, SOUTH_EAST, NORTH_WEST, NORTH_EAST};
+    private static final int[] DIAGONAL_FIRST = {-1, -1, -1, -1, NORTH, NORTH, SOUTH, SOUTH};
+    private static final int[] DIAGONAL_SECOND = {-1, -1, -1, -1, EAST, WEST, EAST, WEST};
+
+    private final IMapController mapController;
+    private final int width;
+    private final int height;
+    private final byte[][] masks = new byte[PROFILE_COUNT][];
+    private final boolean[] waterTiles;
+    private final Connection<IMapTileInformation>[] connections;
+    private volatile long epoch = 0;
+
+    public MapTraversalMasks(IMapController mapController) {
+        this.mapController = mapController;
+
+        width = mapController.getMapData().getWidth();
+        height = mapController.getMapData().getHeight();
+        waterTiles = new boolean[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                updateWaterTile(x, y);
+            }
+        }
+
+        // Cached connections for each tile, direction and cost type (default or water)
+        connections = new Connection[width * height * DIRECTION_COUNT * 2];
+    }
+
+    /**
+     * Get the movement profile of the given navigable
+     *
+     * @param navigable the navigable entity
+     * @return the movement profile
+     */
+    public static int getProfile(INavigable navigable) {
+        int profile = 0;
+        if (navigable.canFly()) {
+            profile |= PROFILE_FLY;
+        }
+        if (navigable.canWalkOnWater()) {
+            profile |= PROFILE_WATER;
+        }
+        if (navigable.canWalkOnLava()) {
+            profile |= PROFILE_LAVA;
+        }
+        if (navigable.canMoveDiagonally()) {
+            profile |= PROFILE_DIAGONAL;
+        }
+
+        return profile;
+    }
+
+    /**
+     * Get the traversal masks for given movement profile. The array is indexed
+     * by the tile index and it is updated in place, so the reference can be
+     * held on to
+     *
+     * @param profile the movement profile
+     * @return the traversal masks, bit set for each accessible direction
+     * @see #getProfile(INavigable)
+     */
+    public byte[] getMasks(int profile) {
+        byte[] profileMasks = masks[profile];
+        if (profileMasks == null) {
+            synchronized (masks) {
+                profileMasks = masks[profile];
+                if (profileMasks == null) {
+                    profileMasks = new byte[width * height];
+                    for (int y = 0; y < height; y++) {
+                        for (int x = 0; x < width; x++) {
+                            profileMasks[y * width + x] = calculateMask(profile, x, y);
+                        }
+                    }
+                    masks[profile] = profileMasks;
+                }
+            }
+        }
+
+        return profileMasks;
+    }
+
+    /**
+     * Can the tile be traversed to the given direction with the given profile.
+     * Does not account for the doors and other dynamic obstacles
+     *
+     * @param profile the movement profile
+     * @param index the tile index
+     * @param direction the direction
+     * @return true if the direction is accessible
+     */
+    public boolean isAccessible(int profile, int index, int direction) {
+        return (getMasks(profile)[index] & (1 << direction)) != 0;
+    }
+
+    /**
+     * Can the tile be left to the given direction with the given profile. Like
+     * in the path finding, diagonal moves also need both of the adjacent
+     * orthogonal directions to be accessible. Does not account for the doors
+     * and other dynamic obstacles
+     *
+     * @param profile the movement profile
+     * @param index the tile index
+     * @param direction the direction
+     * @return true if the move is possible
+     */
+    public boolean canMove(int profile, int index, int direction) {
+        int mask = getMasks(profile)[index];
+        if ((mask & (1 << direction)) == 0) {
+            return false;
+        }
+        if (direction < NORTH_EAST) {
+            return true;
+        }
+
+        return (profile & PROFILE_DIAGONAL) != 0
+                && (mask & (1 << DIAGONAL_FIRST[direction])) != 0
+                && (mask & (1 << DIAGONAL_SECOND[direction])) != 0;
+    }
+
+    /**
+     * Get the cost of entering the tile with the given profile. The tile is
+     * assumed to be accessible
+     *
+     * @param profile the movement profile
+     * @param index the tile index
+     * @return the cost
+     */
+    public float getCost(int profile, int index) {
+        return isWaterCost(profile, index) ? WATER_COST : DEFAULT_COST;
+    }
+
+    private boolean isWaterCost(int profile, int index) {
+        return (profile & PROFILE_FLY) == 0 && waterTiles[index];
+    }
+
+    /**
+     * Get a connection from the tile to the given direction. The connections
+     * are immutable and cached, so the path finding doesn't need to create
+     * them
+     *
+     * @param profile the movement profile
+     * @param from the tile we are traversing from
+     * @param index index of the tile we are traversing from
+     * @param direction the direction
+     * @return the connection
+     */
+    public Connection<IMapTileInformation> getConnection(int profile, IMapTileInformation from, int index, int direction) {
+        int toIndex = getNeighbourIndex(index, direction);
+        boolean waterCost = isWaterCost(profile, toIndex);
+        int connectionIndex = (index * DIRECTION_COUNT + direction) * 2 + (waterCost ? 1 : 0);
+        Connection<IMapTileInformation> connection = connections[connectionIndex];
+        if (connection == null) {
+            IMapTileInformation to = mapController.getMapData().getTile(toIndex % width, toIndex / width);
+            connection = new MapConnection(from, to, waterCost ? WATER_COST : DEFAULT_COST);
+            connections[connectionIndex] = connection;
+        }
+
+        return connection;
+    }
+
+    /**
+     * Get the neighbouring tile index
+     *
+     * @param index the tile index
+     * @param direction the direction
+     * @return index of the neighbour tile, the neighbour is assumed to be
+     * within the map
+     */
+    public int getNeighbourIndex(int index, int direction) {
+        return index + DIRECTION_Y[direction] * width + DIRECTION_X[direction];
+    }
+
+    public static int getDirectionX(int direction) {
+        return DIRECTION_X[direction];
+    }
+
+    public static int getDirectionY(int direction) {
+        return DIRECTION_Y[direction];
+    }
+
+    public static int getOppositeDirection(int direction) {
+        return OPPOSITE_DIRECTION[direction];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Get the traversal epoch. The epoch is advanced on every change in the
+     * traversal data, so anything derived from it is valid for as long as the
+     * epoch stays the same. Changes that leave the traversal as it was, like
+     * claiming a tile, don't count
+     *
+     * @return the current traversal epoch
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    @Override
+    public void onTerrainChange(Collection<Point> changedTiles) {
+        boolean changed = false;
+
+        // The neighbours might lose or gain access to the changed tiles as well
+        for (Point p : changedTiles) {
+            changed |= updateWaterTile(p.x, p.y);
+            for (int profile = 0; profile < PROFILE_COUNT; profile++) {
+                byte[] profileMasks = masks[profile];
+                if (profileMasks == null) {
+                    continue;
+                }
+
+                for (int y = Math.max(0, p.y - 1); y <= Math.min(height - 1, p.y + 1); y++) {
+                    for (int x = Math.max(0, p.x - 1); x <= Math.min(width - 1, p.x + 1); x++) {
+                        byte mask = calculateMask(profile, x, y);
+                        changed |= profileMasks[y * width + x] != mask;
+                        profileMasks[y * width + x] = mask;
+                    }
+                }
+            }
+        }
+
+        if (changed) {
+            epoch++;
+        }
+    }
+
+    private boolean updateWaterTile(int x, int y) {
+        IMapTileInformation tile = mapController.getMapData().getTile(x, y);
+        if (tile == null) {
+            return false;
+        }
+
+        Terrain terrain = mapController.getTerrain(tile);
+        boolean water = terrain.getFlags().contains(Terrain.TerrainFlag.WATER)
+                && !terrain.getFlags().contains(Terrain.TerrainFlag.ROOM);
+        boolean changed = waterTiles[y * width + x] != water;
+        waterTiles[y * width + x] = water;
+
+        return changed;
+    }
+
+    private byte calculateMask(int profile, int x, int y) {
+        IMapDataInformation<IMapTileController> mapData = mapController.getMapData();
+        IMapTileInformation from = mapData.getTile(x, y);
+        INavigable navigable = new ProfileNavigable(profile);
+        int mask = 0;
+        for (int direction = 0; direction < DIRECTION_COUNT; direction++) {
+            IMapTileInformation to = mapData.getTile(x + DIRECTION_X[direction], y + DIRECTION_Y[direction]);
+            if (to != null && MapIndexedGraph.getTerrainCost(navigable, from, to, mapController) != null) {
+                mask |= 1 << direction;
+            }
+        }
+
+        return (byte) mask;
+    }
+
+    /**
+     * Immutable connection between two adjacent tiles
+     */
+    private static final class MapConnection implements Connection<IMapTileInformation> {
+
+        private final IMapTileInformation fromNode;
+        private final IMapTileInformation toNode;
+        private final float cost;
+
+        public MapConnection(IMapTileInformation fromNode, IMapTileInformation toNode, float cost) {
+            this.fromNode = fromNode;
+            this.toNode = toNode;
+            this.cost = cost;
+        }
+
+        @Override
+        public float getCost() {
+            return cost;
+        }
+
+        @Override
+        public IMapTileInformation getFromNode() {
+            return fromNode;
+        }
+
+        @Override
+        public IMapTileInformation getToNode() {
+            return toNode;
+        }
+
+    }
+
+    /**
+     * Navigable presenting a movement profile, used for calculating the masks
+     */
+    private static final class ProfileNavigable implements INavigable {
+
+        private final int profile;
+
+        public ProfileNavigable(int profile) {
+            this.profile = profile;
+        }
+
+        @Override
+        public short getOwnerId() {
+            return 0;
+        }
+
+        @Override
+        public boolean canFly() {
+            return (profile & PROFILE_FLY) != 0;
+        }
+
+        @Override
+        public boolean canWalkOnWater() {
+            return (profile & PROFILE_WATER) != 0;
+        }
+
+        @Override
+        public boolean canWalkOnLava() {
+            return (profile & PROFILE_LAVA) != 0;
+        }
+
+        @Override
+        public boolean canMoveDiagonally() {
+            return (profile & PROFILE_DIAGONAL) != 0;
+        }
+
+    }
+
+}
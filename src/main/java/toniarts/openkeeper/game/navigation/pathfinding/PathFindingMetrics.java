@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2014-2026 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.navigation.pathfinding;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in path finding metrics. Records the searches per caller, the caller
+ * being the first method outside the navigation code that asked for the path.
+ * For each caller the search counts, latency histogram and visited nodes are
+ * kept.<br>
+ * The metrics are process wide and off by default, enable them with the
+ * system property {@value #PROPERTY} or from the game console.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class PathFindingMetrics {
+
+    public static final String PROPERTY = "openkeeper.pathFindingMetrics";
+
+    /**
+     * Latency histogram buckets, in powers of two microseconds. The last one
+     * catches everything over a second
+     */
+    private static final int HISTOGRAM_BUCKETS = 22;
+    private static final String NAVIGATION_PACKAGE = "toniarts.openkeeper.game.navigation";
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+    private static final ThreadLocal<int[]> VISITED_NODES = ThreadLocal.withInitial(() -> new int[1]);
+    private static final Map<String, CallerMetrics> CALLERS = new ConcurrentHashMap<>();
+    private static volatile boolean enabled = Boolean.getBoolean(PROPERTY);
+
+    private PathFindingMetrics() {
+        // Nope
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        PathFindingMetrics.enabled = enabled;
+    }
+
+    public static void reset() {
+        CALLERS.clear();
+    }
+
+    /**
+     * Get the number of nodes visited by the searches on the current thread
+     *
+     * @return the visited node count, only meaningful compared to an earlier
+     * value
+     */
+    public static int getVisitedNodes() {
+        return VISITED_NODES.get()[0];
+    }
+
+    static void addVisitedNodes(int visitedNodes) {
+        VISITED_NODES.get()[0] += visitedNodes;
+    }
+
+    /**
+     * Resolve the caller of the path finding from the current stack
+     *
+     * @return the caller, as class and method name
+     */
+    public static String getCaller() {
+        return STACK_WALKER.walk(frames -> frames
+                .filter(frame -> !frame.getClassName().startsWith(NAVIGATION_PACKAGE))
+                .findFirst()
+                .map(frame -> frame.getClassName().substring(frame.getClassName().lastIndexOf('.') + 1) + "." + frame.getMethodName())
+                .orElse("Unknown"));
+    }
+
+    /**
+     * Record a path search
+     *
+     * @param caller the caller
+     * @param nanos duration of the search
+     * @param visitedNodes number of nodes visited
+     * @param found whether the path was found
+     */
+    public static void record(String caller, long nanos, int visitedNodes, boolean found) {
+        CALLERS.computeIfAbsent(caller, CallerMetrics::new).record(nanos, visitedNodes, found);
+    }
+
+    /**
+     * Get a human readable report of the metrics, the most time consuming
+     * callers first
+     *
+     * @return the report
+     */
+    public static String getReport() {
+        List<CallerMetrics> metrics = new ArrayList<>(CALLERS.values());
+        if (metrics.isEmpty()) {
+            return enabled ? "No path searches recorded" : "Path finding metrics are not enabled";
+        }
+
+        metrics.sort(Comparator.comparingLong((CallerMetrics m) -> m.totalNanos.sum()).reversed());
+        StringBuilder sb = new StringBuilder();
+        for (CallerMetrics m : metrics) {
+            long searches = m.searches.sum();
+            sb.append(m.caller).append(": ")
+                    .append(searches).append(" searches, ")
+                    .append(m.failures.sum()).append(" failed, avg ")
+                    .append(m.totalNanos.sum() / searches / 1000).append(" us, p50 ")
+                    .append(m.getPercentile(0.5f)).append(" us, p95 ")
+                    .append(m.getPercentile(0.95f)).append(" us, p99 ")
+                    .append(m.getPercentile(0.99f)).append(" us, max ")
+                    .append(m.maxNanos.get() / 1000).append(" us, avg visited ")
+                    .append(m.visitedNodes.sum() / searches).append('\n');
+        }
+
+        return sb.toString();
+    }
+
+    private static final class CallerMetrics {
+
+        private final String caller;
+        private final LongAdder searches = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder visitedNodes = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray histogram = new AtomicLongArray(HISTOGRAM_BUCKETS);
+
+        public CallerMetrics(String caller) {
+            this.caller = caller;
+        }
+
+        private void record(long nanos, int visited, boolean found) {
+            searches.increment();
+            if (!found) {
+                failures.increment();
+            }
+            totalNanos.add(nanos);
+            visitedNodes.add(visited);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            long micros = nanos / 1000;
+            histogram.incrementAndGet(Math.min(HISTOGRAM_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros)));
+        }
+
+        /**
+         * Estimate a latency percentile, as the upper bound of the histogram
+         * bucket it falls in
+         */
+        private long getPercentile(float percentile) {
+            long total = 0;
+            for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+                total += histogram.get(i);
+            }
+
+            long count = 0;
+            for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+                count += histogram.get(i);
+                if (count >= total * percentile) {
+                    return (1L << i) - 1;
+                }
+            }
+
+            return (1L << HISTOGRAM_BUCKETS) - 1;
+        }
+
+    }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2014-2026 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.navigation.pathfinding;
+
+import com.badlogic.gdx.ai.pfa.DefaultGraphPath;
+import com.badlogic.gdx.ai.pfa.GraphPath;
+import toniarts.openkeeper.game.logic.IEntityPositionLookup;
+import toniarts.openkeeper.game.map.IMapTileInformation;
+
+/**
+ * Simplifies the found paths for the steering (string pulling). Waypoints
+ * are dropped as long as the straight line between the remaining waypoints
+ * only crosses tiles the entity could walk through the same way. The line is
+ * traced over the tiles with the traversal masks, so the rules are the same
+ * as in the path finding.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class PathSimplifier {
+
+    private final MapTraversalMasks traversalMasks;
+    private final IEntityPositionLookup entityPositionLookup;
+    private final int width;
+
+    public PathSimplifier(MapTraversalMasks traversalMasks, IEntityPositionLookup entityPositionLookup) {
+        this.traversalMasks = traversalMasks;
+        this.entityPositionLookup = entityPositionLookup;
+
+        width = traversalMasks.getWidth();
+    }
+
+    /**
+     * Drop the redundant waypoints from the path
+     *
+     * @param path the path, consecutive tiles
+     * @param navigable the entity the path is for
+     * @return a new path with just the waypoints needed
+     */
+    public GraphPath<IMapTileInformation> simplify(GraphPath<IMapTileInformation> path, INavigable navigable) {
+        int count = path.getCount();
+        if (count < 3) {
+            return path;
+        }
+
+        int profile = MapTraversalMasks.getProfile(navigable);
+        short ownerId = navigable.getOwnerId();
+        GraphPath<IMapTileInformation> result = new DefaultGraphPath<>();
+        int anchor = 0;
+        result.add(path.get(anchor));
+
+        // Don't let the line wander into costlier tiles than the path itself uses
+        float maxCost = 0;
+        for (int i = 1; i < count; i++) {
+            maxCost = Math.max(maxCost, traversalMasks.getCost(profile, path.get(i).getIndex()));
+            if (i - anchor > 1 && !hasLineOfSight(path.get(anchor), path.get(i), profile, ownerId, maxCost)) {
+                anchor = i - 1;
+                result.add(path.get(anchor));
+                maxCost = traversalMasks.getCost(profile, path.get(i).getIndex());
+            }
+        }
+        result.add(path.get(count - 1));
+
+        return result;
+    }
+
+    /**
+     * Walks all the tiles the line between the tile centres touches
+     */
+    private boolean hasLineOfSight(IMapTileInformation from, IMapTileInformation to, int profile, short ownerId, float maxCost) {
+        int x = from.getX();
+        int y = from.getY();
+        int dx = to.getX() - x;
+        int dy = to.getY() - y;
+        int nx = Math.abs(dx);
+        int ny = Math.abs(dy);
+        int signX = Integer.signum(dx);
+        int signY = Integer.signum(dy);
+        int index = from.getIndex();
+        for (int ix = 0, iy = 0; ix < nx || iy < ny;) {
+            int decision = (1 + 2 * ix) * ny - (1 + 2 * iy) * nx;
+            int stepX = 0;
+            int stepY = 0;
+            if (decision == 0) {
+
+                // Exactly through the corner
+                stepX = signX;
+                stepY = signY;
+                ix++;
+                iy++;
+            } else if (decision < 0) {
+                stepX = signX;
+                ix++;
+            } else {
+                stepY = signY;
+                iy++;
+            }
+
+            int direction = getDirection(stepX, stepY);
+            if (!traversalMasks.canMove(profile, index, direction)) {
+                return false;
+            }
+            x += stepX;
+            y += stepY;
+            index = y * width + x;
+            if (traversalMasks.getCost(profile, index) > maxCost || entityPositionLookup.isTileBlocked(x, y, ownerId)) {
+                return false;
+            }
+
+            // Diagonal moves can't squeeze past doors
+            if (stepX != 0 && stepY != 0
+                    && (entityPositionLookup.isTileBlocked(x - stepX, y, ownerId) || entityPositionLookup.isTileBlocked(x, y - stepY, ownerId))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static int getDirection(int stepX, int stepY) {
+        if (stepY < 0) {
+            return stepX > 0 ? MapTraversalMasks.NORTH_EAST : stepX < 0 ? MapTraversalMasks.NORTH_WEST : MapTraversalMasks.NORTH;
+        }
+        if (stepY > 0) {
+            return stepX > 0 ? MapTraversalMasks.SOUTH_EAST : stepX < 0 ? MapTraversalMasks.SOUTH_WEST : MapTraversalMasks.SOUTH;
+        }
+
+        return stepX > 0 ? MapTraversalMasks.EAST : MapTraversalMasks.WEST;
+    }
+
+}
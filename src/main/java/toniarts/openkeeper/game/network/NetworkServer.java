@@ -27,7 +27,6 @@ import com.jme3.network.serializing.serializers.FieldSerializer;
 import com.jme3.network.service.HostedService;
 import com.jme3.network.service.rmi.RmiHostedService;
 import com.jme3.network.service.rpc.RpcHostedService;
-import com.simsilica.es.base.DefaultEntityData;
 import com.simsilica.es.server.EntityDataHostedService;
 import com.simsilica.ethereal.EtherealHost;
 import toniarts.openkeeper.utils.Point;
@@ -104,6 +103,7 @@ import toniarts.openkeeper.game.network.message.StreamedMessage;
 import toniarts.openkeeper.game.network.session.AccountHostedService;
 import toniarts.openkeeper.game.network.streaming.StreamingHostedService;
 import toniarts.openkeeper.game.state.lobby.ClientInfo;
+import toniarts.openkeeper.game.state.loop.GameLoopManager;
 import toniarts.openkeeper.game.task.TaskType;
 import toniarts.openkeeper.tools.convert.map.Thing;
 import toniarts.openkeeper.tools.convert.map.Tile;
@@ -245,7 +245,7 @@ public final class NetworkServer {
         server.getServices().addService(ethereal);
 
         // The ES objects
-        server.getServices().addService(new EntityDataHostedService(NetworkConstants.ES_CHANNEL, new DefaultEntityData(), false));
+        server.getServices().addService(new EntityDataHostedService(NetworkConstants.ES_CHANNEL, GameLoopManager.createEntityData(), false));
 
         server.start();
 
@@ -49,7 +49,7 @@ import toniarts.openkeeper.game.state.session.GameSessionListener;
 import toniarts.openkeeper.game.state.session.GameSessionServerService;
 import toniarts.openkeeper.game.state.session.GameSessionServiceListener;
 import toniarts.openkeeper.tools.convert.map.TriggerAction;
-import toniarts.openkeeper.utils.GameLoop;
+import toniarts.openkeeper.utils.GameScheduler;
 
 /**
  * Game server hosts lobby service for the game clients.
@@ -179,7 +179,7 @@ public final class GameHostedService extends AbstractHostedConnectionService imp
         entityUpdater = Executors.newSingleThreadScheduledExecutor((Runnable r) -> new Thread(r, "EntityDataUpdater"));
         entityUpdater.scheduleAtFixedRate(() -> {
             getServiceManager().getService(EntityDataHostedService.class).sendUpdates();
-        }, 0, GameLoop.INTERVAL_FPS_60, TimeUnit.NANOSECONDS);
+        }, 0, GameScheduler.INTERVAL_FPS_60, TimeUnit.NANOSECONDS);
 
         for (GameSessionImpl gameSession : this.players.values()) {
             gameSession.onGameDataLoaded(players);
@@ -21,6 +21,7 @@ import com.jme3.network.service.AbstractHostedConnectionService;
 import com.jme3.network.service.HostedServiceManager;
 import com.jme3.network.service.rmi.RmiHostedService;
 import com.jme3.network.service.rmi.RmiRegistry;
+import com.jme3.util.SafeArrayList;
 import com.simsilica.es.server.EntityDataHostedService;
 import com.simsilica.ethereal.EtherealHost;
 import com.simsilica.ethereal.NetworkStateListener;
@@ -57,6 +58,7 @@ public final class LobbyHostedService extends AbstractHostedConnectionService im
 
     private final Object playerLock = new Object();
     private final Map<ClientInfo, AbstractLobbySessionImpl> players = new ConcurrentHashMap<>(4, 0.75f, 5);
+    private final SafeArrayList<LobbySessionListener> serverListeners = new SafeArrayList<>(LobbySessionListener.class);
     private String mapName;
     private boolean gameStarted = false;
 
@@ -134,6 +136,20 @@ public final class LobbyHostedService extends AbstractHostedConnectionService im
         startHostingOnConnection(conn, "Client:" + conn.getId());
     }
 
+    /**
+     * Listen to the lobby on the server side, like the clients do. Needed
+     * when the server is not hosted by one of the players.
+     *
+     * @param l the listener
+     */
+    public void addLobbySessionListener(LobbySessionListener l) {
+        serverListeners.add(l);
+    }
+
+    public void removeLobbySessionListener(LobbySessionListener l) {
+        serverListeners.remove(l);
+    }
+
     @Override
     public void stopHostingOnConnection(HostedConnection conn) {
         logger.log(Level.DEBUG, "stopHostingOnConnection({0})", conn);
@@ -179,6 +195,9 @@ public final class LobbyHostedService extends AbstractHostedConnectionService im
                     lobby.onMapChanged(mapName);
                 }
             }
+            for (LobbySessionListener listener : serverListeners.getArray()) {
+                listener.onMapChanged(mapName);
+            }
             notifyPlayersChange();
         }
     }
@@ -289,6 +308,9 @@ public final class LobbyHostedService extends AbstractHostedConnectionService im
         for (AbstractLobbySessionImpl lobby : players.values()) {
             lobby.onPlayerListChanged(playerList);
         }
+        for (LobbySessionListener listener : serverListeners.getArray()) {
+            listener.onPlayerListChanged(playerList);
+        }
     }
 
     @Override
@@ -300,6 +322,9 @@ public final class LobbyHostedService extends AbstractHostedConnectionService im
         for (AbstractLobbySessionImpl lobby : this.players.values()) {
             lobby.onGameStarted(mapName, playerList);
         }
+        for (LobbySessionListener listener : serverListeners.getArray()) {
+            listener.onGameStarted(mapName, playerList);
+        }
     }
 
     private List<ClientInfo> getPlayers() {
@@ -381,9 +406,7 @@ public final class LobbyHostedService extends AbstractHostedConnectionService im
             }
 
             getClientInfo().setReady(ready);
-            for (AbstractLobbySessionImpl lobby : players.values()) {
-                lobby.onPlayerListChanged(getPlayers());
-            }
+            notifyPlayersChange();
         }
 
         @Override
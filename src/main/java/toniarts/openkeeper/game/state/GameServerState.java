@@ -136,7 +136,9 @@ public final class GameServerState extends AbstractAppState {
         if (loader != null && loader.isAlive()) {
             loader.interrupt();
         }
-        stateManager.detach(this);
+        if (stateManager != null) {
+            stateManager.detach(this);
+        }
 
         if (game != null) {
             try {
@@ -295,7 +297,13 @@ public final class GameServerState extends AbstractAppState {
         @Override
         public void onExitGame(short playerId) {
             // TODO: Close the server and game only when everybody has left
-            stateManager.detach(GameServerState.this);
+            if (stateManager != null) {
+                stateManager.detach(GameServerState.this);
+            } else {
+
+                // Not attached, a dedicated server
+                detach();
+            }
         }
 
         @Override
@@ -324,7 +332,7 @@ public final class GameServerState extends AbstractAppState {
                     break;
                 }
                 case REMOVE_FOW: {
-                    // TODO:
+                    game.getGameController().getVisibilityLookup().setRevealAll(playerId, true);
                     break;
                 }
                 case UNLOCK_ROOMS: {
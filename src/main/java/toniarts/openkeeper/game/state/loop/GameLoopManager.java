@@ -17,7 +17,7 @@
 package toniarts.openkeeper.game.state.loop;
 
 import com.simsilica.es.EntityData;
-import java.util.ArrayList;
+import com.simsilica.es.base.DefaultEntityData;
 import java.util.List;
 import java.util.Map;
 import toniarts.openkeeper.game.controller.GameController;
@@ -25,13 +25,14 @@ import toniarts.openkeeper.game.controller.IGameController;
 import toniarts.openkeeper.game.controller.IGameWorldController;
 import toniarts.openkeeper.game.controller.ILevelInfo;
 import toniarts.openkeeper.game.controller.IPlayerController;
+import toniarts.openkeeper.game.data.ArrayEntityData;
 import toniarts.openkeeper.game.data.Keeper;
 import toniarts.openkeeper.game.logic.*;
 import toniarts.openkeeper.game.state.session.GameSessionServerService;
 import toniarts.openkeeper.game.task.ITaskManager;
 import toniarts.openkeeper.tools.convert.map.KwdFile;
 import toniarts.openkeeper.tools.convert.map.Variable;
-import toniarts.openkeeper.utils.GameLoop;
+import toniarts.openkeeper.utils.GameScheduler;
 
 /**
  *
@@ -39,7 +40,23 @@ import toniarts.openkeeper.utils.GameLoop;
  */
 public final class GameLoopManager {
 
-    private final List<GameLoop> loops = new ArrayList<>();
+    /**
+     * Selects the entity data implementation for the game server, "array"
+     * (default) or "default" for the plain zay-es one
+     */
+    public static final String ENTITY_DATA_PROPERTY = "openkeeper.entityData";
+
+    /**
+     * Initial game speed relative to the real time, a number or "max" for as
+     * fast as possible
+     *
+     * @see #setTimeScale(double)
+     */
+    public static final String TIME_SCALE_PROPERTY = "openkeeper.timeScale";
+
+    private static final String LOGIC_GROUP = "Logic";
+
+    private final GameScheduler scheduler = new GameScheduler();
 
     private final GameSessionServerService gameService;
 
@@ -88,11 +105,11 @@ public final class GameLoopManager {
                 new ChickenAiSystem(entityData, gameWorldController.getObjectsController()),
                 new CreatureViewSystem(entityData),
                 new DoorViewSystem(entityData, positionSystem),
-                new LooseObjectSystem(entityData, gameWorldController.getMapController(), playerControllers, positionSystem),
+                new LooseObjectSystem(entityData, gameWorldController.getMapController(), playerControllers),
                 new HaulingSystem(entityData),
                 (IGameLogicUpdatable) taskManager);
 
-        loops.add(new GameLoop(gameLogicThread, 1_000_000_000 / levelInfo.getLevelData().getGameLevel().getTicksPerSec(), "Logic"));
+        addGroup(gameLogicThread, 1_000_000_000 / levelInfo.getLevelData().getGameLevel().getTicksPerSec(), LOGIC_GROUP);
 
         // Animation systems
         final GameLogicManager gameAnimationThread = new GameLogicManager(
@@ -100,33 +117,105 @@ public final class GameLoopManager {
                         entityData,
                         gameController.getLevelVariable(Variable.MiscVariable.MiscType.TIME_BEFORE_DUNGEON_HEART_CONSTRUCTION_BEGINS)),
                 new CreatureFallSystem(entityData));
-        loops.add(new GameLoop(gameAnimationThread, GameLoop.INTERVAL_FPS_60, "Animation"));
+        addGroup(gameAnimationThread, GameScheduler.INTERVAL_FPS_60, "Animation");
 
         // Steering
-        loops.add(new GameLoop(new GameLogicManager(new MovementSystem(entityData)), GameLoop.INTERVAL_FPS_60, "Steering"));
+        addGroup(new GameLogicManager(new MovementSystem(entityData)), GameScheduler.INTERVAL_FPS_60, "Steering");
+
+        String timeScale = System.getProperty(TIME_SCALE_PROPERTY);
+        if (timeScale != null) {
+            setTimeScale(parseTimeScale(timeScale));
+        }
+    }
+
+    private void addGroup(GameLogicManager gameLogicManager, long updateRateNanos, String name) {
+        gameLogicManager.setWorkerPool(scheduler.getWorkerPool());
+        scheduler.addGroup(gameLogicManager, updateRateNanos, name);
     }
 
     public void pause() {
-        loops.stream().forEach(GameLoop::pause);
+        scheduler.pause();
         gameService.setGamePaused(true);
     }
 
     public void resume() {
-        loops.stream().forEach(GameLoop::resume);
+        scheduler.resume();
         gameService.setGamePaused(false);
     }
 
     public void start() {
-        loops.stream().forEach(GameLoop::start);
+        scheduler.start();
     }
 
     public void stop() {
-        loops.forEach(GameLoop::stop);
-        loops.clear();
+        scheduler.stop();
+    }
+
+    /**
+     * Get the number of the last processed game logic tick
+     *
+     * @return the tick number, -1 if the game hasn't started yet
+     */
+    public long getTick() {
+        return scheduler.getTick(LOGIC_GROUP);
+    }
+
+    /**
+     * Fast forward or slow down the game. The game time still advances by
+     * exactly one tick per tick, only the real time between the ticks
+     * changes.
+     *
+     * @param timeScale the game speed relative to the real time,
+     * {@link GameScheduler#UNLIMITED} runs the ticks back to back
+     */
+    public void setTimeScale(double timeScale) {
+        scheduler.setTimeScale(timeScale);
+    }
+
+    public double getTimeScale() {
+        return scheduler.getTimeScale();
+    }
+
+    /**
+     * Get the game logic tick throughput, measured over the last second
+     *
+     * @return game logic ticks per second of real time
+     */
+    public double getTicksPerSecond() {
+        return scheduler.getTicksPerSecond(LOGIC_GROUP);
     }
 
     public IGameController getGameController() {
         return gameController;
     }
 
+    /**
+     * Create the entity data for hosting a game
+     *
+     * @return new entity data
+     * @see #ENTITY_DATA_PROPERTY
+     */
+    public static DefaultEntityData createEntityData() {
+        if ("default".equalsIgnoreCase(System.getProperty(ENTITY_DATA_PROPERTY))) {
+            return new DefaultEntityData();
+        }
+
+        return new ArrayEntityData();
+    }
+
+    /**
+     * Parse a time scale
+     *
+     * @param timeScale a number or "max" for unlimited
+     * @return the time scale
+     * @see #setTimeScale(double)
+     */
+    public static double parseTimeScale(String timeScale) {
+        if ("max".equalsIgnoreCase(timeScale)) {
+            return GameScheduler.UNLIMITED;
+        }
+
+        return Double.parseDouble(timeScale);
+    }
+
 }
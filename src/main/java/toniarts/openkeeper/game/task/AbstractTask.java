@@ -30,6 +30,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import toniarts.openkeeper.game.controller.IMapController;
 import toniarts.openkeeper.game.controller.creature.ICreatureController;
 import toniarts.openkeeper.game.navigation.INavigationService;
+import toniarts.openkeeper.game.navigation.PathStatus;
 import toniarts.openkeeper.utils.WorldUtils;
 
 /**
@@ -142,7 +143,9 @@ public abstract class AbstractTask implements Task {
 
     /**
      * Is the task reachable by the given creature. Ask this last if determining
-     * validity etc. As the method might be heavy
+     * validity etc. As the method might be heavy. While the path is still being
+     * searched, the task is not reachable and the creature waits for the
+     * answer, see {@link ICreatureController#isWaitingForPathCheck()}
      *
      * @param creature the creature trying to reach this
      * @param target the target location
@@ -162,7 +165,7 @@ public abstract class AbstractTask implements Task {
         }
 
         // Path find
-        return (navigationService.findPath(WorldUtils.vectorToPoint(creature.getPosition()), targetTile, creature) != null);
+        return navigationService.checkPath(WorldUtils.vectorToPoint(creature.getPosition()), targetTile, creature) == PathStatus.FOUND;
     }
 
     /**
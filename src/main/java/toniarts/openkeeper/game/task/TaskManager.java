@@ -16,20 +16,17 @@
  */
 package toniarts.openkeeper.game.task;
 
-import com.badlogic.gdx.ai.pfa.GraphPath;
 import com.jme3.math.Vector2f;
 import com.simsilica.es.Entity;
 import com.simsilica.es.EntityData;
 import com.simsilica.es.EntityId;
 import com.simsilica.es.EntitySet;
-import com.simsilica.es.filter.FieldFilter;
 import toniarts.openkeeper.utils.Point;
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -67,11 +64,13 @@ import toniarts.openkeeper.game.data.Keeper;
 import toniarts.openkeeper.game.listener.MapListener;
 import toniarts.openkeeper.game.listener.PlayerActionListener;
 import toniarts.openkeeper.game.listener.RoomListener;
+import toniarts.openkeeper.game.logic.EntityFilters;
 import toniarts.openkeeper.game.logic.IEntityPositionLookup;
 import toniarts.openkeeper.game.logic.IGameLogicUpdatable;
 import toniarts.openkeeper.game.map.IMapDataInformation;
 import toniarts.openkeeper.game.map.IMapTileInformation;
 import toniarts.openkeeper.game.navigation.INavigationService;
+import toniarts.openkeeper.game.navigation.PathStatus;
 import toniarts.openkeeper.game.task.creature.ClaimLair;
 import toniarts.openkeeper.game.task.creature.GoToEat;
 import toniarts.openkeeper.game.task.creature.GoToSleep;
@@ -496,10 +495,11 @@ public final class TaskManager implements ITaskManager, IGameLogicUpdatable {
         if (!taskQueues.containsKey(playerId)) {
             return;
         }
-        for (EntityId entityId : entityPositionLookup.getEntitiesInLocation(tile)) {
+        entityPositionLookup.forEachEntityInLocation(tile, entityId -> {
             Entity entity = entityData.getEntity(entityId, ObjectComponent.class, Placeable.class, Position.class);
             createFetchObjectTask(entity, playerId);
-        }
+            return true;
+        });
     }
 
     private void createFetchObjectTask(Entity entity, short playerId) {
@@ -577,8 +577,13 @@ public final class TaskManager implements ITaskManager, IGameLogicUpdatable {
             // Assign
             if (!coordinates.isEmpty()) {
                 Point target = Utils.getRandomItem(coordinates);
-                GraphPath<IMapTileInformation> path = navigationService.findPath(creature.getCreatureCoordinates(), target, creature);
-                if (path != null || target == creature.getCreatureCoordinates()) {
+                PathStatus pathStatus = target == creature.getCreatureCoordinates() ? PathStatus.FOUND : navigationService.checkPath(creature.getCreatureCoordinates(), target, creature);
+                if (pathStatus == PathStatus.UNKNOWN) {
+
+                    // Don't settle for the rooms further away before we know about this one
+                    return false;
+                }
+                if (pathStatus == PathStatus.FOUND) {
 
                     // Assign the task
                     Task task = getRoomTask(objectType, target, targetEntity, creature, room);
@@ -723,37 +728,25 @@ public final class TaskManager implements ITaskManager, IGameLogicUpdatable {
     public boolean assignEatTask(ICreatureController creature) {
 
         // The creatures in the original don't seem to make anykind of reservations on the food items, I've seen them "fight over food", first come first serve
-        // Hmm, is this a good way to find the food, performance-wise...?
-        List<EntityId> foods = new ArrayList<>(entityData.findEntities(new FieldFilter(Owner.class, "ownerId", creature.getOwnerId()), Food.class, Owner.class, Position.class));
-        if (foods.isEmpty()) {
+        // Pick the closest we can actually access, searching outwards from the creature
+        Point currentLocation = creature.getCreatureCoordinates();
+        // The food we don't know about yet counts, rather wait for the answer than walk past it to the farther ones
+        EntityId food = entityPositionLookup.findNearestEntity(currentLocation, Float.MAX_VALUE,
+                EntityFilters.hasComponent(entityData, Food.class)
+                        .and(EntityFilters.ownedBy(entityData, creature.getOwnerId()))
+                        .and(entityId -> navigationService.checkPath(currentLocation, entityPositionLookup.getEntityLocation(entityId).getLocation(), creature) != PathStatus.NOT_FOUND));
+        if (food == null) {
             return false; // No food available
         }
-
-        // Sort by manhattan distance in relation to the creature
-        Collections.sort(foods, new Comparator<EntityId>() {
-
-            private final Point currentLocation = creature.getCreatureCoordinates();
-
-            @Override
-            public int compare(EntityId entityId, EntityId entityId1) {
-                int result = Integer.compare(WorldUtils.calculateDistance(currentLocation, entityPositionLookup.getEntityLocation(entityId).getLocation()), WorldUtils.calculateDistance(currentLocation, entityPositionLookup.getEntityLocation(entityId1).getLocation()));
-                return result;
-            }
-
-        });
-
-        // Pick closest we can actually access
-        for (EntityId food : foods) {
-            Point target = entityPositionLookup.getEntityLocation(food).getLocation();
-            if (target == creature.getCreatureCoordinates() || navigationService.findPath(creature.getCreatureCoordinates(), target, creature) != null) {
-                GoToEat task = new GoToEat(navigationService, mapController, entityPositionLookup, food, entityData, creature);
-                task.assign(creature, true);
-                tasksByIds.put(task.getId(), task);
-                return true;
-            }
+        if (navigationService.checkPath(currentLocation, entityPositionLookup.getEntityLocation(food).getLocation(), creature) != PathStatus.FOUND) {
+            return false; // Still searching, ask again later
         }
 
-        return false;
+        GoToEat task = new GoToEat(navigationService, mapController, entityPositionLookup, food, entityData, creature);
+        task.assign(creature, true);
+        tasksByIds.put(task.getId(), task);
+
+        return true;
     }
 
     @Override
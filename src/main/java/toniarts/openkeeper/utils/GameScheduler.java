@@ -0,0 +1,380 @@
+/*
+ * Copyright (C) 2014-2026 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.utils;
+
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import toniarts.openkeeper.game.logic.IGameLogicUpdatable;
+
+/**
+ * Runs several groups of game logic on a single thread, each at its own rate.
+ * All the groups follow the same clock on a strict fixed time step, every
+ * tick of a group gets the same tpf and a running tick number. If a group
+ * falls behind, the missed ticks are run back to back, up to
+ * {@link #MAX_CATCH_UP_TICKS}. After a longer stall the rest are dropped and
+ * the group carries on from the present.<br>
+ * Only one group ticks at a time, the groups due at the
+ * same time tick in the order they were added. So a tick of a group always
+ * sees the complete results of the previous tick of any other group.<br>
+ * The groups can use the shared worker pool to parallelize their own tick,
+ * the pool is idle between the ticks.<br>
+ * The clock can be run faster or slower than the real time, see
+ * {@link #setTimeScale(double)}. The groups still get the same tpf on every
+ * tick and keep their rates relative to each other, only the wall time
+ * between the ticks changes.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class GameScheduler {
+
+    private static final Logger logger = System.getLogger(GameScheduler.class.getName());
+
+    public static final long INTERVAL_FPS_60 = 16666667L;
+
+    /**
+     * How many ticks a group runs in a row to catch up before giving up and
+     * dropping them
+     */
+    public static final int MAX_CATCH_UP_TICKS = 5;
+
+    /**
+     * Time scale for running the ticks back to back, as fast as they go
+     */
+    public static final double UNLIMITED = Double.POSITIVE_INFINITY;
+
+    private static final long SPIN_THRESHOLD = TimeUnit.MICROSECONDS.toNanos(500);
+    private static final long REPORT_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+    private static final String THREAD_NAME = "Game Scheduler";
+
+    private final List<Group> groups = new ArrayList<>();
+    private final ForkJoinPool workerPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    private final AtomicBoolean pauseFlag = new AtomicBoolean(false);
+    private final Runner loop = new Runner();
+    private volatile double timeScale = 1;
+
+    public GameScheduler() {
+    }
+
+    /**
+     * Add a group of game logic. Add all the groups before starting.
+     *
+     * @param updatable the group
+     * @param updateRateNanos the tick interval of the group
+     * @param name name of the group, for logging
+     */
+    public void addGroup(IGameLogicUpdatable updatable, long updateRateNanos, String name) {
+        if (loop.isAlive()) {
+            throw new IllegalStateException("The groups can't be added after starting!");
+        }
+
+        groups.add(new Group(updatable, updateRateNanos, name));
+    }
+
+    /**
+     * Get the worker pool that the groups can use to parallelize their ticks.
+     * The scheduler owns the pool, don't shut it down.
+     *
+     * @return the worker pool
+     */
+    public ForkJoinPool getWorkerPool() {
+        return workerPool;
+    }
+
+    /**
+     * Starts the scheduler thread. The groups are started on the scheduler
+     * thread in the order they were added.
+     */
+    public void start() {
+        loop.start();
+    }
+
+    /**
+     * Stops the scheduler thread, stopping the groups in the reverse order.
+     * This method will wait until the thread has been fully shut down before
+     * returning.
+     */
+    public void stop() {
+        loop.close();
+        workerPool.shutdown();
+    }
+
+    public void pause() {
+        pauseFlag.set(true);
+    }
+
+    public void resume() {
+        pauseFlag.set(false);
+        synchronized (pauseFlag) {
+            pauseFlag.notify();
+        }
+    }
+
+    /**
+     * Set the speed of the clock relative to the real time. With 2 the game
+     * runs twice as fast, with {@link #UNLIMITED} the ticks are run back to
+     * back as fast as the CPU allows. The ticks falling behind are not
+     * dropped when unlimited.
+     *
+     * @param timeScale the time scale, must be positive
+     */
+    public void setTimeScale(double timeScale) {
+        if (!(timeScale > 0)) {
+            throw new IllegalArgumentException("Time scale must be positive, was " + timeScale + "!");
+        }
+
+        this.timeScale = timeScale;
+
+        // Don't oversleep with the old scale
+        LockSupport.unpark(loop);
+    }
+
+    public double getTimeScale() {
+        return timeScale;
+    }
+
+    /**
+     * Get the number of the last processed tick of a group
+     *
+     * @param name the group name
+     * @return the tick number, -1 if no ticks have been processed yet
+     */
+    public long getTick(String name) {
+        return getGroup(name).tick;
+    }
+
+    /**
+     * Get the tick throughput of a group, measured over the last second
+     *
+     * @param name the group name
+     * @return ticks processed per second of real time
+     */
+    public double getTicksPerSecond(String name) {
+        return getGroup(name).ticksPerSecond;
+    }
+
+    private Group getGroup(String name) {
+        for (Group group : groups) {
+            if (group.name.equals(name)) {
+                return group;
+            }
+        }
+
+        throw new IllegalArgumentException("No group named " + name + "!");
+    }
+
+    private static final class Group {
+
+        private final IGameLogicUpdatable updatable;
+        private final long updateRate;
+        private final float tpf;
+        private final String name;
+        private long nextTickTime;
+        private volatile long tick = -1;
+        private long reportTick = -1;
+        private volatile double ticksPerSecond;
+
+        public Group(IGameLogicUpdatable updatable, long updateRate, String name) {
+            this.updatable = updatable;
+            this.updateRate = updateRate;
+            this.tpf = updateRate / 1_000_000_000f;
+            this.name = name;
+        }
+
+    }
+
+    private final class Runner extends Thread {
+
+        private final AtomicBoolean go = new AtomicBoolean(true);
+
+        /**
+         * The game clock, in nanoseconds since the start. Moves with the
+         * real time multiplied by the time scale, doesn't move when paused.
+         */
+        private long clock;
+        private long lastTime;
+        private long reportTime;
+
+        public Runner() {
+            super(THREAD_NAME);
+        }
+
+        public void close() {
+            go.set(false);
+            GameScheduler.this.resume();
+            LockSupport.unpark(this);
+            try {
+                join();
+            } catch (InterruptedException e) {
+                throw new RuntimeException("Interrupted while waiting for game scheduler thread to complete.", e);
+            }
+        }
+
+        @Override
+        public void run() {
+            for (Group group : groups) {
+                group.updatable.start();
+                group.nextTickTime = group.updateRate;
+            }
+
+            lastTime = System.nanoTime();
+            reportTime = lastTime;
+            while (go.get()) {
+                // Check pause
+                if (pauseFlag.get()) {
+                    synchronized (pauseFlag) {
+                        // We are in a while loop here to protect against spurious interrupts
+                        while (pauseFlag.get()) {
+                            try {
+                                pauseFlag.wait();
+                            } catch (InterruptedException e) {
+                                throw new RuntimeException("Interrupted sleeping", e);
+                            }
+                        }
+                    }
+
+                    // The time spent paused is not owed to anybody
+                    lastTime = System.nanoTime();
+                    reportTime = lastTime;
+                    for (Group group : groups) {
+                        group.reportTick = group.tick;
+                    }
+                    continue;
+                }
+
+                double scale = timeScale;
+                long nextTickTime = Long.MAX_VALUE;
+                for (Group group : groups) {
+                    nextTickTime = Math.min(nextTickTime, group.nextTickTime);
+                }
+                long remaining = advanceClock(scale, nextTickTime);
+                if (remaining > 0) {
+
+                    // Park most of the wait and yield the rest, parking alone
+                    // can oversleep by the scheduler granularity
+                    long wait = (long) (remaining / scale);
+                    if (wait > SPIN_THRESHOLD) {
+                        LockSupport.parkNanos(wait - SPIN_THRESHOLD);
+                    } else {
+                        Thread.yield();
+                    }
+                    continue;
+                }
+
+                // A phase, every due group ticks once. If some are still due
+                // after this, they'll tick on the next round right away
+                long time = clock;
+                for (Group group : groups) {
+                    if (group.nextTickTime - time <= 0) {
+                        processTick(group);
+                        if (scale != UNLIMITED) {
+                            advanceClock(scale, Long.MAX_VALUE);
+                            dropTicks(group);
+                        }
+                    }
+                }
+
+                report(scale);
+            }
+
+            for (int i = groups.size() - 1; i >= 0; i--) {
+                groups.get(i).updatable.stop();
+            }
+        }
+
+        /**
+         * Move the game clock by the real time passed
+         *
+         * @param scale the time scale
+         * @param nextTickTime the game time of the next tick
+         * @return game time left until the next tick
+         */
+        private long advanceClock(double scale, long nextTickTime) {
+            long time = System.nanoTime();
+            if (scale == UNLIMITED) {
+
+                // No waiting, jump straight to the next tick
+                clock = Math.max(clock, nextTickTime);
+            } else {
+                clock += (long) ((time - lastTime) * scale);
+            }
+            lastTime = time;
+
+            return nextTickTime - clock;
+        }
+
+        private void processTick(Group group) {
+            long time = System.nanoTime();
+            long currentTick = group.tick + 1;
+            group.updatable.processTick(group.tpf, currentTick);
+            group.tick = currentTick;
+            group.nextTickTime += group.updateRate;
+
+            // Logging, check first so that we don't box anything for nothing
+            long tickTime = System.nanoTime() - time;
+            Level level = tickTime < group.updateRate ? Level.TRACE : Level.ERROR;
+            if (logger.isLoggable(level)) {
+                logger.log(level, "Group \"{0}\" tick {1} took {2} ms!", group.name, currentTick,
+                        TimeUnit.NANOSECONDS.toMillis(tickTime));
+            }
+        }
+
+        /**
+         * Let the group catch up at most {@link #MAX_CATCH_UP_TICKS} ticks,
+         * drop the rest
+         */
+        private void dropTicks(Group group) {
+            long behind = clock - group.nextTickTime;
+            if (behind >= MAX_CATCH_UP_TICKS * group.updateRate) {
+                long dropped = behind / group.updateRate + 1 - MAX_CATCH_UP_TICKS;
+                group.nextTickTime += dropped * group.updateRate;
+                if (logger.isLoggable(Level.WARNING)) {
+                    logger.log(Level.WARNING, "Group \"{0}\" fell behind, dropped {1} ticks!", group.name, dropped);
+                }
+            }
+        }
+
+        /**
+         * Update the tick throughput of the groups once in a while. Logged
+         * when the time is scaled, that's when somebody is interested
+         */
+        private void report(double scale) {
+            long time = System.nanoTime();
+            long elapsed = time - reportTime;
+            if (elapsed < REPORT_INTERVAL) {
+                return;
+            }
+
+            reportTime = time;
+            Level level = scale != 1 ? Level.INFO : Level.DEBUG;
+            for (Group group : groups) {
+                long ticks = group.tick - group.reportTick;
+                group.reportTick = group.tick;
+                group.ticksPerSecond = ticks * 1_000_000_000d / elapsed;
+                if (logger.isLoggable(level)) {
+                    logger.log(level, "Group \"{0}\" runs {1} ticks per second", group.name,
+                            Math.round(group.ticksPerSecond));
+                }
+            }
+        }
+    }
+}